@@ -0,0 +1,84 @@
+package com.p2pchat.config;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.config.impl.SecurityConfiguration;
+import org.apache.activemq.artemis.core.security.Role;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.spi.core.security.ActiveMQJAASSecurityManager;
+import org.apache.activemq.artemis.spi.core.security.jaas.InVMLoginModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.util.Set;
+
+/**
+ * Embedded Artemis STOMP broker for running relay mode locally / in tests
+ * Only compiled with the Maven "embedded-broker" profile and only active with the Spring "embedded-broker" profile
+ *
+ * Listens on loopback by default, where security is off. Bound to any other address it requires
+ * the relay login / passcode (the same credentials the broker relay connects with).
+ */
+@Component
+@Profile("embedded-broker")
+public class EmbeddedStompBrokerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedStompBrokerConfig.class);
+
+    @Value("${signaling.broker.relay.port:61613}")
+    private int stompPort;
+
+    @Value("${signaling.broker.embedded.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${signaling.broker.relay.login:guest}")
+    private String login;
+
+    @Value("${signaling.broker.relay.passcode:guest}")
+    private String passcode;
+
+    private EmbeddedActiveMQ broker;
+
+    @PostConstruct
+    public void start() throws Exception {
+        boolean loopback = InetAddress.getByName(bindAddress).isLoopbackAddress();
+        Configuration config = new ConfigurationImpl()
+            .setPersistenceEnabled(false)
+            .setSecurityEnabled(!loopback)
+            .setJMXManagementEnabled(false)
+            // Map Spring's /topic and /queue prefixes onto Artemis routing types
+            .addAcceptorConfiguration("stomp", "tcp://" + bindAddress + ":" + stompPort
+                + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+
+        broker = new EmbeddedActiveMQ();
+        if (!loopback) {
+            SecurityConfiguration users = new SecurityConfiguration();
+            users.addUser(login, passcode);
+            users.addRole(login, "relay");
+            // send, consume, create / delete durable and non-durable queues, no manage, browse, create / delete addresses
+            config.putSecurityRoles("#", Set.of(new Role("relay", true, true, true, true, true, true, false, true, true, true)));
+            broker.setSecurityManager(new ActiveMQJAASSecurityManager(InVMLoginModule.class.getName(), users));
+            if ("guest".equals(login) && "guest".equals(passcode)) {
+                log.warn("⚠️ Embedded STOMP broker listens on {} with the default guest credentials", bindAddress);
+            }
+        }
+        broker.setConfiguration(config);
+        broker.start();
+        log.info("📨 Embedded STOMP broker started on {}:{} (security {})", bindAddress, stompPort,
+            loopback ? "off, loopback only" : "on");
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            log.info("🛑 Embedded STOMP broker stopped");
+        }
+    }
+}
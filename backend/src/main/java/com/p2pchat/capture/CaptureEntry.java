@@ -0,0 +1,27 @@
+package com.p2pchat.capture;
+
+/**
+ * One captured inbound STOMP SEND frame
+ */
+public class CaptureEntry {
+
+    public static final byte FLAG_REDACTED = 0x01;
+
+    public final long arrivalEpochNanos;
+    public final String sessionId;
+    public final String destination;
+    public final byte flags;
+    public final byte[] body;
+
+    public CaptureEntry(long arrivalEpochNanos, String sessionId, String destination, byte flags, byte[] body) {
+        this.arrivalEpochNanos = arrivalEpochNanos;
+        this.sessionId = sessionId;
+        this.destination = destination;
+        this.flags = flags;
+        this.body = body;
+    }
+
+    public boolean isRedacted() {
+        return (flags & FLAG_REDACTED) != 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.p2pchat.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a capture log written by {@link CaptureLogWriter}
+ */
+public final class CaptureLogReader {
+
+    private CaptureLogReader() {}
+
+    public static List<CaptureEntry> readAll(Path file) throws IOException {
+        List<CaptureEntry> entries = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            byte[] magic = new byte[CaptureLogWriter.MAGIC.length];
+            if (buffer.remaining() < magic.length) {
+                throw new IOException("Not a capture log: " + file);
+            }
+            buffer.get(magic);
+            if (!Arrays.equals(magic, CaptureLogWriter.MAGIC)) {
+                throw new IOException("Not a capture log: " + file);
+            }
+
+            while (buffer.remaining() >= 4) {
+                int entryLength = buffer.getInt();
+                if (entryLength <= 0 || entryLength > buffer.remaining()) {
+                    break;
+                }
+                long arrival = buffer.getLong();
+                String session = readString(buffer);
+                String destination = readString(buffer);
+                byte flags = buffer.get();
+                byte[] body = new byte[buffer.getInt()];
+                buffer.get(body);
+                entries.add(new CaptureEntry(arrival, session, destination, flags, body));
+            }
+        }
+        return entries;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+package com.p2pchat.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary capture log backed by memory-mapped regions.
+ *
+ * File layout:
+ *   header:  magic "P2PCAP01" (8 bytes)
+ *   entry:   int entryLength (0 = end of log)
+ *            long arrivalEpochNanos
+ *            short sessionLength + UTF-8 session id
+ *            short destinationLength + UTF-8 destination
+ *            byte flags
+ *            int bodyLength + body bytes
+ *
+ * The file grows one region at a time; {@link #close()} truncates it to the written length.
+ */
+public class CaptureLogWriter implements Closeable {
+
+    public static final byte[] MAGIC = "P2PCAP01".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final long regionSize;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    public CaptureLogWriter(Path file, long regionSize) throws IOException {
+        this.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.regionSize = regionSize;
+        mapRegion(0, MAGIC.length);
+        region.put(MAGIC);
+        position = MAGIC.length;
+    }
+
+    /**
+     * Append one entry. Callers must serialize access.
+     */
+    public void append(long arrivalEpochNanos, String sessionId, String destination, byte flags, byte[] body)
+            throws IOException {
+        byte[] session = utf8(sessionId);
+        byte[] dest = utf8(destination);
+        int entryLength = 8 + 2 + session.length + 2 + dest.length + 1 + 4 + body.length;
+
+        // Always leave room for the trailing 0 end marker
+        long needed = 4L + entryLength + 4L;
+        if (position + needed > regionStart + region.capacity()) {
+            mapRegion(position, needed);
+        }
+
+        region.putInt(entryLength);
+        region.putLong(arrivalEpochNanos);
+        region.putShort((short) session.length);
+        region.put(session);
+        region.putShort((short) dest.length);
+        region.put(dest);
+        region.put(flags);
+        region.putInt(body.length);
+        region.put(body);
+        position += 4L + entryLength;
+    }
+
+    public long size() {
+        return position;
+    }
+
+    private void mapRegion(long start, long minimum) throws IOException {
+        if (region != null) {
+            region.force();
+        }
+        regionStart = start;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(regionSize, minimum));
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Capture field too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (region != null) {
+            region.force();
+            region = null;
+        }
+        channel.truncate(position);
+        channel.close();
+    }
+}
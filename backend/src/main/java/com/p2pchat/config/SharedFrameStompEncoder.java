@@ -0,0 +1,135 @@
+package com.p2pchat.config;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * STOMP encoder that encodes the body of a fanned-out MESSAGE frame once
+ *
+ * The broker hands the same payload byte[] to every subscription of a broadcast, and
+ * PresencePublisher reuses one PEER_ONLINE byte[] for the /topic/peers broadcast and for every
+ * /topic/peer/{id} replay. The headers differ between those frames (subscription, message-id,
+ * destination) but are short, so they are encoded per frame; the content-length, the body and the
+ * NUL terminator are encoded once into an immutable tail keyed by payload identity alone, and each
+ * frame is its head plus one copy of that tail. Any other frame is encoded by the standard StompEncoder.
+ */
+public class SharedFrameStompEncoder extends StompEncoder {
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final int CACHE_SLOTS = 256; // power of two
+
+    // Recently encoded tails, slot = identityHashCode(payload); a collision simply replaces the slot
+    private final AtomicReferenceArray<SharedTail> tails = new AtomicReferenceArray<>(CACHE_SLOTS);
+
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder sharedMisses = new LongAdder();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        Map<String, List<String>> nativeHeaders =
+            (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (payload.length == 0 || nativeHeaders == null
+                || StompHeaderAccessor.getCommand(headers) != StompCommand.MESSAGE) {
+            return super.encode(headers, payload);
+        }
+
+        int slot = System.identityHashCode(payload) & (CACHE_SLOTS - 1);
+        SharedTail tail = tails.get(slot);
+        if (tail != null && tail.payload == payload) {
+            sharedHits.increment();
+        } else {
+            sharedMisses.increment();
+            tail = SharedTail.encode(payload);
+            tails.set(slot, tail);
+        }
+
+        byte[] head = encodeHead(nativeHeaders);
+        byte[] frame = new byte[head.length + tail.bytes.length];
+        System.arraycopy(head, 0, frame, 0, head.length);
+        System.arraycopy(tail.bytes, 0, frame, head.length, tail.bytes.length);
+        return frame;
+    }
+
+    /**
+     * Frames whose encoded body was reused vs encoded from scratch
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("sharedHits", sharedHits.sum());
+        stats.put("sharedMisses", sharedMisses.sum());
+        return stats;
+    }
+
+    /**
+     * Command + every header except content-length (which belongs to the tail)
+     */
+    private static byte[] encodeHead(Map<String, List<String>> nativeHeaders) {
+        StringBuilder sb = new StringBuilder(256);
+        nativeHeaders.forEach((key, values) -> {
+            if (!StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER.equals(key)) {
+                for (String value : values) {
+                    escape(key, sb);
+                    sb.append(':');
+                    escape(value, sb);
+                    sb.append('\n');
+                }
+            }
+        });
+        byte[] headers = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] head = new byte[MESSAGE_COMMAND.length + headers.length];
+        System.arraycopy(MESSAGE_COMMAND, 0, head, 0, MESSAGE_COMMAND.length);
+        System.arraycopy(headers, 0, head, MESSAGE_COMMAND.length, headers.length);
+        return head;
+    }
+
+    /**
+     * STOMP 1.2 header value escaping (MESSAGE frames are always escaped)
+     */
+    private static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ':' -> sb.append("\\c");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * content-length + blank line + body + NUL, immutable once built
+     */
+    private static final class SharedTail {
+
+        final byte[] payload;
+        final byte[] bytes;
+
+        private SharedTail(byte[] payload, byte[] bytes) {
+            this.payload = payload;
+            this.bytes = bytes;
+        }
+
+        static SharedTail encode(byte[] payload) {
+            byte[] headers = (StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER + ":" + payload.length + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[headers.length + payload.length + 1];
+            System.arraycopy(headers, 0, bytes, 0, headers.length);
+            System.arraycopy(payload, 0, bytes, headers.length, payload.length);
+            // trailing NUL already zero
+            return new SharedTail(payload, bytes);
+        }
+    }
+}
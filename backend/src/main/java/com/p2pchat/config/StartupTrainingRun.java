@@ -0,0 +1,32 @@
+package com.p2pchat.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exits right after startup when startup.training-run=true
+ * Used by the fast-startup Maven profile to record the AppCDS archive (-XX:ArchiveClassesAtExit).
+ * Checked at runtime rather than with @ConditionalOnProperty because AOT freezes conditions at build time.
+ */
+@Component
+public class StartupTrainingRun {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+    @Value("${startup.training-run:false}")
+    private boolean trainingRun;
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        if (!trainingRun) {
+            return;
+        }
+        log.info("🏁 Training run finished - exiting to write the class-data sharing archive");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
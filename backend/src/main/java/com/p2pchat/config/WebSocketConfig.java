@@ -1,33 +1,288 @@
 package com.p2pchat.config;
 
+import com.p2pchat.service.AdmissionController;
+import com.p2pchat.service.FederationLinkGuard;
+import com.p2pchat.service.SessionLivenessTracker;
+import com.p2pchat.service.SignalLanes;
+import com.p2pchat.service.SignalingCaptureService;
+import com.p2pchat.service.SignalingCodecs;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final SignalingCaptureService captureService;
+    private final SessionLivenessTracker livenessTracker;
+    private final SignalLanes signalLanes;
+    private final AdmissionController admissionController;
+    private final SignalingCodecs signalingCodecs;
+    private final FederationLinkGuard federationLinkGuard;
+
+    // STOMP heartbeat cadence: {server sends every N ms, server expects client every N ms}
+    @Value("${signaling.heartbeat.server-ms:10000}")
+    private long heartbeatServerMs;
+
+    @Value("${signaling.heartbeat.client-ms:10000}")
+    private long heartbeatClientMs;
+
+    // Broker mode: "simple" (in-process SimpleBroker, default) or "relay" (external STOMP broker)
+    @Value("${signaling.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${signaling.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${signaling.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${signaling.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${signaling.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    // Encode the body of broadcast frames once and share it across recipients
+    @Value("${signaling.fanout.shared-frames:true}")
+    private boolean sharedFrames;
+
+    public WebSocketConfig(SignalingCaptureService captureService, SessionLivenessTracker livenessTracker,
+                           SignalLanes signalLanes, AdmissionController admissionController,
+                           SignalingCodecs signalingCodecs, FederationLinkGuard federationLinkGuard) {
+        this.captureService = captureService;
+        this.livenessTracker = livenessTracker;
+        this.signalLanes = signalLanes;
+        this.admissionController = admissionController;
+        this.signalingCodecs = signalingCodecs;
+        this.federationLinkGuard = federationLinkGuard;
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // SEND frames with content-type application/cbor; JSON stays the default (added after this)
+        if (signalingCodecs.isCborEnabled()) {
+            messageConverters.add(signalingCodecs.cborConverter());
+        }
+        return true;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable simple in-memory broker for pub/sub messaging
-        config.enableSimpleBroker("/topic", "/queue");
-        
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Relay pub/sub to an external STOMP broker so fan-out runs outside this JVM
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatServerMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatClientMs);
+        } else {
+            // Enable simple in-memory broker for pub/sub messaging
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] {heartbeatServerMs, heartbeatClientMs})
+                    .setTaskScheduler(heartbeatScheduler());
+        }
+
         // Prefix for messages bound for @MessageMapping methods
         config.setApplicationDestinationPrefixes("/app");
-        
+
         // Prefix for user-specific messages
         config.setUserDestinationPrefix("/user");
     }
 
+    /**
+     * Scheduler driving STOMP heartbeats of the simple broker
+     */
+    @Bean
+    public ThreadPoolTaskScheduler heartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * STOMP encoder reusing the encoded body of broadcast MESSAGE frames across recipients
+     */
+    @Bean
+    public SharedFrameStompEncoder sharedFrameStompEncoder() {
+        return new SharedFrameStompEncoder();
+    }
+
+    /**
+     * Install the shared-frame encoder on the STOMP handler once the endpoint registry has created it
+     */
+    @Bean
+    public SmartInitializingSingleton sharedFrameEncoderInstaller(
+            @Qualifier("subProtocolWebSocketHandler") WebSocketHandler subProtocolWebSocketHandler,
+            SharedFrameStompEncoder sharedFrameStompEncoder) {
+        return () -> {
+            if (sharedFrames && subProtocolWebSocketHandler instanceof SubProtocolWebSocketHandler handler) {
+                handler.getProtocolHandlers().stream()
+                        .filter(StompSubProtocolHandler.class::isInstance)
+                        .forEach(stompHandler -> ((StompSubProtocolHandler) stompHandler).setEncoder(sharedFrameStompEncoder));
+            }
+        };
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Call setup > presence > typing instead of one FIFO queue
+        if (signalLanes.isEnabled()) {
+            registration.taskExecutor(signalLanes.inboundExecutor());
+        }
+        
+        // Federation destinations only for authenticated node links, client destinations only for clients
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                return federationLinkGuard.authorize(message);
+            }
+        });
+        
+        // Body codec per connection, from the CONNECT frame's accept-content-type header
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.CONNECT) {
+                    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                    signalingCodecs.negotiate(accessor.getSessionId(), accessor.getNativeHeader(SignalingCodecs.ACCEPT_HEADER));
+                }
+                return message;
+            }
+        });
+        
+        // Record inbound traffic for replay (no-op unless signaling.capture.enabled=true)
+        if (captureService.isEnabled()) {
+            registration.interceptors(new ChannelInterceptor() {
+                @Override
+                public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                    // Captures hold JSON so they replay against any server
+                    byte[] json = signalingCodecs.toJson(message);
+                    captureService.record(json != null ? MessageBuilder.createMessage(json, message.getHeaders()) : message);
+                    return message;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (signalLanes.isEnabled()) {
+            registration.taskExecutor(signalLanes.outboundExecutor());
+        }
+        
+        // Transcode JSON bodies for CBOR sessions once the frame has its lane
+        // (the outbound lane is sniffed from the JSON body)
+        registration.interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                return signalingCodecs.encodeForSession(message);
+            }
+        });
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Feed every raw frame (heartbeats included) to the liveness tracker,
+        // and open / closed sessions to admission control
+        registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                admissionController.sessionOpened();
+                livenessTracker.sessionOpened(session);
+                signalingCodecs.sessionOpened(session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                livenessTracker.sessionActive(session.getId());
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                livenessTracker.sessionClosed(session.getId());
+                signalingCodecs.sessionClosed(session.getId());
+                admissionController.sessionClosed();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        });
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // WebSocket endpoint for signaling
         registry.addEndpoint("/ws/signaling")
                 .setAllowedOriginPatterns("*")
+                .addInterceptors(admissionInterceptor())
                 .withSockJS();
+        
+        // Server-to-server federation links (shared secret + discovered source address)
+        registry.addEndpoint(FederationLinkGuard.ENDPOINT)
+                .addInterceptors(federationLinkGuard.handshakeInterceptor());
     }
-}
 
+    /**
+     * Reject new handshakes with 503 + Retry-After while the session limit is reached
+     */
+    private HandshakeInterceptor admissionInterceptor() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                if (admissionController.tryAdmitConnection()) {
+                    return true;
+                }
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set("Retry-After",
+                        Long.toString(Math.max(1, admissionController.retryAfterMs() / 1000)));
+                return false;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+}
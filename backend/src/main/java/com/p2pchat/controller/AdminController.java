@@ -0,0 +1,69 @@
+package com.p2pchat.controller;
+
+import com.p2pchat.service.DrainCoordinator;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+
+/**
+ * Admin Controller - operational endpoints (drain before deploy)
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
+    // Only accept admin calls from the node itself (no authentication in this server)
+    @Value("${signaling.admin.local-only:true}")
+    private boolean localOnly;
+
+    private final DrainCoordinator drainCoordinator;
+
+    public AdminController(DrainCoordinator drainCoordinator) {
+        this.drainCoordinator = drainCoordinator;
+    }
+
+    /**
+     * Start draining: refuse new peers, redirect connected peers to other signaling servers
+     */
+    @PostMapping("/drain")
+    public ResponseEntity<Map<String, Object>> startDrain(HttpServletRequest request) {
+        if (!isAllowed(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "admin endpoints are local-only"));
+        }
+        log.info("🚰 Drain requested by {}", request.getRemoteAddr());
+        drainCoordinator.startDrain("admin");
+        return ResponseEntity.accepted().body(drainCoordinator.getStats());
+    }
+
+    /**
+     * Drain progress: pending / sent redirects, call setups still open
+     */
+    @GetMapping("/drain")
+    public ResponseEntity<Map<String, Object>> getDrainStatus() {
+        return ResponseEntity.ok(drainCoordinator.getStats());
+    }
+
+    private boolean isAllowed(HttpServletRequest request) {
+        if (!localOnly) {
+            return true;
+        }
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
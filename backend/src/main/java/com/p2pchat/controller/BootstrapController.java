@@ -0,0 +1,121 @@
+package com.p2pchat.controller;
+
+import com.p2pchat.discovery.DiscoveredPeer;
+import com.p2pchat.discovery.RankedPeer;
+import com.p2pchat.service.DrainCoordinator;
+import com.p2pchat.service.FederationService;
+import com.p2pchat.service.PeerDiscoveryService;
+import com.p2pchat.service.PeerRegistry;
+import com.p2pchat.service.PresencePublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Bootstrap Controller - everything a client needs at login in one round trip
+ *
+ * Replaces POST /api/discovery/broadcast + GET /api/discovery/peers + waiting for one PEER_ONLINE
+ * frame per online peer: announces the client's peer info, and returns the ranked signaling
+ * servers, the online peer ids, the ICE servers and the presence version. The client sends the
+ * version back in /app/signal/peer-online and, if presence did not change in between, receives
+ * no PEER_ONLINE replay - STOMP only streams changes from then on.
+ */
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "*")
+public class BootstrapController {
+
+    private static final Logger log = LoggerFactory.getLogger(BootstrapController.class);
+
+    // Served to clients as RTCConfiguration.iceServers (empty entries are skipped)
+    @Value("${webrtc.stun.server:}")
+    private String stunServer;
+
+    @Value("${webrtc.stun.server2:}")
+    private String stunServer2;
+
+    private final PeerDiscoveryService discoveryService;
+    private final PeerRegistry peerRegistry;
+    private final FederationService federationService;
+    private final PresencePublisher presencePublisher;
+    private final DrainCoordinator drainCoordinator;
+
+    public BootstrapController(PeerDiscoveryService discoveryService, PeerRegistry peerRegistry,
+                               FederationService federationService, PresencePublisher presencePublisher,
+                               DrainCoordinator drainCoordinator) {
+        this.discoveryService = discoveryService;
+        this.peerRegistry = peerRegistry;
+        this.federationService = federationService;
+        this.presencePublisher = presencePublisher;
+        this.drainCoordinator = drainCoordinator;
+    }
+
+    /**
+     * Announce the client and return {nodeId, draining, federated, servers, peers, iceServers, presenceVersion}
+     * (federated: the servers forward signals to each other, one connection is enough)
+     */
+    @PostMapping("/bootstrap")
+    public ResponseEntity<Map<String, Object>> bootstrap(@RequestBody Map<String, String> request) {
+        String peerId = request.get("peerId");
+        String username = request.get("username");
+
+        if (peerId == null || username == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "peerId and username are required"));
+        }
+
+        discoveryService.broadcastPeerInfo(peerId, username);
+
+        // Version first: the peer sets read below are then at least as new as the version
+        String presenceVersion = presencePublisher.getVersion();
+        TreeSet<String> peers = new TreeSet<>(peerRegistry.getAllPeerIds());
+        peers.addAll(federationService.getRemotePeerIds());
+        peers.remove(peerId);
+
+        List<Map<String, Object>> servers = new ArrayList<>();
+        for (RankedPeer ranked : discoveryService.getRankedPeers()) {
+            DiscoveredPeer peer = ranked.peer();
+            Map<String, Object> server = new LinkedHashMap<>();
+            server.put("signalingUrl", peer.signalingUrl());
+            server.put("ip", peer.ip);
+            server.put("peerId", peer.peerId);
+            server.put("username", peer.username);
+            server.put("port", peer.port);
+            server.put("rttMs", ranked.rttMs());
+            server.put("load", ranked.load());
+            server.put("draining", ranked.draining());
+            servers.add(server);
+        }
+
+        List<Map<String, Object>> iceServers = new ArrayList<>();
+        for (String url : List.of(stunServer, stunServer2)) {
+            if (!url.isBlank()) {
+                iceServers.add(Map.of("urls", url));
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("nodeId", discoveryService.getLocalNodeId());
+        response.put("draining", drainCoordinator.isDraining());
+        response.put("federated", federationService.isActive());
+        response.put("servers", servers);
+        response.put("peers", peers);
+        response.put("iceServers", iceServers);
+        response.put("presenceVersion", presenceVersion);
+
+        log.info("🚀 Bootstrapped {} ({}): {} peers, {} servers, presence version {}",
+            username, peerId, peers.size(), servers.size(), presenceVersion);
+        return ResponseEntity.ok(response);
+    }
+}
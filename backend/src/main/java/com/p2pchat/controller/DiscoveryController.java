@@ -1,5 +1,7 @@
 package com.p2pchat.controller;
 
+import com.p2pchat.discovery.DiscoveredPeer;
+import com.p2pchat.discovery.RankedPeer;
 import com.p2pchat.service.PeerDiscoveryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,8 +10,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * REST Controller for Peer Discovery
@@ -26,28 +28,28 @@ public class DiscoveryController {
     private PeerDiscoveryService discoveryService;
     
     /**
-     * Get all discovered peers
-     * Returns map of IP -> {peerId, username, port, lastSeen}
+     * Get all discovered peers, best signaling server first
+     * Returns map of IP -> {peerId, username, port, lastSeen, rttMs, load, draining, rank}
      */
     @GetMapping("/peers")
     public ResponseEntity<Map<String, Map<String, Object>>> getDiscoveredPeers() {
-        var peers = discoveryService.getDiscoveredPeers();
-        
-        Map<String, Map<String, Object>> result = peers.entrySet().stream()
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                entry -> {
-                    PeerDiscoveryService.DiscoveredPeer peer = entry.getValue();
-                    Map<String, Object> peerInfo = new HashMap<>();
-                    peerInfo.put("ip", peer.ip);
-                    peerInfo.put("peerId", peer.peerId);
-                    peerInfo.put("username", peer.username);
-                    peerInfo.put("port", peer.port);
-                    peerInfo.put("lastSeen", peer.lastSeen);
-                    peerInfo.put("signalingUrl", "http://" + peer.ip + ":" + peer.port + "/ws/signaling");
-                    return peerInfo;
-                }
-            ));
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        int rank = 0;
+        for (RankedPeer ranked : discoveryService.getRankedPeers()) {
+            DiscoveredPeer peer = ranked.peer();
+            Map<String, Object> peerInfo = new HashMap<>();
+            peerInfo.put("ip", peer.ip);
+            peerInfo.put("peerId", peer.peerId);
+            peerInfo.put("username", peer.username);
+            peerInfo.put("port", peer.port);
+            peerInfo.put("lastSeen", peer.lastSeen);
+            peerInfo.put("signalingUrl", peer.signalingUrl());
+            peerInfo.put("rttMs", ranked.rttMs());
+            peerInfo.put("load", ranked.load());
+            peerInfo.put("draining", ranked.draining());
+            peerInfo.put("rank", ++rank);
+            result.put(peer.ip, peerInfo);
+        }
         
         return ResponseEntity.ok(result);
     }
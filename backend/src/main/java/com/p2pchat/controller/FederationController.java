@@ -0,0 +1,45 @@
+package com.p2pchat.controller;
+
+import com.p2pchat.dto.FederationMessage;
+import com.p2pchat.service.FederationLinkGuard;
+import com.p2pchat.service.FederationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Federation Controller - receives messages from neighbouring signaling nodes
+ */
+@RestController
+@CrossOrigin(origins = "*")
+public class FederationController {
+
+    private final FederationService federationService;
+
+    public FederationController(FederationService federationService) {
+        this.federationService = federationService;
+    }
+
+    /**
+     * Handle a message sent over a federation link dialed by another node
+     * (only reachable from authenticated /ws/federation sessions, see FederationLinkGuard)
+     */
+    @MessageMapping("/federation/message")
+    public void handleFederationMessage(@Payload FederationMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        federationService.handleMessage(message, headerAccessor.getSessionId(), FederationLinkGuard.nodeId(headerAccessor));
+    }
+
+    /**
+     * Federation status: local node id, open links, number of remote peers
+     */
+    @GetMapping("/api/federation/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(federationService.getStatus());
+    }
+}
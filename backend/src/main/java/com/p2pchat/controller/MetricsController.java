@@ -0,0 +1,110 @@
+package com.p2pchat.controller;
+
+import com.p2pchat.config.SharedFrameStompEncoder;
+import com.p2pchat.service.AdmissionController;
+import com.p2pchat.service.CallStateTable;
+import com.p2pchat.service.MessageRelayService;
+import com.p2pchat.service.SignalLanes;
+import com.p2pchat.service.SignalingCodecs;
+import com.p2pchat.service.StartupMilestones;
+import com.p2pchat.service.TypingCoalescer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for lightweight server metrics
+ */
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+
+    private final StartupMilestones startupMilestones;
+    private final TypingCoalescer typingCoalescer;
+    private final SharedFrameStompEncoder sharedFrameStompEncoder;
+    private final SignalLanes signalLanes;
+    private final AdmissionController admissionController;
+    private final CallStateTable callStateTable;
+    private final SignalingCodecs signalingCodecs;
+    private final MessageRelayService messageRelayService;
+
+    public MetricsController(StartupMilestones startupMilestones, TypingCoalescer typingCoalescer,
+                             SharedFrameStompEncoder sharedFrameStompEncoder, SignalLanes signalLanes,
+                             AdmissionController admissionController, CallStateTable callStateTable,
+                             SignalingCodecs signalingCodecs, MessageRelayService messageRelayService) {
+        this.startupMilestones = startupMilestones;
+        this.typingCoalescer = typingCoalescer;
+        this.sharedFrameStompEncoder = sharedFrameStompEncoder;
+        this.signalLanes = signalLanes;
+        this.admissionController = admissionController;
+        this.callStateTable = callStateTable;
+        this.signalingCodecs = signalingCodecs;
+        this.messageRelayService = messageRelayService;
+    }
+
+    /**
+     * Milliseconds from JVM start to the first signaling connection / discovery packet (-1 = not yet)
+     */
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Long>> getStartupMilestones() {
+        return ResponseEntity.ok(startupMilestones.snapshot());
+    }
+
+    /**
+     * Typing signals received vs forwarded after coalescing
+     */
+    @GetMapping("/typing")
+    public ResponseEntity<Map<String, Long>> getTypingStats() {
+        return ResponseEntity.ok(typingCoalescer.getStats());
+    }
+
+    /**
+     * Outbound MESSAGE frames built from a shared encoded body vs encoded from scratch
+     */
+    @GetMapping("/fanout")
+    public ResponseEntity<Map<String, Long>> getFanoutStats() {
+        return ResponseEntity.ok(sharedFrameStompEncoder.getStats());
+    }
+
+    /**
+     * Queue wait per priority lane (CONTROL / PRESENCE / TYPING / RELAY) on the inbound and outbound channels
+     */
+    @GetMapping("/lanes")
+    public ResponseEntity<Map<String, Object>> getLaneStats() {
+        return ResponseEntity.ok(signalLanes.getStats());
+    }
+
+    /**
+     * Admission control state: session limit, overload flag, rejected connections / registrations
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStats() {
+        return ResponseEntity.ok(admissionController.getStats());
+    }
+
+    /**
+     * Call table: calls per state, dropped stale signals, call-setup latency histograms
+     */
+    @GetMapping("/calls")
+    public ResponseEntity<Map<String, Object>> getCallStats() {
+        return ResponseEntity.ok(callStateTable.getStats());
+    }
+
+    /**
+     * Body codecs: CBOR sessions, transcoded / shared bodies, JSON vs CBOR bytes sent
+     */
+    @GetMapping("/codecs")
+    public ResponseEntity<Map<String, Object>> getCodecStats() {
+        return ResponseEntity.ok(signalingCodecs.getStats());
+    }
+
+    /**
+     * Message relay: relayed messages / batches, quota and buffer rejections, drops, relay delay
+     */
+    @GetMapping("/relay")
+    public ResponseEntity<Map<String, Object>> getRelayStats() {
+        return ResponseEntity.ok(messageRelayService.getStats());
+    }
+}
@@ -1,7 +1,15 @@
 package com.p2pchat.controller;
 
 import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.jfr.SignalRelayEvent;
+import com.p2pchat.service.AdmissionController;
+import com.p2pchat.service.CallStateTable;
+import com.p2pchat.service.DrainCoordinator;
+import com.p2pchat.service.FederationService;
+import com.p2pchat.service.MessageRelayService;
 import com.p2pchat.service.PeerRegistry;
+import com.p2pchat.service.PresencePublisher;
+import com.p2pchat.service.TypingCoalescer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -11,6 +19,8 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.util.Map;
+
 /**
  * Signaling Controller - Handles WebRTC signaling messages
  * No authentication, no database - just pure signaling
@@ -23,10 +33,28 @@ public class SignalingController {
     
     private final SimpMessagingTemplate messagingTemplate;
     private final PeerRegistry peerRegistry;
+    private final TypingCoalescer typingCoalescer;
+    private final FederationService federationService;
+    private final PresencePublisher presencePublisher;
+    private final AdmissionController admissionController;
+    private final CallStateTable callStateTable;
+    private final DrainCoordinator drainCoordinator;
+    private final MessageRelayService messageRelayService;
     
-    public SignalingController(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry) {
+    public SignalingController(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry,
+                               TypingCoalescer typingCoalescer, FederationService federationService,
+                               PresencePublisher presencePublisher, AdmissionController admissionController,
+                               CallStateTable callStateTable, DrainCoordinator drainCoordinator,
+                               MessageRelayService messageRelayService) {
         this.messagingTemplate = messagingTemplate;
         this.peerRegistry = peerRegistry;
+        this.typingCoalescer = typingCoalescer;
+        this.federationService = federationService;
+        this.presencePublisher = presencePublisher;
+        this.admissionController = admissionController;
+        this.callStateTable = callStateTable;
+        this.drainCoordinator = drainCoordinator;
+        this.messageRelayService = messageRelayService;
     }
 
     /**
@@ -39,18 +67,8 @@ public class SignalingController {
         log.info("📋 Message details: type={}, payload={}", message.getType(), message.getPayload());
         log.info("📋 Online peers: {}", peerRegistry.getAllPeerIds());
         
-        message.setType(SignalingMessage.SignalType.OFFER);
-        message.setTimestamp(System.currentTimeMillis());
-        
-        // Get target peer's session ID
-        String targetSessionId = peerRegistry.getSessionId(message.getTo());
-        log.info("🎯 Looking for peer: {}, found session: {}", message.getTo(), targetSessionId);
-        
-        if (targetSessionId != null) {
-            // Send to specific peer's topic
-            String destination = "/topic/peer/" + message.getTo();
-            messagingTemplate.convertAndSend(destination, message);
-            log.info("📤 Sent OFFER to peer {} via topic {}", message.getTo(), destination);
+        if (relayToPeer(message, SignalingMessage.SignalType.OFFER, headerAccessor)) {
+            log.info("📤 Sent OFFER to peer {} via topic {}", message.getTo(), "/topic/peer/" + message.getTo());
         } else {
             log.warn("⚠️ Target peer {} not found in online peers", message.getTo());
         }
@@ -60,20 +78,11 @@ public class SignalingController {
      * Handle WebRTC Answer
      */
     @MessageMapping("/signal/answer")
-    public void handleAnswer(@Payload SignalingMessage message) {
+    public void handleAnswer(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
         log.info("✅ Received ANSWER from {} to {}", message.getFrom(), message.getTo());
         
-        message.setType(SignalingMessage.SignalType.ANSWER);
-        message.setTimestamp(System.currentTimeMillis());
-        
-        // Get target peer's session ID
-        String targetSessionId = peerRegistry.getSessionId(message.getTo());
-        
-        if (targetSessionId != null) {
-            // Send to specific peer's topic
-            String destination = "/topic/peer/" + message.getTo();
-            messagingTemplate.convertAndSend(destination, message);
-            log.info("📤 Sent ANSWER to peer {} via topic {}", message.getTo(), destination);
+        if (relayToPeer(message, SignalingMessage.SignalType.ANSWER, headerAccessor)) {
+            log.info("📤 Sent ANSWER to peer {} via topic {}", message.getTo(), "/topic/peer/" + message.getTo());
         } else {
             log.warn("⚠️ Target peer {} not found in online peers", message.getTo());
         }
@@ -83,20 +92,11 @@ public class SignalingController {
      * Handle ICE Candidate
      */
     @MessageMapping("/signal/ice-candidate")
-    public void handleIceCandidate(@Payload SignalingMessage message) {
+    public void handleIceCandidate(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
         log.debug("🧊 Received ICE candidate from {} to {}", message.getFrom(), message.getTo());
         
-        message.setType(SignalingMessage.SignalType.ICE_CANDIDATE);
-        message.setTimestamp(System.currentTimeMillis());
-        
-        // Get target peer's session ID
-        String targetSessionId = peerRegistry.getSessionId(message.getTo());
-        
-        if (targetSessionId != null) {
-            // Send to specific peer's topic
-            String destination = "/topic/peer/" + message.getTo();
-            messagingTemplate.convertAndSend(destination, message);
-            log.debug("📤 Sent ICE candidate to peer {} via topic {}", message.getTo(), destination);
+        if (relayToPeer(message, SignalingMessage.SignalType.ICE_CANDIDATE, headerAccessor)) {
+            log.debug("📤 Sent ICE candidate to peer {} via topic {}", message.getTo(), "/topic/peer/" + message.getTo());
         } else {
             log.warn("⚠️ Target peer {} not found for ICE candidate", message.getTo());
         }
@@ -112,36 +112,58 @@ public class SignalingController {
         
         log.info("👤 Peer {} came online (session: {})", peerId, sessionId);
         
+        // A draining node takes no new peers: point them at another signaling server
+        if (!peerRegistry.isPeerOnline(peerId) && drainCoordinator.isDraining()) {
+            drainCoordinator.redirect(peerId);
+            log.info("🔀 Registration of {} redirected (draining)", peerId);
+            return;
+        }
+        
+        // Shed new registrations while established sessions are over their latency target
+        // (re-registering an already online peer is always allowed)
+        if (!peerRegistry.isPeerOnline(peerId) && !admissionController.tryAdmitRegistration()) {
+            long retryAfterMs = admissionController.retryAfterMs();
+            SignalingMessage error = new SignalingMessage();
+            error.setType(SignalingMessage.SignalType.ERROR);
+            error.setTo(peerId);
+            error.setPayload(Map.of("reason", "OVERLOADED", "retryAfterMs", retryAfterMs));
+            error.setTimestamp(System.currentTimeMillis());
+            messagingTemplate.convertAndSend("/topic/peer/" + peerId, error);
+            log.warn("🚦 Registration of {} rejected (overloaded), retry after {} ms", peerId, retryAfterMs);
+            return;
+        }
+        
         // Get list of currently online peers BEFORE registering new peer
-        var currentOnlinePeers = peerRegistry.getAllPeerIds();
+        // (including peers registered on federated nodes)
+        var currentOnlinePeers = new java.util.HashSet<>(peerRegistry.getAllPeerIds());
+        currentOnlinePeers.addAll(federationService.getRemotePeerIds());
         log.info("📋 Currently online peers: {}", currentOnlinePeers);
         
         // Register peer in central registry
         if (sessionId != null) {
             peerRegistry.registerPeer(peerId, sessionId);
+            federationService.localPeerOnline(peerId);
         }
         
         // Send list of existing online peers to the NEW peer
-        for (String existingPeerId : currentOnlinePeers) {
-            if (!existingPeerId.equals(peerId)) {
-                SignalingMessage existingPeerNotification = new SignalingMessage();
-                existingPeerNotification.setType(SignalingMessage.SignalType.PEER_ONLINE);
-                existingPeerNotification.setFrom(existingPeerId);
-                existingPeerNotification.setTimestamp(System.currentTimeMillis());
-                
-                String destination = "/topic/peer/" + peerId;
-                messagingTemplate.convertAndSend(destination, existingPeerNotification);
-                log.info("📤 Sent existing peer {} info to new peer {}", existingPeerId, peerId);
+        // (each existing peer's PEER_ONLINE body was serialized once when it came online),
+        // unless it bootstrapped with the current presence version and already has the list
+        if (message.getPayload() instanceof Map<?, ?> payload
+                && presencePublisher.getVersion().equals(payload.get("presenceVersion"))) {
+            log.info("📋 {} is up to date with presence version {}, skipping existing peers", peerId, payload.get("presenceVersion"));
+        } else {
+            String destination = "/topic/peer/" + peerId;
+            for (String existingPeerId : currentOnlinePeers) {
+                if (!existingPeerId.equals(peerId)) {
+                    presencePublisher.sendOnline(existingPeerId, destination);
+                    log.debug("📤 Sent existing peer {} info to new peer {}", existingPeerId, peerId);
+                }
             }
+            log.info("📤 Sent {} existing peers to new peer {}", currentOnlinePeers.size(), peerId);
         }
         
         // Broadcast NEW peer to all existing peers
-        SignalingMessage notification = new SignalingMessage();
-        notification.setType(SignalingMessage.SignalType.PEER_ONLINE);
-        notification.setFrom(peerId);
-        notification.setTimestamp(System.currentTimeMillis());
-        
-        messagingTemplate.convertAndSend("/topic/peers", notification);
+        presencePublisher.broadcastOnline(peerId);
         log.info("📢 Broadcasted PEER_ONLINE for {} to all peers", peerId);
     }
 
@@ -157,14 +179,11 @@ public class SignalingController {
         
         // Unregister peer from central registry
         peerRegistry.unregisterPeer(peerId);
+        federationService.localPeerOffline(peerId);
+        callStateTable.peerGone(peerId);
         
         // Broadcast to all peers
-        SignalingMessage notification = new SignalingMessage();
-        notification.setType(SignalingMessage.SignalType.PEER_OFFLINE);
-        notification.setFrom(peerId);
-        notification.setTimestamp(System.currentTimeMillis());
-        
-        messagingTemplate.convertAndSend("/topic/peers", notification);
+        presencePublisher.broadcastOffline(peerId);
         log.info("📢 Broadcasted PEER_OFFLINE for {}", peerId);
     }
 
@@ -172,20 +191,11 @@ public class SignalingController {
      * Handle call request
      */
     @MessageMapping("/signal/call-request")
-    public void handleCallRequest(@Payload SignalingMessage message) {
+    public void handleCallRequest(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
         log.info("📲 Call request from {} to {}", message.getFrom(), message.getTo());
         
-        message.setType(SignalingMessage.SignalType.CALL_REQUEST);
-        message.setTimestamp(System.currentTimeMillis());
-        
-        // Get target peer's session ID
-        String targetSessionId = peerRegistry.getSessionId(message.getTo());
-        
-        if (targetSessionId != null) {
-            // Send to specific peer's topic
-            String destination = "/topic/peer/" + message.getTo();
-            messagingTemplate.convertAndSend(destination, message);
-            log.info("📤 Sent CALL_REQUEST to peer {} via topic {}", message.getTo(), destination);
+        if (relayToPeer(message, SignalingMessage.SignalType.CALL_REQUEST, headerAccessor)) {
+            log.info("📤 Sent CALL_REQUEST to peer {} via topic {}", message.getTo(), "/topic/peer/" + message.getTo());
         } else {
             log.warn("⚠️ Target peer {} not found for call request", message.getTo());
         }
@@ -195,18 +205,41 @@ public class SignalingController {
      * Handle call accept
      */
     @MessageMapping("/signal/call-accept")
-    public void handleCallAccept(@Payload SignalingMessage message) {
+    public void handleCallAccept(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
         log.info("✅ Call accepted from {} to {}", message.getFrom(), message.getTo());
         
+        // message.getFrom() = người accept (Bob)
+        // message.getTo() = người nhận accept (Alice)
+        // Send to the initiator (getTo) - delivered even if the initiator is not in the registry
+        SignalRelayEvent event = new SignalRelayEvent();
+        event.begin();
+        
         message.setType(SignalingMessage.SignalType.CALL_ACCEPT);
         message.setTimestamp(System.currentTimeMillis());
         
-        // message.getFrom() = người accept (Bob)
-        // message.getTo() = người nhận accept (Alice)
-        // Send to the initiator (getTo)
         String destination = "/topic/peer/" + message.getTo();
-        messagingTemplate.convertAndSend(destination, message);
-        log.info("📤 Sent CALL_ACCEPT from {} to {} via topic {}", message.getFrom(), message.getTo(), destination);
+        long sendStart = System.nanoTime();
+        // STALE: caller already cancelled / went offline, HELD: may belong to a call not seen yet
+        CallStateTable.Verdict verdict = callStateTable.onSignal(message, () -> sendCallAccept(message));
+        String outcome = verdict == CallStateTable.Verdict.RELAY ? sendCallAccept(message) : verdict.name();
+        
+        commitRelayEvent(event, message, headerAccessor, 0, System.nanoTime() - sendStart, outcome);
+        if ("STALE".equals(outcome)) {
+            log.info("🗑️ Dropped CALL_ACCEPT from {} to {} - call already ended", message.getFrom(), message.getTo());
+        } else if ("HELD".equals(outcome)) {
+            log.info("⏸️ Held CALL_ACCEPT from {} to {} until the next call setup", message.getFrom(), message.getTo());
+        } else {
+            log.info("📤 Sent CALL_ACCEPT from {} to {} via topic {}", message.getFrom(), message.getTo(), destination);
+        }
+    }
+
+    private String sendCallAccept(SignalingMessage message) {
+        if (federationService.isRemotePeer(message.getTo()) && !peerRegistry.isPeerOnline(message.getTo())
+                && federationService.forward(message)) {
+            return "FORWARDED";
+        }
+        messagingTemplate.convertAndSend("/topic/peer/" + message.getTo(), message);
+        return "DELIVERED";
     }
 
     /**
@@ -218,6 +251,10 @@ public class SignalingController {
         
         message.setType(SignalingMessage.SignalType.CALL_REJECT);
         message.setTimestamp(System.currentTimeMillis());
+        if (!callStateTable.onSignal(message)) {
+            log.info("🗑️ Dropped CALL_REJECT from {} to {} - call already ended", message.getFrom(), message.getTo());
+            return;
+        }
         
         messagingTemplate.convertAndSendToUser(
             message.getTo(),
@@ -226,19 +263,137 @@ public class SignalingController {
         );
     }
 
+    /**
+     * Handle call end (hang up or cancel)
+     * Late ANSWER / ICE_CANDIDATE signals for the call are dropped from now on
+     */
+    @MessageMapping("/signal/call-end")
+    public void handleCallEnd(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        log.info("📴 Call ended from {} to {}", message.getFrom(), message.getTo());
+        
+        if (relayToPeer(message, SignalingMessage.SignalType.CALL_END, headerAccessor)) {
+            log.info("📤 Sent CALL_END to peer {} via topic {}", message.getTo(), "/topic/peer/" + message.getTo());
+        } else {
+            log.warn("⚠️ Target peer {} not found for call end", message.getTo());
+        }
+    }
+
     /**
      * Handle typing indicator
      */
     @MessageMapping("/signal/typing")
     public void handleTyping(@Payload SignalingMessage message) {
-        message.setType(SignalingMessage.SignalType.TYPING);
+        // Coalesced per (from, to): at most one state per interval, trailing "stopped" when idle
+        typingCoalescer.submit(message);
+    }
+
+    /**
+     * Handle chat message relayed through the server (no P2P data channel to the target)
+     * Queued on the MessageRelayService: batched per conversation, delivered from its own executor
+     */
+    @MessageMapping("/signal/message")
+    public void handleMessage(@Payload SignalingMessage message, SimpMessageHeaderAccessor headerAccessor) {
+        SignalRelayEvent event = new SignalRelayEvent();
+        event.begin();
+        
+        message.setType(SignalingMessage.SignalType.MESSAGE);
+        long queueStart = System.nanoTime();
+        MessageRelayService.Result result = messageRelayService.submit(message,
+            headerAccessor != null ? headerAccessor.getSessionId() : null, payloadSize(headerAccessor),
+            relaySeq(headerAccessor));
+        
+        commitRelayEvent(event, message, headerAccessor, 0, System.nanoTime() - queueStart, result.name());
+        if (result != MessageRelayService.Result.QUEUED) {
+            log.debug("⚠️ Relay of message from {} to {} refused: {}", message.getFrom(), message.getTo(), result);
+        }
+    }
+
+    /**
+     * Relay a signal to the target peer's topic if the peer is online here,
+     * or forward it to the federated node the peer is registered on
+     * Signals for calls that were already rejected / ended are dropped, or held briefly in case
+     * they belong to a new call whose OFFER has not arrived yet (CallStateTable)
+     * Emits a SignalRelayEvent (JFR) with lookup / send timings and the outcome
+     */
+    private boolean relayToPeer(SignalingMessage message, SignalingMessage.SignalType type,
+                                SimpMessageHeaderAccessor headerAccessor) {
+        SignalRelayEvent event = new SignalRelayEvent();
+        event.begin();
+        
+        message.setType(type);
         message.setTimestamp(System.currentTimeMillis());
         
-        messagingTemplate.convertAndSendToUser(
-            message.getTo(),
-            "/queue/signal",
-            message
-        );
+        // Get target peer's session ID
+        long lookupStart = System.nanoTime();
+        String targetSessionId = peerRegistry.getSessionId(message.getTo());
+        long lookupNanos = System.nanoTime() - lookupStart;
+        
+        long sendStart = System.nanoTime();
+        CallStateTable.Verdict verdict = callStateTable.onSignal(message,
+            () -> sendToPeer(message, peerRegistry.getSessionId(message.getTo())));
+        String outcome = verdict == CallStateTable.Verdict.RELAY ? sendToPeer(message, targetSessionId) : verdict.name();
+        long sendNanos = System.nanoTime() - sendStart;
+        
+        commitRelayEvent(event, message, headerAccessor, lookupNanos, sendNanos, outcome);
+        return "DELIVERED".equals(outcome) || "FORWARDED".equals(outcome) || "HELD".equals(outcome);
     }
-}
 
+    private String sendToPeer(SignalingMessage message, String targetSessionId) {
+        if (targetSessionId != null) {
+            // Send to specific peer's topic
+            messagingTemplate.convertAndSend("/topic/peer/" + message.getTo(), message);
+            return "DELIVERED";
+        }
+        if (federationService.forward(message)) {
+            // Target is registered on a federated node
+            return "FORWARDED";
+        }
+        return "DROPPED";
+    }
+    
+    private static void commitRelayEvent(SignalRelayEvent event, SignalingMessage message,
+                                         SimpMessageHeaderAccessor headerAccessor,
+                                         long lookupNanos, long sendNanos, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.signalType = message.getType().name();
+            event.from = message.getFrom();
+            event.to = message.getTo();
+            event.payloadSize = payloadSize(headerAccessor);
+            event.lookupNanos = lookupNanos;
+            event.sendNanos = sendNanos;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Sender's message sequence from the relay-seq header (-1 if absent or malformed)
+     */
+    private static long relaySeq(SimpMessageHeaderAccessor headerAccessor) {
+        String relaySeq = headerAccessor != null ? headerAccessor.getFirstNativeHeader("relay-seq") : null;
+        if (relaySeq == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(relaySeq);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Size of the inbound frame body from the STOMP content-length header (-1 if absent)
+     */
+    private static int payloadSize(SimpMessageHeaderAccessor headerAccessor) {
+        String contentLength = headerAccessor != null ? headerAccessor.getFirstNativeHeader("content-length") : null;
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(contentLength);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
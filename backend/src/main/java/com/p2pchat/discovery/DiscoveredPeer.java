@@ -0,0 +1,24 @@
+package com.p2pchat.discovery;
+
+/**
+ * Discovered peer information
+ */
+public class DiscoveredPeer {
+    public final String ip;
+    public final String peerId;
+    public final String username;
+    public final int port;
+    public final long lastSeen;
+    
+    public DiscoveredPeer(String ip, String peerId, String username, int port, long lastSeen) {
+        this.ip = ip;
+        this.peerId = peerId;
+        this.username = username;
+        this.port = port;
+        this.lastSeen = lastSeen;
+    }
+    
+    public String signalingUrl() {
+        return "http://" + ip + ":" + port + "/ws/signaling";
+    }
+}
@@ -0,0 +1,357 @@
+package com.p2pchat.discovery;
+
+import com.p2pchat.jfr.DiscoveryCleanupEvent;
+import com.p2pchat.jfr.DiscoveryPacketEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Discovery protocol state machine, independent of the network and of the clock
+ *
+ * Packets (all text):
+ *   P2P-CHAT-DISCOVERY:peerId:username:port:load:draining   periodic broadcast announcement
+ *   P2P-CHAT-PING:sentNanos                                  unicast RTT probe
+ *   P2P-CHAT-PONG:sentNanos:load:draining                    probe answer (echoes the timestamp)
+ *
+ * The owner drives it: {@link #onPacket} for every received packet, and {@link #announce},
+ * {@link #probe} and {@link #expire} on its own schedule. PeerDiscoveryService runs it over UDP
+ * in real time; the DiscoverySimulator tool runs hundreds of engines on virtual time.
+ */
+public class DiscoveryEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscoveryEngine.class);
+
+    private static final String DISCOVERY_MESSAGE_PREFIX = "P2P-CHAT-DISCOVERY:";
+    private static final String PING_PREFIX = "P2P-CHAT-PING:";
+    private static final String PONG_PREFIX = "P2P-CHAT-PONG:";
+
+    /**
+     * @param expiryMs     a peer not announced for this long is removed
+     * @param rttAlpha     EWMA weight of a new RTT sample (TCP SRTT uses 1/8)
+     * @param loadWeightMs ranking cost of one online peer on a node, in milliseconds of RTT
+     * @param probeFanout  nodes probed per {@link #probe} call, least recently probed first
+     */
+    public record Settings(long expiryMs, double rttAlpha, double loadWeightMs, int probeFanout) {
+    }
+
+    /**
+     * Membership changes (first announcement of a node, removal after expiry)
+     */
+    public interface MembershipListener {
+        void discovered(String address);
+
+        void expired(String address);
+    }
+
+    private final DiscoveryTransport transport;
+    private final int serverPort;
+    private final IntSupplier load;
+    private final Predicate<String> blocked;
+    private final LongSupplier nanoTime;
+    private final Settings settings;
+    private final long epochOffsetMillis;
+    private volatile MembershipListener membershipListener;
+
+    // Map of discovered peers: IP -> {peerId, username, lastSeen, port} + clock reading of the last announcement
+    private final Map<String, Member> discoveredPeers = new ConcurrentHashMap<>();
+    // Smoothed RTT / load hint per discovered IP (kept across announcement refreshes)
+    private final Map<String, LinkQuality> linkQuality = new ConcurrentHashMap<>();
+
+    // Local peer information
+    private volatile String localPeerId;
+    private volatile String localUsername;
+    private volatile boolean draining;
+
+    public DiscoveryEngine(DiscoveryTransport transport, int serverPort, IntSupplier load,
+                           Predicate<String> blocked, LongSupplier nanoTime, Settings settings) {
+        this.transport = transport;
+        this.serverPort = serverPort;
+        this.load = load;
+        this.blocked = blocked;
+        this.nanoTime = nanoTime;
+        this.settings = settings;
+        this.epochOffsetMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(nanoTime.getAsLong());
+    }
+
+    public void setMembershipListener(MembershipListener membershipListener) {
+        this.membershipListener = membershipListener;
+    }
+
+    /**
+     * Peer info to announce (nothing is announced before it is set)
+     */
+    public void setLocalPeer(String peerId, String username) {
+        this.localPeerId = peerId;
+        this.localUsername = username;
+    }
+
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    /**
+     * Handle a received packet
+     */
+    public void onPacket(String senderAddress, String message) {
+        // Ignore our own broadcasts
+        if (senderAddress.equals(transport.localAddress())) {
+            return;
+        }
+        if (message.startsWith(DISCOVERY_MESSAGE_PREFIX)) {
+            handleDiscoveryMessage(senderAddress, message);
+        } else if (message.startsWith(PING_PREFIX)) {
+            handlePing(senderAddress, message);
+        } else if (message.startsWith(PONG_PREFIX)) {
+            handlePong(senderAddress, message);
+        }
+    }
+
+    /**
+     * Broadcast our presence to the network
+     * @return false if there is nothing to announce yet
+     */
+    public boolean announce() throws IOException {
+        // Only broadcast if we have peer info
+        if (localPeerId == null || localUsername == null) {
+            return false;
+        }
+        transport.broadcast(DISCOVERY_MESSAGE_PREFIX + localPeerId + ":" + localUsername + ":" + serverPort
+            + ":" + load.getAsInt() + ":" + (draining ? "1" : "0"));
+        return true;
+    }
+
+    /**
+     * Send a PING to the probeFanout least recently probed nodes
+     * Never probed nodes go first, the rest take turns: per node, probe traffic stays bounded by
+     * probeFanout per call however many nodes are discovered
+     */
+    public void probe() {
+        long now = nanoTime.getAsLong();
+        List<Map.Entry<String, LinkQuality>> candidates = new ArrayList<>();
+        for (String ip : discoveredPeers.keySet()) {
+            if (!blocked.test(ip)) {
+                candidates.add(Map.entry(ip, linkQuality.computeIfAbsent(ip, k -> new LinkQuality())));
+            }
+        }
+        if (candidates.size() > settings.probeFanout()) {
+            candidates.sort(Comparator.comparing((Map.Entry<String, LinkQuality> c) -> c.getValue().probed)
+                .thenComparingLong(c -> c.getValue().probedNanos - now));
+            candidates = candidates.subList(0, Math.max(0, settings.probeFanout()));
+        }
+        for (Map.Entry<String, LinkQuality> candidate : candidates) {
+            candidate.getValue().probed = true;
+            candidate.getValue().probedNanos = now;
+            try {
+                transport.send(candidate.getKey(), PING_PREFIX + now);
+            } catch (IOException e) {
+                log.debug("Error probing {}", candidate.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Clean up stale peers (not announced within expiryMs)
+     */
+    public void expire() {
+        DiscoveryCleanupEvent event = new DiscoveryCleanupEvent();
+        event.begin();
+        int scanned = discoveredPeers.size();
+
+        long oldest = nanoTime.getAsLong() - TimeUnit.MILLISECONDS.toNanos(settings.expiryMs());
+        int removed = 0;
+        for (Map.Entry<String, Member> entry : discoveredPeers.entrySet()) {
+            String ip = entry.getKey();
+            if (entry.getValue().seenNanos() - oldest < 0 && discoveredPeers.remove(ip, entry.getValue())) {
+                linkQuality.remove(ip);
+                removed++;
+                log.debug("🗑️ Removing stale peer: {}", ip);
+                MembershipListener listener = membershipListener;
+                if (listener != null) {
+                    listener.expired(ip);
+                }
+            }
+        }
+
+        // Entries a concurrent probe() created for a node removed meanwhile
+        linkQuality.keySet().retainAll(discoveredPeers.keySet());
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanned = scanned;
+            event.removed = removed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Discovered peers (blocked IPs excluded)
+     */
+    public Map<String, DiscoveredPeer> getDiscoveredPeers() {
+        Map<String, DiscoveredPeer> filtered = new ConcurrentHashMap<>();
+        discoveredPeers.forEach((ip, member) -> {
+            if (!blocked.test(ip)) {
+                filtered.put(ip, member.peer());
+            }
+        });
+        return filtered;
+    }
+
+    public boolean knows(String address) {
+        return discoveredPeers.containsKey(address);
+    }
+
+    /**
+     * Discovered peers, best signaling server first
+     * Nodes with a measured RTT rank by RTT + load * loadWeightMs, unmeasured nodes follow by load,
+     * draining nodes come last
+     */
+    public List<RankedPeer> getRankedPeers() {
+        List<RankedPeer> ranked = new ArrayList<>();
+        getDiscoveredPeers().forEach((ip, peer) -> {
+            LinkQuality link = linkQuality.get(ip);
+            double srttNanos = link != null ? link.srttNanos : -1;
+            int peerLoad = link != null ? link.load : -1;
+            Double rttMs = srttNanos >= 0 ? srttNanos / 1_000_000.0 : null;
+            boolean peerDraining = link != null && link.draining;
+            double score = rttMs != null ? rttMs + Math.max(0, peerLoad) * settings.loadWeightMs() : Double.POSITIVE_INFINITY;
+            ranked.add(new RankedPeer(peer, rttMs, peerLoad, peerDraining, score));
+        });
+        ranked.sort(Comparator.comparing(RankedPeer::draining)
+            .thenComparingDouble(RankedPeer::score)
+            .thenComparingInt(RankedPeer::load)
+            .thenComparing(r -> r.peer().ip));
+        return ranked;
+    }
+
+    /**
+     * Handle received discovery message
+     * Format: P2P-CHAT-DISCOVERY:peerId:username:port[:load[:draining]]
+     */
+    private void handleDiscoveryMessage(String ip, String message) {
+        DiscoveryPacketEvent event = new DiscoveryPacketEvent();
+        event.begin();
+        String outcome = "MALFORMED";
+
+        // Check if IP is blocked
+        if (blocked.test(ip)) {
+            log.debug("🚫 Ignoring blocked IP: {}", ip);
+            commitPacketEvent(event, ip, message, "BLOCKED");
+            return;
+        }
+
+        try {
+            String data = message.substring(DISCOVERY_MESSAGE_PREFIX.length());
+            String[] parts = data.split(":");
+
+            if (parts.length >= 3) {
+                String peerId = parts[0];
+                String username = parts[1];
+                int port = Integer.parseInt(parts[2]);
+
+                long now = nanoTime.getAsLong();
+                DiscoveredPeer peer = new DiscoveredPeer(ip, peerId, username, port,
+                    epochOffsetMillis + TimeUnit.NANOSECONDS.toMillis(now));
+                if (parts.length >= 4) {
+                    LinkQuality link = linkQuality.computeIfAbsent(ip, k -> new LinkQuality());
+                    link.load = Integer.parseInt(parts[3]);
+                    link.draining = parts.length >= 5 && "1".equals(parts[4]);
+                }
+                boolean isNew = discoveredPeers.put(ip, new Member(peer, now)) == null;
+                outcome = isNew ? "NEW_PEER" : "REFRESH";
+
+                log.debug("📡 Discovered peer: {} ({}) at {}:{}", username, peerId, ip, port);
+                MembershipListener listener = membershipListener;
+                if (isNew && listener != null) {
+                    listener.discovered(ip);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to parse discovery message from {}: {}", ip, message, e);
+        }
+        commitPacketEvent(event, ip, message, outcome);
+    }
+
+    /**
+     * Answer a probe: echo the sender's timestamp and add our load hint and draining flag
+     */
+    private void handlePing(String ip, String message) {
+        DiscoveryPacketEvent event = new DiscoveryPacketEvent();
+        event.begin();
+        if (blocked.test(ip)) {
+            commitPacketEvent(event, ip, message, "BLOCKED");
+            return;
+        }
+        try {
+            String sentNanos = message.substring(PING_PREFIX.length());
+            transport.send(ip, PONG_PREFIX + sentNanos + ":" + load.getAsInt() + ":" + (draining ? "1" : "0"));
+            commitPacketEvent(event, ip, message, "PING");
+        } catch (IOException e) {
+            log.debug("Error answering probe from {}", ip, e);
+            commitPacketEvent(event, ip, message, "MALFORMED");
+        }
+    }
+
+    /**
+     * Fold a probe answer into the smoothed RTT of the sender
+     */
+    private void handlePong(String ip, String message) {
+        DiscoveryPacketEvent event = new DiscoveryPacketEvent();
+        event.begin();
+        String outcome = "MALFORMED";
+        try {
+            String[] parts = message.substring(PONG_PREFIX.length()).split(":");
+            long rttNanos = nanoTime.getAsLong() - Long.parseLong(parts[0]);
+            if (parts.length >= 2 && rttNanos >= 0 && discoveredPeers.containsKey(ip)) {
+                LinkQuality link = linkQuality.computeIfAbsent(ip, k -> new LinkQuality());
+                link.sample(rttNanos, settings.rttAlpha());
+                link.load = Integer.parseInt(parts[1]);
+                link.draining = parts.length >= 3 && "1".equals(parts[2]);
+                outcome = "PONG";
+            }
+        } catch (RuntimeException e) {
+            log.debug("Failed to parse probe answer from {}: {}", ip, message);
+        }
+        commitPacketEvent(event, ip, message, outcome);
+    }
+
+    private static void commitPacketEvent(DiscoveryPacketEvent event, String ip, String message, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.senderIp = ip;
+            event.size = message.length();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private record Member(DiscoveredPeer peer, long seenNanos) {
+    }
+
+    /**
+     * Smoothed probe RTT and last load hint of a discovered node
+     */
+    private static final class LinkQuality {
+        volatile double srttNanos = -1;
+        volatile int load = -1;
+        volatile boolean draining;
+        // Only the probing thread writes these
+        volatile boolean probed;
+        volatile long probedNanos;
+
+        // Only the receiving thread samples
+        void sample(long rttNanos, double alpha) {
+            srttNanos = srttNanos < 0 ? rttNanos : srttNanos + alpha * (rttNanos - srttNanos);
+        }
+    }
+}
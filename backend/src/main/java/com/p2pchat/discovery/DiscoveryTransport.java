@@ -0,0 +1,38 @@
+package com.p2pchat.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Packet transport of the discovery protocol
+ *
+ * Addresses are opaque node addresses (the IP for UDP). Implementations: UDP broadcast on the
+ * LAN ({@link UdpDiscoveryTransport}) and the in-memory network of the DiscoverySimulator tool.
+ */
+public interface DiscoveryTransport extends Closeable {
+
+    @FunctionalInterface
+    interface Receiver {
+        void received(String senderAddress, String message);
+    }
+
+    /**
+     * Start delivering incoming packets to the receiver
+     */
+    void start(Receiver receiver) throws IOException;
+
+    /**
+     * Send to every node on the network
+     */
+    void broadcast(String message) throws IOException;
+
+    /**
+     * Send to one node
+     */
+    void send(String address, String message) throws IOException;
+
+    /**
+     * Address other nodes see as the sender of our packets
+     */
+    String localAddress();
+}
@@ -0,0 +1,8 @@
+package com.p2pchat.discovery;
+
+/**
+ * Discovered peer with its smoothed RTT (null until the first PONG), load hint (-1 = unknown),
+ * draining flag and ranking score (lower is better)
+ */
+public record RankedPeer(DiscoveredPeer peer, Double rttMs, int load, boolean draining, double score) {
+}
@@ -0,0 +1,112 @@
+package com.p2pchat.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UDP transport: broadcasts to 255.255.255.255 and the local /24 subnet, unicasts to ip:port
+ * Every node listens on the same discovery port.
+ */
+public class UdpDiscoveryTransport implements DiscoveryTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(UdpDiscoveryTransport.class);
+
+    private final int port;
+    private final String localIP;
+
+    private DatagramSocket socket;
+    private volatile boolean running;
+
+    public UdpDiscoveryTransport(int port, String localIP) {
+        this.port = port;
+        this.localIP = localIP;
+    }
+
+    @Override
+    public void start(Receiver receiver) throws IOException {
+        socket = new DatagramSocket(port);
+        socket.setBroadcast(true);
+        socket.setReuseAddress(true);
+        running = true;
+
+        Thread listener = new Thread(() -> listen(receiver), "discovery-udp");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Listen for UDP broadcast messages from other peers
+     */
+    private void listen(Receiver receiver) {
+        byte[] buffer = new byte[1024];
+
+        while (running) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+
+                String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                receiver.received(packet.getAddress().getHostAddress(), message);
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Error receiving UDP broadcast", e);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Error handling discovery packet", e);
+            }
+        }
+    }
+
+    @Override
+    public void broadcast(String message) throws IOException {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+
+        // Broadcast to all interfaces
+        DatagramPacket packet = new DatagramPacket(data, data.length, InetAddress.getByName("255.255.255.255"), port);
+        socket.send(packet);
+
+        // Also try subnet broadcast
+        String subnet = getSubnet(localIP);
+        if (subnet != null) {
+            packet.setAddress(InetAddress.getByName(subnet + ".255"));
+            socket.send(packet);
+        }
+    }
+
+    @Override
+    public void send(String address, String message) throws IOException {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        socket.send(new DatagramPacket(data, data.length, InetAddress.getByName(address), port));
+    }
+
+    @Override
+    public String localAddress() {
+        return localIP;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (socket != null && !socket.isClosed()) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Get subnet from IP (e.g., 192.168.1.100 -> 192.168.1)
+     */
+    private static String getSubnet(String ip) {
+        if (ip == null) return null;
+        int lastDot = ip.lastIndexOf('.');
+        if (lastDot > 0) {
+            return ip.substring(0, lastDot);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.p2pchat.dto;
+
+import java.util.List;
+
+/**
+ * Message exchanged over a server-to-server federation link
+ */
+public class FederationMessage {
+
+    private Kind kind;
+    private String nodeId;        // Sending node (ip:port)
+    private List<String> peerIds; // HELLO / SYNC: all local peers, REGISTER / UNREGISTER: one peer
+    private SignalingMessage signal; // FORWARD: signal for a peer registered on the receiving node
+
+    public FederationMessage() {}
+
+    public FederationMessage(Kind kind, String nodeId, List<String> peerIds, SignalingMessage signal) {
+        this.kind = kind;
+        this.nodeId = nodeId;
+        this.peerIds = peerIds;
+        this.signal = signal;
+    }
+
+    // Getters and Setters
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public List<String> getPeerIds() { return peerIds; }
+    public void setPeerIds(List<String> peerIds) { this.peerIds = peerIds; }
+
+    public SignalingMessage getSignal() { return signal; }
+    public void setSignal(SignalingMessage signal) { this.signal = signal; }
+
+    public enum Kind {
+        HELLO,       // Link opened by the dialing node, carries its full peer list (expects SYNC back)
+        SYNC,        // Full peer list of the sending node
+        REGISTER,    // Peer came online on the sending node
+        UNREGISTER,  // Peer went offline on the sending node
+        FORWARD      // Signal to deliver to a peer registered on the receiving node
+    }
+}
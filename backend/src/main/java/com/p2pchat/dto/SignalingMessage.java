@@ -60,6 +60,9 @@ public class SignalingMessage {
         GROUP_MEMBER_LEFT,    // Member left group
         GROUP_UPDATED,        // Group info updated
         
+        // Server Management
+        REDIRECT,        // Server is draining, reconnect to one of the listed servers
+        
         // Error
         ERROR
     }
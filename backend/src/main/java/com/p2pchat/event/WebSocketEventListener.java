@@ -1,11 +1,14 @@
 package com.p2pchat.event;
 
+import com.p2pchat.service.CallStateTable;
+import com.p2pchat.service.FederationService;
 import com.p2pchat.service.PeerRegistry;
+import com.p2pchat.service.PresencePublisher;
+import com.p2pchat.service.StartupMilestones;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
@@ -19,16 +22,25 @@ public class WebSocketEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(WebSocketEventListener.class);
     
-    private final SimpMessagingTemplate messagingTemplate;
+    private final PresencePublisher presencePublisher;
     private final PeerRegistry peerRegistry;
+    private final StartupMilestones startupMilestones;
+    private final FederationService federationService;
+    private final CallStateTable callStateTable;
     
-    public WebSocketEventListener(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry) {
-        this.messagingTemplate = messagingTemplate;
+    public WebSocketEventListener(PresencePublisher presencePublisher, PeerRegistry peerRegistry,
+                                  StartupMilestones startupMilestones, FederationService federationService,
+                                  CallStateTable callStateTable) {
+        this.presencePublisher = presencePublisher;
         this.peerRegistry = peerRegistry;
+        this.startupMilestones = startupMilestones;
+        this.federationService = federationService;
+        this.callStateTable = callStateTable;
     }
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
+        startupMilestones.signalingConnected();
         log.info("🔌 New WebSocket connection established: {}", event.getMessage().getHeaders().get("simpSessionId"));
     }
 
@@ -39,19 +51,19 @@ public class WebSocketEventListener {
         
         log.info("🔌 WebSocket session disconnected: {}", sessionId);
         
+        // Drop the federation link if this was a neighbouring signaling node
+        federationService.sessionClosed(sessionId);
+        
         // Find peerId associated with this session and clean up
         String peerId = peerRegistry.unregisterBySession(sessionId);
         
         if (peerId != null) {
             log.info("👋 Cleaning up peer {} from session {}", peerId, sessionId);
+            federationService.localPeerOffline(peerId);
+            callStateTable.peerGone(peerId);
             
             // Broadcast peer offline to all connected peers
-            var notification = new com.p2pchat.dto.SignalingMessage();
-            notification.setType(com.p2pchat.dto.SignalingMessage.SignalType.PEER_OFFLINE);
-            notification.setFrom(peerId);
-            notification.setTimestamp(System.currentTimeMillis());
-            
-            messagingTemplate.convertAndSend("/topic/peers", notification);
+            presencePublisher.broadcastOffline(peerId);
             log.info("📤 Broadcasted PEER_OFFLINE for {}", peerId);
         } else {
             log.warn("⚠️ No peerId found for session {} - peer may have already disconnected", sessionId);
@@ -0,0 +1,25 @@
+package com.p2pchat.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for one stale-peer cleanup pass of PeerDiscoveryService
+ */
+@Name("com.p2pchat.DiscoveryCleanup")
+@Label("Discovery Cleanup")
+@Category({"P2P Chat", "Discovery"})
+@Threshold("0 ms")
+@StackTrace(false)
+public class DiscoveryCleanupEvent extends Event {
+
+    @Label("Peers Scanned")
+    public int scanned;
+
+    @Label("Peers Removed")
+    public int removed;
+}
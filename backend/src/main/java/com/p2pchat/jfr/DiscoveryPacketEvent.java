@@ -0,0 +1,30 @@
+package com.p2pchat.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for one UDP discovery packet handled by PeerDiscoveryService
+ */
+@Name("com.p2pchat.DiscoveryPacket")
+@Label("Discovery Packet")
+@Category({"P2P Chat", "Discovery"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class DiscoveryPacketEvent extends Event {
+
+    @Label("Sender IP")
+    public String senderIp;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,28 @@
+package com.p2pchat.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for PeerRegistry register / unregister operations
+ */
+@Name("com.p2pchat.PeerRegistry")
+@Label("Peer Registry Update")
+@Category({"P2P Chat", "Registry"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class PeerRegistryEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Peer Id")
+    public String peerId;
+
+    @Label("Online Peers")
+    public int onlineCount;
+}
@@ -0,0 +1,49 @@
+package com.p2pchat.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one signal relayed by SignalingController
+ */
+@Name("com.p2pchat.SignalRelay")
+@Label("Signal Relay")
+@Category({"P2P Chat", "Signaling"})
+@Description("A signaling message relayed to a peer topic")
+@Threshold("1 ms")
+@StackTrace(false)
+public class SignalRelayEvent extends Event {
+
+    @Label("Signal Type")
+    public String signalType;
+
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+
+    @Label("Payload Size")
+    @Description("STOMP content-length of the inbound frame, -1 if unknown")
+    @DataAmount
+    public int payloadSize;
+
+    @Label("Lookup Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lookupNanos;
+
+    @Label("Send Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long sendNanos;
+
+    @Label("Outcome")
+    @Description("DELIVERED, FORWARDED (to a federated node) or DROPPED (target not online) or STALE (call already rejected / ended) or HELD (hit an ended call, relayed if a new call starts within the grace period); relayed MESSAGE: QUEUED, QUOTA_EXCEEDED, TOO_MANY_CONVERSATIONS, BUFFER_FULL or REJECTED")
+    public String outcome;
+}
@@ -0,0 +1,204 @@
+package com.p2pchat.service;
+
+import com.p2pchat.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive admission control (AIMD) for new connections and peer registrations
+ *
+ * Relay latency of established sessions (CONTROL-lane queue wait, see SignalLanes) is
+ * collected per window. When the window p99 exceeds the target the session limit is cut
+ * multiplicatively and the server reports itself overloaded; while latency stays under target
+ * and the limit is nearly used up, it grows additively. New handshakes are rejected above the
+ * limit and new registrations while overloaded, with a jittered retry-after hint so rejected
+ * clients do not all come back at once.
+ */
+@Service
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    @Value("${signaling.admission.enabled:true}")
+    private boolean enabled;
+
+    // Relay latency SLO of established sessions (window p99)
+    @Value("${signaling.admission.target-latency-ms:50}")
+    private long targetLatencyMs;
+
+    @Value("${signaling.admission.window-ms:1000}")
+    private long windowMs;
+
+    // Windows with fewer samples (idle server, JIT warm-up) do not move the limit
+    @Value("${signaling.admission.min-samples:50}")
+    private int minSamples;
+
+    @Value("${signaling.admission.min-limit:50}")
+    private int minLimit;
+
+    @Value("${signaling.admission.max-limit:20000}")
+    private int maxLimit;
+
+    @Value("${signaling.admission.increase-step:50}")
+    private int increaseStep;
+
+    @Value("${signaling.admission.decrease-factor:0.8}")
+    private double decreaseFactor;
+
+    // Base retry-after hint; the actual hint is scaled by overload and randomized up to 2x
+    @Value("${signaling.admission.retry-after-ms:2000}")
+    private long retryAfterMs;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicReference<LatencyHistogram> window = new AtomicReference<>(new LatencyHistogram());
+
+    private volatile int limit;
+    private volatile boolean overloaded;
+    private volatile boolean draining;
+    private volatile long lastP99Nanos;
+
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder rejectedRegistrations = new LongAdder();
+
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        limit = maxLimit;
+        if (!enabled) {
+            log.info("🚦 Admission control disabled");
+            return;
+        }
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "admission-control");
+            t.setDaemon(true);
+            return t;
+        });
+        executorService.scheduleAtFixedRate(this::adjust, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        log.info("🚦 Admission control enabled (target p99 {} ms, limit {}..{})", targetLatencyMs, minLimit, maxLimit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Relay latency sample from an established session
+     */
+    public void recordLatency(long nanos) {
+        window.get().record(nanos);
+    }
+
+    /**
+     * Whether a new WebSocket / SockJS session may be opened
+     */
+    public boolean tryAdmitConnection() {
+        if (draining) {
+            rejectedConnections.increment();
+            return false;
+        }
+        if (!enabled || activeSessions.get() < limit) {
+            return true;
+        }
+        rejectedConnections.increment();
+        return false;
+    }
+
+    /**
+     * Whether a new peer registration (peer-online) may be accepted
+     */
+    public boolean tryAdmitRegistration() {
+        if (!enabled || !overloaded) {
+            return true;
+        }
+        rejectedRegistrations.increment();
+        return false;
+    }
+
+    /**
+     * Refuse every new handshake from now on (the node is draining, see DrainCoordinator)
+     */
+    public void startDraining() {
+        draining = true;
+    }
+
+    public void sessionOpened() {
+        activeSessions.incrementAndGet();
+    }
+
+    public void sessionClosed() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * Retry-after hint for a rejected client: grows with the overload, randomized to spread retries
+     */
+    public long retryAfterMs() {
+        double severity = Math.max(1.0, (double) lastP99Nanos / TimeUnit.MILLISECONDS.toNanos(targetLatencyMs));
+        long base = (long) (retryAfterMs * Math.min(severity, 8.0));
+        return base + ThreadLocalRandom.current().nextLong(base + 1);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("overloaded", overloaded);
+        stats.put("draining", draining);
+        stats.put("limit", limit);
+        stats.put("activeSessions", activeSessions.get());
+        stats.put("lastWindowP99Us", lastP99Nanos / 1000.0);
+        stats.put("rejectedConnections", rejectedConnections.sum());
+        stats.put("rejectedRegistrations", rejectedRegistrations.sum());
+        return stats;
+    }
+
+    /**
+     * End of window: AIMD step on the session limit
+     */
+    private void adjust() {
+        LatencyHistogram samples = window.getAndSet(new LatencyHistogram());
+        if (samples.count() < minSamples) {
+            overloaded = false;
+            return;
+        }
+        long p99 = samples.percentile(0.99);
+        lastP99Nanos = p99;
+        int active = activeSessions.get();
+
+        if (p99 > TimeUnit.MILLISECONDS.toNanos(targetLatencyMs)) {
+            // Multiplicative decrease from what is actually in use, not from an unused ceiling
+            int newLimit = Math.max(minLimit, (int) (Math.min(limit, active) * decreaseFactor));
+            if (!overloaded || newLimit != limit) {
+                log.warn("🚦 Overloaded: relay p99 {} ms > {} ms, session limit {} -> {} ({} active)",
+                    p99 / 1_000_000, targetLatencyMs, limit, newLimit, active);
+            }
+            limit = newLimit;
+            overloaded = true;
+        } else {
+            if (overloaded) {
+                log.info("🚦 Recovered: relay p99 {} ms, session limit {} ({} active)", p99 / 1_000_000, limit, active);
+            }
+            overloaded = false;
+            if (active >= limit * 0.9) {
+                limit = Math.min(maxLimit, limit + increaseStep);
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Call State Table - In-memory state of calls being set up between two peers
+ *
+ * One entry per peer pair (either direction), driven by the relayed CALL_* / OFFER / ANSWER /
+ * ICE_CANDIDATE signals. Rejected and ended calls stay as short-lived tombstones so late ANSWER
+ * and trickled ICE_CANDIDATE signals (and a CALL_REJECT racing the caller's CALL_END) are dropped
+ * instead of relayed; a new OFFER or CALL_REQUEST starts a fresh call. Inbound frames are not
+ * ordered, so a new call's first ANSWER / ICE_CANDIDATE can overtake its OFFER: signals hitting a
+ * tombstone are held for a short grace period and relayed if a new call between the pair started
+ * meanwhile, dropped otherwise. Setup latencies (request -> accept, offer -> answer, first signal
+ * -> last candidate) are recorded per node.
+ */
+@Service
+public class CallStateTable {
+
+    private static final Logger log = LoggerFactory.getLogger(CallStateTable.class);
+
+    public enum State {
+        REQUESTED,    // CALL_REQUEST relayed
+        ACCEPTED,     // CALL_ACCEPT relayed
+        NEGOTIATING,  // OFFER relayed
+        ANSWERED,     // ANSWER relayed, candidates may still trickle
+        REJECTED,     // tombstone
+        ENDED;        // tombstone (CALL_END, or a peer went offline)
+
+        boolean isTerminal() {
+            return this == REJECTED || this == ENDED;
+        }
+    }
+
+    public enum Verdict {
+        RELAY,
+        HELD,   // hit a tombstone, re-checked after the grace period
+        STALE
+    }
+
+    // Signals held per tombstone at most, further ones are dropped right away
+    private static final int MAX_HELD_PER_CALL = 32;
+
+    // Calls with no signal for this long leave the table (established calls stop signaling)
+    @Value("${signaling.calls.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    // How long a rejected / ended call keeps dropping late signals
+    @Value("${signaling.calls.tombstone-ttl-ms:30000}")
+    private long tombstoneTtlMs;
+
+    // How long a signal hitting a tombstone waits for the OFFER / CALL_REQUEST of a new call
+    @Value("${signaling.calls.early-signal-grace-ms:1000}")
+    private long earlySignalGraceMs;
+
+    // "peerA|peerB" (sorted) -> call
+    private final Map<String, Call> calls = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram requestToAccept = new LatencyHistogram();
+    private final LatencyHistogram offerToAnswer = new LatencyHistogram();
+    private final LatencyHistogram setupToLastCandidate = new LatencyHistogram();
+    private final Map<SignalingMessage.SignalType, LongAdder> staleDropped =
+        new EnumMap<>(SignalingMessage.SignalType.class);
+    private final LongAdder heldReleased = new LongAdder();
+
+    private final LongSupplier nanoTime;
+    private ScheduledExecutorService executorService;
+
+    public CallStateTable() {
+        this(System::nanoTime, null);
+    }
+
+    /**
+     * @param executorService runs the sweep and held-signal rechecks (null: own daemon thread, created on init)
+     */
+    CallStateTable(LongSupplier nanoTime, ScheduledExecutorService executorService) {
+        this.nanoTime = nanoTime;
+        this.executorService = executorService;
+        for (SignalingMessage.SignalType type : SignalingMessage.SignalType.values()) {
+            staleDropped.put(type, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executorService == null) {
+            executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "call-state-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        long tick = Math.max(1000, Math.min(idleTimeoutMs, tombstoneTtlMs) / 4);
+        executorService.scheduleAtFixedRate(this::sweep, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Apply a signal about to be relayed from -> to (signals hitting a tombstone are dropped)
+     * @return false if the signal belongs to a rejected / ended call and should be dropped
+     */
+    public boolean onSignal(SignalingMessage message) {
+        return onSignal(message, null) == Verdict.RELAY;
+    }
+
+    /**
+     * Apply a signal about to be relayed from -> to
+     * @param deferredRelay relays the signal later if it was held (null: drop instead of holding)
+     * @return RELAY to relay now, HELD if deferredRelay runs once a new call shows up, STALE to drop
+     */
+    public Verdict onSignal(SignalingMessage message, Runnable deferredRelay) {
+        if (message.getFrom() == null || message.getTo() == null || message.getType() == null) {
+            return Verdict.RELAY;
+        }
+        SignalingMessage.SignalType type = message.getType();
+        long now = nanoTime.getAsLong();
+        String callKey = key(message.getFrom(), message.getTo());
+        Verdict[] verdict = {Verdict.RELAY};
+        Call[] tombstone = {null};
+
+        calls.compute(callKey, (key, call) -> {
+            switch (type) {
+                case CALL_REQUEST -> {
+                    finish(call);
+                    return new Call(message.getFrom(), message.getTo(), State.REQUESTED, now);
+                }
+                case OFFER -> {
+                    if (call == null || call.state.isTerminal()) {
+                        finish(call);
+                        call = new Call(message.getFrom(), message.getTo(), State.NEGOTIATING, now);
+                    }
+                    // Offer after request/accept, or a renegotiation of an answered call
+                    call.state = State.NEGOTIATING;
+                    call.offerAt = now;
+                }
+                case CALL_ACCEPT, ANSWER, ICE_CANDIDATE -> {
+                    if (call == null) {
+                        return null; // not seen by this node (e.g. set up before a restart), relay as is
+                    }
+                    if (call.state.isTerminal()) {
+                        if (deferredRelay != null && call.held < MAX_HELD_PER_CALL) {
+                            call.held++;
+                            tombstone[0] = call;
+                            verdict[0] = Verdict.HELD;
+                        } else {
+                            verdict[0] = Verdict.STALE;
+                        }
+                        return call;
+                    }
+                    advance(call, type, now);
+                }
+                case CALL_REJECT, CALL_END -> {
+                    if (type == SignalingMessage.SignalType.CALL_REJECT && call != null && call.state.isTerminal()) {
+                        verdict[0] = Verdict.STALE; // caller cancelled first, or a duplicate reject
+                        return call;
+                    }
+                    if (call == null) {
+                        call = new Call(message.getTo(), message.getFrom(), State.REQUESTED, now);
+                    }
+                    finish(call);
+                    call.state = type == SignalingMessage.SignalType.CALL_REJECT ? State.REJECTED : State.ENDED;
+                }
+                default -> {
+                    return call;
+                }
+            }
+            call.lastActivity = now;
+            return call;
+        });
+
+        if (verdict[0] == Verdict.HELD) {
+            log.debug("⏸️ Holding {} from {} to {} - call ended, waiting for a new one", type, message.getFrom(), message.getTo());
+            executorService.schedule(() -> recheck(callKey, tombstone[0], message, deferredRelay),
+                earlySignalGraceMs, TimeUnit.MILLISECONDS);
+        } else if (verdict[0] == Verdict.STALE) {
+            dropStale(message);
+        }
+        return verdict[0];
+    }
+
+    /**
+     * Grace period of a held signal is over: relay it if a new call replaced the tombstone
+     */
+    private void recheck(String callKey, Call tombstone, SignalingMessage message, Runnable deferredRelay) {
+        long now = nanoTime.getAsLong();
+        boolean[] relay = {false};
+        calls.computeIfPresent(callKey, (key, call) -> {
+            if (call == tombstone) {
+                call.held--;
+            } else if (!call.state.isTerminal()) {
+                advance(call, message.getType(), now);
+                call.lastActivity = now;
+                relay[0] = true;
+            }
+            return call;
+        });
+
+        if (!relay[0]) {
+            dropStale(message);
+            return;
+        }
+        heldReleased.increment();
+        log.debug("▶️ Relaying held {} from {} to {} - new call started", message.getType(), message.getFrom(), message.getTo());
+        try {
+            deferredRelay.run();
+        } catch (Exception e) {
+            log.error("Error relaying held {} from {} to {}", message.getType(), message.getFrom(), message.getTo(), e);
+        }
+    }
+
+    /**
+     * CALL_ACCEPT / ANSWER / ICE_CANDIDATE of a live call (caller holds the entry)
+     */
+    private void advance(Call call, SignalingMessage.SignalType type, long now) {
+        if (type == SignalingMessage.SignalType.CALL_ACCEPT && call.state == State.REQUESTED) {
+            call.state = State.ACCEPTED;
+            requestToAccept.record(now - call.startedAt);
+        } else if (type == SignalingMessage.SignalType.ANSWER && call.state == State.NEGOTIATING) {
+            call.state = State.ANSWERED;
+            offerToAnswer.record(now - call.offerAt);
+        } else if (type == SignalingMessage.SignalType.ICE_CANDIDATE) {
+            call.lastCandidateAt = now;
+        }
+    }
+
+    private void dropStale(SignalingMessage message) {
+        staleDropped.get(message.getType()).increment();
+        log.debug("🗑️ Dropped stale {} from {} to {}", message.getType(), message.getFrom(), message.getTo());
+    }
+
+    /**
+     * End every call involving a peer that went offline
+     */
+    public void peerGone(String peerId) {
+        long now = nanoTime.getAsLong();
+        calls.forEach((key, existing) -> {
+            if (existing.caller.equals(peerId) || existing.callee.equals(peerId)) {
+                calls.computeIfPresent(key, (k, call) -> {
+                    if (!call.state.isTerminal()) {
+                        finish(call);
+                        call.state = State.ENDED;
+                        call.lastActivity = now;
+                    }
+                    return call;
+                });
+            }
+        });
+    }
+
+    /**
+     * Whether a call of this peer is still being set up: not rejected / ended, and signaled
+     * within the last quietMillis (trickled candidates keep arriving after the ANSWER)
+     */
+    public boolean hasCallInSetup(String peerId, long quietMillis) {
+        long since = nanoTime.getAsLong() - TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        return calls.values().stream().anyMatch(call -> (call.caller.equals(peerId) || call.callee.equals(peerId))
+            && !call.state.isTerminal() && call.lastActivity - since > 0);
+    }
+
+    /**
+     * Number of calls still being set up (see hasCallInSetup)
+     */
+    public long countCallsInSetup(long quietMillis) {
+        long since = nanoTime.getAsLong() - TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        return calls.values().stream().filter(call -> !call.state.isTerminal() && call.lastActivity - since > 0).count();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Long> states = new LinkedHashMap<>();
+        for (State state : State.values()) {
+            states.put(state.name(), 0L);
+        }
+        calls.values().forEach(call -> states.merge(call.state.name(), 1L, Long::sum));
+
+        Map<String, Long> dropped = new LinkedHashMap<>();
+        staleDropped.forEach((type, count) -> {
+            if (count.sum() > 0) {
+                dropped.put(type.name(), count.sum());
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("states", states);
+        stats.put("staleDropped", dropped);
+        stats.put("heldReleased", heldReleased.sum());
+        stats.put("requestToAccept", requestToAccept.snapshot());
+        stats.put("offerToAnswer", offerToAnswer.snapshot());
+        stats.put("setupToLastCandidate", setupToLastCandidate.snapshot());
+        return stats;
+    }
+
+    private void sweep() {
+        long now = nanoTime.getAsLong();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        long tombstoneNanos = TimeUnit.MILLISECONDS.toNanos(tombstoneTtlMs);
+        calls.forEach((key, existing) -> calls.computeIfPresent(key, (k, call) -> {
+            if (now - call.lastActivity <= (call.state.isTerminal() ? tombstoneNanos : idleNanos)) {
+                return call;
+            }
+            finish(call);
+            return null;
+        }));
+    }
+
+    /**
+     * Record the setup span of a call once (when it ends, is replaced or expires)
+     */
+    private void finish(Call call) {
+        if (call != null && !call.finished) {
+            call.finished = true;
+            if (call.lastCandidateAt != 0) {
+                setupToLastCandidate.record(call.lastCandidateAt - call.startedAt);
+            }
+        }
+    }
+
+    private static String key(String a, String b) {
+        return a.compareTo(b) <= 0 ? a + "|" + b : b + "|" + a;
+    }
+
+    private static final class Call {
+        final String caller;
+        final String callee;
+        final long startedAt;
+        volatile State state;
+        long offerAt;
+        long lastCandidateAt;
+        volatile long lastActivity;
+        boolean finished;
+        int held;
+
+        Call(String caller, String callee, State state, long now) {
+            this.caller = caller;
+            this.callee = callee;
+            this.state = state;
+            this.startedAt = now;
+            this.offerAt = now;
+            this.lastActivity = now;
+        }
+    }
+}
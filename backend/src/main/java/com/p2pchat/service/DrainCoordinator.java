@@ -0,0 +1,247 @@
+package com.p2pchat.service;
+
+import com.p2pchat.discovery.RankedPeer;
+import com.p2pchat.dto.SignalingMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drain Coordinator - Graceful drain before a deploy or shutdown
+ *
+ * Draining (POST /api/admin/drain, or SIGTERM) refuses new handshakes and registrations,
+ * announces the draining state in discovery and sends every connected peer a REDIRECT naming
+ * the best alternative signaling servers. Redirects are spread over a window so the remaining
+ * nodes see a trickle of reconnects instead of a spike, and a peer with a call still being set
+ * up is redirected once that setup settles. On shutdown the drain runs on ContextClosedEvent,
+ * before the lifecycle processor stops anything: the STOMP broker and the WebSocket handler stop
+ * in the highest lifecycle phase, so no phase runs while their sessions are still open. The
+ * drain is therefore not part of a phase; it adds its own budget, at most
+ * spring.lifecycle.timeout-per-shutdown-phase (the redirect window shrinks to fit), in front of
+ * the lifecycle phases.
+ */
+@Service
+public class DrainCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(DrainCoordinator.class);
+
+    private static final long RECHECK_MS = 250;
+
+    // Redirects to connected peers are spread evenly over this window
+    @Value("${signaling.drain.redirect-window-ms:10000}")
+    private long redirectWindowMs;
+
+    // Upper bound for the whole drain, including waiting for call setups
+    @Value("${signaling.drain.timeout-ms:30000}")
+    private long timeoutMs;
+
+    // A call with no signal for this long is no longer considered in setup
+    @Value("${signaling.drain.call-quiet-ms:2000}")
+    private long callQuietMs;
+
+    // Drain on SIGTERM / context close before the broker and the WebSocket sessions stop
+    @Value("${signaling.drain.on-shutdown:true}")
+    private boolean drainOnShutdown;
+
+    // Shutdown budget: a drain on SIGTERM / context close takes at most this long, before the lifecycle phases
+    @Value("${spring.lifecycle.timeout-per-shutdown-phase:30s}")
+    private Duration shutdownPhaseTimeout;
+
+    // Alternatives listed in a REDIRECT
+    @Value("${signaling.drain.max-alternatives:3}")
+    private int maxAlternatives;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PeerRegistry peerRegistry;
+    private final PeerDiscoveryService discoveryService;
+    private final AdmissionController admissionController;
+    private final CallStateTable callStateTable;
+
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private final AtomicInteger pendingRedirects = new AtomicInteger();
+    private final AtomicInteger redirectSequence = new AtomicInteger();
+    private final LongAdder redirected = new LongAdder();
+    private final LongAdder deferredForCalls = new LongAdder();
+
+    private volatile boolean draining;
+    private volatile long drainStartedAt;
+    private volatile long deadlineNanos;
+    private ScheduledExecutorService executorService;
+
+    public DrainCoordinator(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry,
+                            PeerDiscoveryService discoveryService, AdmissionController admissionController,
+                            CallStateTable callStateTable) {
+        this.messagingTemplate = messagingTemplate;
+        this.peerRegistry = peerRegistry;
+        this.discoveryService = discoveryService;
+        this.admissionController = admissionController;
+        this.callStateTable = callStateTable;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Start draining (idempotent)
+     * @return completes once every peer was redirected and no call is being set up
+     */
+    public CompletableFuture<Void> startDrain(String trigger) {
+        return startDrain(trigger, timeoutMs);
+    }
+
+    /**
+     * Start draining within budgetMs (idempotent), redirect window at most half the budget
+     */
+    private synchronized CompletableFuture<Void> startDrain(String trigger, long budgetMs) {
+        if (draining) {
+            return drained;
+        }
+        draining = true;
+        drainStartedAt = System.currentTimeMillis();
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        long windowMs = Math.min(redirectWindowMs, budgetMs / 2);
+
+        admissionController.startDraining();
+        discoveryService.startDraining();
+
+        List<String> peers = new ArrayList<>(peerRegistry.getAllPeerIds());
+        Collections.shuffle(peers);
+        log.warn("🚰 Draining ({}): redirecting {} peer(s) over {} ms", trigger, peers.size(), windowMs);
+
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "drain-coordinator");
+            t.setDaemon(true);
+            return t;
+        });
+        pendingRedirects.set(peers.size());
+        for (int i = 0; i < peers.size(); i++) {
+            String peerId = peers.get(i);
+            long delayMs = windowMs * i / peers.size();
+            executorService.schedule(() -> redirectWhenSettled(peerId), delayMs, TimeUnit.MILLISECONDS);
+        }
+        if (peers.isEmpty()) {
+            executorService.execute(this::awaitCallSetups);
+        }
+        return drained;
+    }
+
+    /**
+     * Send a REDIRECT to a peer of this node right away (e.g. one registering while draining)
+     */
+    public void redirect(String peerId) {
+        List<String> alternatives = alternatives();
+        SignalingMessage message = new SignalingMessage();
+        message.setType(SignalingMessage.SignalType.REDIRECT);
+        message.setTo(peerId);
+        message.setPayload(Map.of("reason", "DRAINING", "servers", alternatives));
+        message.setTimestamp(System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/peer/" + peerId, message);
+        redirected.increment();
+        log.debug("🔀 Redirected {} to {}", peerId, alternatives);
+    }
+
+    @EventListener
+    public void onContextClosed(ContextClosedEvent event) {
+        if (!drainOnShutdown) {
+            return;
+        }
+        // The drain completes at most one recheck after its deadline
+        long budgetMs = Math.max(0, Math.min(timeoutMs, shutdownPhaseTimeout.toMillis() - RECHECK_MS));
+        try {
+            startDrain("shutdown", budgetMs).get(budgetMs + RECHECK_MS, TimeUnit.MILLISECONDS);
+            log.info("🚰 Drained, continuing shutdown");
+        } catch (TimeoutException e) {
+            log.warn("⚠️ Drain did not finish in time, shutting down anyway");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("⚠️ Drain failed, shutting down anyway", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("draining", draining);
+        stats.put("drained", drained.isDone());
+        stats.put("startedAt", draining ? drainStartedAt : null);
+        stats.put("pendingRedirects", pendingRedirects.get());
+        stats.put("redirected", redirected.sum());
+        stats.put("deferredForCalls", deferredForCalls.sum());
+        stats.put("callsInSetup", callStateTable.countCallsInSetup(callQuietMs));
+        stats.put("onlinePeers", peerRegistry.getOnlineCount());
+        return stats;
+    }
+
+    /**
+     * Redirect a peer at its slot in the window, unless one of its calls is still being set up
+     */
+    private void redirectWhenSettled(String peerId) {
+        if (peerRegistry.isPeerOnline(peerId)) {
+            if (callStateTable.hasCallInSetup(peerId, callQuietMs) && System.nanoTime() < deadlineNanos) {
+                deferredForCalls.increment();
+                executorService.schedule(() -> redirectWhenSettled(peerId), RECHECK_MS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            redirect(peerId);
+        }
+        if (pendingRedirects.decrementAndGet() == 0) {
+            awaitCallSetups();
+        }
+    }
+
+    /**
+     * Last step: let call setups still relayed through this node finish
+     */
+    private void awaitCallSetups() {
+        long inSetup = callStateTable.countCallsInSetup(callQuietMs);
+        if (inSetup > 0 && System.nanoTime() < deadlineNanos) {
+            executorService.schedule(this::awaitCallSetups, RECHECK_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        log.warn("🚰 Drain complete: {} peer(s) redirected, {} call setup(s) still open", redirected.sum(), inSetup);
+        drained.complete(null);
+    }
+
+    /**
+     * Best non-draining signaling servers, rotated per redirect so they share the reconnects
+     */
+    private List<String> alternatives() {
+        List<String> servers = new ArrayList<>();
+        for (RankedPeer ranked : discoveryService.getRankedPeers()) {
+            if (!ranked.draining() && servers.size() < maxAlternatives) {
+                servers.add(ranked.peer().signalingUrl());
+            }
+        }
+        if (servers.size() > 1) {
+            Collections.rotate(servers, -(redirectSequence.getAndIncrement() % servers.size()));
+        }
+        return servers;
+    }
+}
@@ -0,0 +1,161 @@
+package com.p2pchat.service;
+
+import com.p2pchat.discovery.DiscoveredPeer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Federation Link Guard - authenticates server-to-server federation links
+ *
+ * Nodes dial each other on their own endpoint (/ws/federation, never SockJS) and present the
+ * shared secret (signaling.federation.secret) and their node id (ip:port) in the handshake. The
+ * node id must belong to a node found by discovery and its ip must be the connection's source
+ * address; the authenticated id is kept in the session. Federation destinations
+ * (/app/federation/**, /topic/federation/**) are only served to such sessions, a link session
+ * only subscribes to its own /topic/federation/{nodeId}, and it cannot use client destinations.
+ * Pattern subscriptions (/topic/**) are refused for everyone, since the simple broker would match
+ * them against link topics too. Without a secret every link is refused.
+ *
+ * Links dial plain ws://, so the secret travels as a cleartext handshake header: it keeps
+ * strangers' servers out of a trusted LAN, not eavesdroppers on it.
+ */
+@Service
+public class FederationLinkGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(FederationLinkGuard.class);
+
+    public static final String ENDPOINT = "/ws/federation";
+    public static final String SECRET_HEADER = "X-Federation-Secret";
+    public static final String NODE_HEADER = "X-Federation-Node";
+
+    private static final String NODE_ATTRIBUTE = "federation.nodeId";
+    private static final String APP_PREFIX = "/app/federation/";
+    private static final String TOPIC_PREFIX = "/topic/federation/";
+    private static final Pattern PATTERN = Pattern.compile("[*?{]");
+
+    @Value("${signaling.federation.secret:}")
+    private String secret;
+
+    private final PeerDiscoveryService discoveryService;
+
+    public FederationLinkGuard(PeerDiscoveryService discoveryService) {
+        this.discoveryService = discoveryService;
+    }
+
+    public boolean isConfigured() {
+        return !secret.isBlank();
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    /**
+     * Authenticated node id of a federation link session (null for client sessions)
+     */
+    public static String nodeId(SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor != null ? accessor.getSessionAttributes() : null;
+        return attributes != null ? (String) attributes.get(NODE_ATTRIBUTE) : null;
+    }
+
+    /**
+     * Handshake check for the federation endpoint: 403 unless secret, node id and source address match
+     */
+    public HandshakeInterceptor handshakeInterceptor() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                String nodeId = request.getHeaders().getFirst(NODE_HEADER);
+                String reason = rejectReason(request.getHeaders().getFirst(SECRET_HEADER), nodeId, request.getRemoteAddress());
+                if (reason != null) {
+                    log.warn("🔒 Federation link from {} ({}) refused: {}", request.getRemoteAddress(), nodeId, reason);
+                    response.setStatusCode(HttpStatus.FORBIDDEN);
+                    return false;
+                }
+                attributes.put(NODE_ATTRIBUTE, nodeId);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    /**
+     * Inbound channel check: the message, or null to drop it
+     */
+    public Message<?> authorize(Message<?> message) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type != SimpMessageType.MESSAGE && type != SimpMessageType.SUBSCRIBE) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        String nodeId = nodeId(accessor);
+        boolean federationDestination = destination != null
+            && (destination.startsWith(APP_PREFIX) || destination.startsWith(TOPIC_PREFIX));
+
+        boolean allowed;
+        if (type == SimpMessageType.SUBSCRIBE && destination != null && PATTERN.matcher(destination).find()) {
+            allowed = false;
+        } else if (nodeId == null) {
+            allowed = !federationDestination;
+        } else if (type == SimpMessageType.SUBSCRIBE) {
+            allowed = (TOPIC_PREFIX + nodeId).equals(destination);
+        } else {
+            allowed = destination != null && destination.startsWith(APP_PREFIX);
+        }
+        if (!allowed) {
+            log.warn("🔒 Dropped {} to {} from session {} (federation node: {})",
+                type, destination, accessor.getSessionId(), nodeId);
+            return null;
+        }
+        return message;
+    }
+
+    private String rejectReason(String presentedSecret, String nodeId, InetSocketAddress remoteAddress) {
+        if (!isConfigured()) {
+            return "no federation secret configured";
+        }
+        if (presentedSecret == null || !MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), presentedSecret.getBytes(StandardCharsets.UTF_8))) {
+            return "bad secret";
+        }
+        if (nodeId == null || remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "missing node id";
+        }
+        DiscoveredPeer node = null;
+        for (DiscoveredPeer peer : discoveryService.getDiscoveredPeers().values()) {
+            if (nodeId.equals(peer.ip + ":" + peer.port)) {
+                node = peer;
+                break;
+            }
+        }
+        if (node == null) {
+            return "node not discovered";
+        }
+        if (!node.ip.equals(remoteAddress.getAddress().getHostAddress())) {
+            return "source address does not match the node id";
+        }
+        return null;
+    }
+}
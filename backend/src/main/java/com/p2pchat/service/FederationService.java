@@ -0,0 +1,433 @@
+package com.p2pchat.service;
+
+import com.p2pchat.discovery.DiscoveredPeer;
+import com.p2pchat.dto.FederationMessage;
+import com.p2pchat.dto.SignalingMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LAN federation between signaling servers found by PeerDiscoveryService
+ *
+ * Every pair of nodes shares exactly one STOMP link: the node with the smaller node id dials
+ * the other one. Over the link both sides exchange their peer registrations, and signals for
+ * a peer registered on the neighbouring node are forwarded, so each client only needs a
+ * single signaling connection. Links use the separate /ws/federation endpoint and are
+ * authenticated by FederationLinkGuard (shared secret + discovered source address). Federation is
+ * off by default; enabling it without signaling.federation.secret fails startup.
+ */
+@Service
+public class FederationService {
+
+    private static final Logger log = LoggerFactory.getLogger(FederationService.class);
+
+    public static final String INBOUND_DESTINATION = "/app/federation/message";
+    public static final String LINK_TOPIC_PREFIX = "/topic/federation/";
+
+    @Value("${signaling.federation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${signaling.federation.reconcile-interval-ms:5000}")
+    private long reconcileIntervalMs;
+
+    @Value("${signaling.heartbeat.server-ms:10000}")
+    private long heartbeatMs;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PeerRegistry peerRegistry;
+    private final PeerDiscoveryService discoveryService;
+    private final TaskScheduler heartbeatScheduler;
+    private final PresencePublisher presencePublisher;
+    private final FederationLinkGuard linkGuard;
+
+    // nodeId -> open link
+    private final Map<String, Link> links = new ConcurrentHashMap<>();
+    // nodeIds we are currently dialing
+    private final Set<String> connecting = ConcurrentHashMap.newKeySet();
+    // Inbound link sessionId -> remote nodeId (links dialed by the other node; a node re-dialing
+    // may briefly have two sessions, the link lives until the last one closes)
+    private final Map<String, String> linkSessions = new ConcurrentHashMap<>();
+    // peerId -> nodeId of the node it is registered on
+    private final Map<String, String> remotePeers = new ConcurrentHashMap<>();
+
+    private WebSocketStompClient stompClient;
+    private ScheduledExecutorService executorService;
+
+    public FederationService(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry,
+                             PeerDiscoveryService discoveryService,
+                             @Qualifier("heartbeatScheduler") TaskScheduler heartbeatScheduler,
+                             PresencePublisher presencePublisher, FederationLinkGuard linkGuard) {
+        this.messagingTemplate = messagingTemplate;
+        this.peerRegistry = peerRegistry;
+        this.discoveryService = discoveryService;
+        this.heartbeatScheduler = heartbeatScheduler;
+        this.presencePublisher = presencePublisher;
+        this.linkGuard = linkGuard;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("🌐 Federation disabled");
+            return;
+        }
+        if (!linkGuard.isConfigured()) {
+            throw new IllegalStateException(
+                "signaling.federation.enabled=true requires signaling.federation.secret (shared by all nodes)");
+        }
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(heartbeatScheduler);
+        stompClient.setDefaultHeartbeat(new long[] {heartbeatMs, heartbeatMs});
+
+        executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "federation");
+            t.setDaemon(true);
+            return t;
+        });
+        executorService.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+            TimeUnit.MILLISECONDS);
+        log.info("🌐 Federation enabled (reconcile every {} ms)", reconcileIntervalMs);
+    }
+
+    /**
+     * Federation enabled and configured with a shared secret (clients then need one connection)
+     */
+    public boolean isActive() {
+        return enabled && linkGuard.isConfigured();
+    }
+
+    public String getLocalNodeId() {
+        return discoveryService.getLocalNodeId();
+    }
+
+    /**
+     * Dial discovered nodes we are responsible for (smaller node id dials)
+     */
+    private void reconcile() {
+        String localNodeId = getLocalNodeId();
+        if (localNodeId == null) {
+            return;
+        }
+        try {
+            for (DiscoveredPeer node : discoveryService.getDiscoveredPeers().values()) {
+                String nodeId = node.ip + ":" + node.port;
+                if (localNodeId.compareTo(nodeId) < 0 && !links.containsKey(nodeId) && connecting.add(nodeId)) {
+                    dial(nodeId, node.ip, node.port);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reconciling federation links", e);
+        }
+    }
+
+    private void dial(String nodeId, String ip, int port) {
+        String url = "ws://" + ip + ":" + port + FederationLinkGuard.ENDPOINT;
+        WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+        handshakeHeaders.set(FederationLinkGuard.SECRET_HEADER, linkGuard.getSecret());
+        handshakeHeaders.set(FederationLinkGuard.NODE_HEADER, getLocalNodeId());
+        log.info("🌐 Opening federation link to {}", nodeId);
+        stompClient.connectAsync(url, handshakeHeaders, new StompHeaders(), new DialedLinkHandler(nodeId)).whenComplete((session, error) -> {
+            if (error != null) {
+                connecting.remove(nodeId);
+                log.debug("Federation link to {} failed: {}", nodeId, error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Handles the client side of a link we dialed
+     */
+    private class DialedLinkHandler extends StompSessionHandlerAdapter {
+        private final String nodeId;
+
+        DialedLinkHandler(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe(LINK_TOPIC_PREFIX + getLocalNodeId(), this);
+            Link link = new DialedLink(session);
+            links.put(nodeId, link);
+            connecting.remove(nodeId);
+            link.send(localPeers(FederationMessage.Kind.HELLO));
+            log.info("🌐 Federation link to {} established", nodeId);
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return FederationMessage.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            handleMessage((FederationMessage) payload, null, nodeId);
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            log.warn("Error on federation link to {}", nodeId, exception);
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            connecting.remove(nodeId);
+            linkLost(nodeId);
+        }
+    }
+
+    /**
+     * Handle a federation message, either from a link we dialed (sessionId == null)
+     * or from a node that dialed us (sessionId = its inbound STOMP session)
+     * @param linkNodeId node the link belongs to (authenticated at the handshake for inbound links)
+     */
+    public void handleMessage(FederationMessage message, String sessionId, String linkNodeId) {
+        String nodeId = message.getNodeId();
+        if (nodeId == null || message.getKind() == null) {
+            return;
+        }
+        if (!nodeId.equals(linkNodeId)) {
+            log.warn("🔒 Dropped federation {} claiming node {} on the link of {}", message.getKind(), nodeId, linkNodeId);
+            return;
+        }
+
+        if (sessionId != null) {
+            // Every session of a link dialed by the other node (it may re-dial before the old one closes)
+            linkSessions.put(sessionId, nodeId);
+            if (links.putIfAbsent(nodeId, new AcceptedLink(nodeId)) == null) {
+                log.info("🌐 Federation link from {} accepted", nodeId);
+            }
+        }
+
+        switch (message.getKind()) {
+            case HELLO -> {
+                replaceRemotePeers(nodeId, message.getPeerIds());
+                Link link = links.get(nodeId);
+                if (link != null) {
+                    link.send(localPeers(FederationMessage.Kind.SYNC));
+                }
+            }
+            case SYNC -> replaceRemotePeers(nodeId, message.getPeerIds());
+            case REGISTER -> {
+                if (message.getPeerIds() != null) {
+                    message.getPeerIds().forEach(peerId -> addRemotePeer(nodeId, peerId));
+                }
+            }
+            case UNREGISTER -> {
+                if (message.getPeerIds() != null) {
+                    message.getPeerIds().forEach(peerId -> removeRemotePeer(nodeId, peerId));
+                }
+            }
+            case FORWARD -> deliverForwarded(message.getSignal());
+        }
+    }
+
+    /**
+     * Forward a signal to the node its target is registered on
+     * @return true if the target is a known remote peer and a link to its node is open
+     */
+    public boolean forward(SignalingMessage signal) {
+        if (signal.getTo() == null) {
+            return false;
+        }
+        String nodeId = remotePeers.get(signal.getTo());
+        Link link = nodeId != null ? links.get(nodeId) : null;
+        if (link == null) {
+            return false;
+        }
+        link.send(new FederationMessage(FederationMessage.Kind.FORWARD, getLocalNodeId(), null, signal));
+        return true;
+    }
+
+    public boolean isRemotePeer(String peerId) {
+        return remotePeers.containsKey(peerId);
+    }
+
+    public Set<String> getRemotePeerIds() {
+        return remotePeers.keySet();
+    }
+
+    /**
+     * Tell all neighbours a local peer came online
+     */
+    public void localPeerOnline(String peerId) {
+        broadcast(new FederationMessage(FederationMessage.Kind.REGISTER, getLocalNodeId(), List.of(peerId), null));
+    }
+
+    /**
+     * Tell all neighbours a local peer went offline
+     */
+    public void localPeerOffline(String peerId) {
+        broadcast(new FederationMessage(FederationMessage.Kind.UNREGISTER, getLocalNodeId(), List.of(peerId), null));
+    }
+
+    /**
+     * Inbound STOMP session closed - drop the link if it was the node's last federation session
+     */
+    public void sessionClosed(String sessionId) {
+        String nodeId = linkSessions.remove(sessionId);
+        if (nodeId != null && !linkSessions.containsValue(nodeId)) {
+            linkLost(nodeId);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("nodeId", getLocalNodeId());
+        status.put("active", isActive());
+        status.put("links", new ArrayList<>(links.keySet()));
+        status.put("remotePeers", remotePeers.size());
+        return status;
+    }
+
+    private void broadcast(FederationMessage message) {
+        if (message.getNodeId() == null) {
+            return;
+        }
+        links.values().forEach(link -> link.send(message));
+    }
+
+    private void deliverForwarded(SignalingMessage signal) {
+        if (signal == null || signal.getTo() == null) {
+            return;
+        }
+        // Deliver locally only - forwarded signals are never forwarded again
+        if (peerRegistry.isPeerOnline(signal.getTo())) {
+            messagingTemplate.convertAndSend("/topic/peer/" + signal.getTo(), signal);
+            log.debug("🌐 Delivered forwarded {} from {} to {}", signal.getType(), signal.getFrom(), signal.getTo());
+        } else {
+            log.debug("⚠️ Forwarded {} for {} dropped - peer not online here", signal.getType(), signal.getTo());
+        }
+    }
+
+    private void replaceRemotePeers(String nodeId, List<String> peerIds) {
+        Set<String> incoming = peerIds != null ? new HashSet<>(peerIds) : Set.of();
+        remotePeers.forEach((peerId, owner) -> {
+            if (owner.equals(nodeId) && !incoming.contains(peerId)) {
+                removeRemotePeer(nodeId, peerId);
+            }
+        });
+        incoming.forEach(peerId -> addRemotePeer(nodeId, peerId));
+    }
+
+    private void addRemotePeer(String nodeId, String peerId) {
+        // A peer registered locally always wins
+        if (peerRegistry.isPeerOnline(peerId)) {
+            return;
+        }
+        if (!nodeId.equals(remotePeers.put(peerId, nodeId))) {
+            presencePublisher.broadcastOnline(peerId);
+        }
+    }
+
+    private void removeRemotePeer(String nodeId, String peerId) {
+        if (remotePeers.remove(peerId, nodeId)) {
+            presencePublisher.broadcastOffline(peerId);
+        }
+    }
+
+    private void linkLost(String nodeId) {
+        Link link = links.remove(nodeId);
+        if (link == null) {
+            return;
+        }
+        log.info("🌐 Federation link to {} lost", nodeId);
+        new ArrayList<>(remotePeers.entrySet()).forEach(entry -> {
+            if (entry.getValue().equals(nodeId)) {
+                removeRemotePeer(nodeId, entry.getKey());
+            }
+        });
+    }
+
+    private FederationMessage localPeers(FederationMessage.Kind kind) {
+        return new FederationMessage(kind, getLocalNodeId(), new ArrayList<>(peerRegistry.getAllPeerIds()), null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+        links.values().forEach(Link::close);
+        links.clear();
+    }
+
+    /**
+     * One side of a federation link
+     */
+    private interface Link {
+        void send(FederationMessage message);
+
+        default void close() {}
+    }
+
+    /**
+     * Link we dialed: send via our STOMP client session
+     */
+    private static class DialedLink implements Link {
+        private final StompSession session;
+
+        DialedLink(StompSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void send(FederationMessage message) {
+            if (session.isConnected()) {
+                session.send(INBOUND_DESTINATION, message);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Link dialed by the other node: reply on the topic it subscribed to
+     */
+    private class AcceptedLink implements Link {
+        private final String nodeId;
+
+        AcceptedLink(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public void send(FederationMessage message) {
+            messagingTemplate.convertAndSend(LINK_TOPIC_PREFIX + nodeId, message);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.p2pchat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Message Relay - server fallback for chat MESSAGE signals when no P2P data channel can be
+ * established (symmetric NAT, blocked UDP)
+ *
+ * Messages are queued per (from, to) conversation and delivered in order as one MESSAGE signal
+ * per batch window: {messages: [{seq, data, timestamp}], dropped}. The inbound channel handles a
+ * session's frames on several threads, so clients number their messages with a monotonic
+ * "relay-seq" header and the queue is kept sorted by it. Quotas are kept per STOMP session (the
+ * "from" field is client-chosen): a byte token bucket and a bound on the conversations a session
+ * may feed. Over quota, or with the buffer full, the sender gets an ERROR signal with retryAfterMs.
+ * Buffered messages wait for an offline target up to ttl-ms; a conversation over its capacity
+ * drops its oldest message, and the next batch reports how many were lost. Batches are built on
+ * the relay's own threads and travel on the lowest outbound lane (SignalLanes.Lane.RELAY), so
+ * relayed chat never delays call setup or presence (GET /api/metrics/relay).
+ */
+@Service
+public class MessageRelayService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageRelayService.class);
+
+    // Smallest quota charge per message, so a flood of tiny messages is still rate limited
+    private static final int MIN_MESSAGE_COST = 256;
+
+    // Retry hint for senders rejected because the whole buffer is full
+    private static final long FULL_RETRY_AFTER_MS = 1000;
+
+    public enum Result {
+        QUEUED,
+        QUOTA_EXCEEDED,
+        TOO_MANY_CONVERSATIONS,
+        BUFFER_FULL,
+        REJECTED
+    }
+
+    @Value("${signaling.relay.enabled:true}")
+    private boolean enabled;
+
+    // Messages of a conversation arriving within this window go out as one batch
+    @Value("${signaling.relay.batch-window-ms:25}")
+    private long batchWindowMs;
+
+    @Value("${signaling.relay.max-batch:32}")
+    private int maxBatch;
+
+    // A batch holds at least one message
+    @Value("${signaling.relay.max-batch-bytes:16384}")
+    private int maxBatchBytes;
+
+    // Undelivered messages are dropped after this long (target offline)
+    @Value("${signaling.relay.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${signaling.relay.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${signaling.relay.conversation-capacity:256}")
+    private int conversationCapacity;
+
+    // Per-session quota: sustained bytes per second and burst size
+    @Value("${signaling.relay.quota-bytes-per-sec:32768}")
+    private long quotaBytesPerSec;
+
+    @Value("${signaling.relay.quota-burst-bytes:131072}")
+    private long quotaBurstBytes;
+
+    // Distinct conversations one session may have buffered at a time
+    @Value("${signaling.relay.max-conversations-per-session:16}")
+    private int maxConversationsPerSession;
+
+    @Value("${signaling.relay.threads:2}")
+    private int threads;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PeerRegistry peerRegistry;
+    private final FederationService federationService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // "from|to" -> queued messages
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    // STOMP session id -> quota
+    private final Map<String, SessionQuota> quotas = new ConcurrentHashMap<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder relayedBytes = new LongAdder();
+    private final LongAdder quotaRejected = new LongAdder();
+    private final LongAdder conversationRejected = new LongAdder();
+    private final LongAdder bufferRejected = new LongAdder();
+    private final LongAdder overflowDropped = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder undeliverable = new LongAdder();
+    private final LatencyHistogram relayDelay = new LatencyHistogram();
+
+    private final LongSupplier nanoTime;
+    private ScheduledExecutorService executorService;
+
+    @Autowired
+    public MessageRelayService(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry,
+                               FederationService federationService) {
+        this(messagingTemplate, peerRegistry, federationService, System::nanoTime, null);
+    }
+
+    /**
+     * @param executorService runs flushes and the sweep (null: own pool of relay threads, created on init)
+     */
+    MessageRelayService(SimpMessagingTemplate messagingTemplate, PeerRegistry peerRegistry,
+                        FederationService federationService, LongSupplier nanoTime,
+                        ScheduledExecutorService executorService) {
+        this.messagingTemplate = messagingTemplate;
+        this.peerRegistry = peerRegistry;
+        this.federationService = federationService;
+        this.nanoTime = nanoTime;
+        this.executorService = executorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executorService == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, threads), r -> {
+                Thread t = new Thread(r, "message-relay-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            pool.setRemoveOnCancelPolicy(true);
+            executorService = pool;
+        }
+        executorService.scheduleAtFixedRate(this::sweep, 1000, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Accept a MESSAGE signal for relaying; it is delivered with the conversation's next batch
+     * @param sessionId STOMP session the message arrived on (quota key)
+     * @param size inbound body size in bytes (-1 if unknown, then the payload is measured)
+     * @param clientSeq the sender's relay-seq header (-1 if absent: arrival order)
+     */
+    public Result submit(SignalingMessage message, String sessionId, int size, long clientSeq) {
+        received.increment();
+        if (!enabled || sessionId == null || message.getFrom() == null || message.getTo() == null
+                || message.getFrom().equals(message.getTo())) {
+            return Result.REJECTED;
+        }
+
+        int bytes = size >= 0 ? size : measure(message.getPayload());
+        String key = message.getFrom() + "|" + message.getTo();
+        long now = nanoTime.getAsLong();
+        SessionQuota quota = quotas.computeIfAbsent(sessionId, k -> new SessionQuota(quotaBurstBytes, now));
+        if (!quota.addConversation(key, maxConversationsPerSession)) {
+            conversationRejected.increment();
+            reject(message, "RELAY_CONVERSATIONS", ttlMs);
+            return Result.TOO_MANY_CONVERSATIONS;
+        }
+        long retryAfterMs = quota.tryConsume(Math.max(MIN_MESSAGE_COST, bytes), quotaBytesPerSec, quotaBurstBytes, now);
+        if (retryAfterMs > 0) {
+            quotaRejected.increment();
+            reject(message, "RELAY_QUOTA", retryAfterMs);
+            return Result.QUOTA_EXCEEDED;
+        }
+        if (buffered.incrementAndGet() > bufferCapacity) {
+            buffered.decrementAndGet();
+            bufferRejected.increment();
+            reject(message, "RELAY_FULL", FULL_RETRY_AFTER_MS);
+            return Result.BUFFER_FULL;
+        }
+
+        long acceptedAt = System.currentTimeMillis();
+        while (true) {
+            Conversation conversation = conversations.computeIfAbsent(key,
+                k -> new Conversation(message.getFrom(), message.getTo()));
+            synchronized (conversation) {
+                if (conversation.removed) {
+                    continue; // lost a race with sweep(), retry with a fresh entry
+                }
+                if (conversation.queue.size() >= conversationCapacity) {
+                    conversation.queue.pollFirst();
+                    conversation.dropped++;
+                    buffered.decrementAndGet();
+                    overflowDropped.increment();
+                }
+                conversation.insert(new Queued(clientSeq, message.getPayload(), acceptedAt, now, bytes));
+                conversation.lastEventAt = now;
+                if (!conversation.scheduled) {
+                    conversation.scheduled = true;
+                    executorService.schedule(() -> flush(conversation), batchWindowMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            return Result.QUEUED;
+        }
+    }
+
+    /**
+     * Deliver the next batch of a conversation (one flush per conversation at a time keeps it ordered:
+     * the follow-up flush is only submitted once this batch has been handed off)
+     */
+    private void flush(Conversation conversation) {
+        boolean delivered = false;
+        try {
+            delivered = flushBatch(conversation);
+        } catch (Exception e) {
+            log.error("Error relaying messages from {} to {}", conversation.from, conversation.to, e);
+        } finally {
+            synchronized (conversation) {
+                if (delivered && !conversation.queue.isEmpty()) {
+                    executorService.execute(() -> flush(conversation));
+                } else {
+                    // Failed or nothing left: submit() or sweep() schedule the next flush
+                    conversation.scheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Take the next batch off the queue and deliver it
+     * @return false if nothing was taken (target offline or queue empty)
+     */
+    private boolean flushBatch(Conversation conversation) {
+        long now = nanoTime.getAsLong();
+        boolean local = peerRegistry.isPeerOnline(conversation.to);
+        boolean reachable = local || federationService.isRemotePeer(conversation.to);
+        List<Queued> batch;
+        long firstSeq;
+        int dropped;
+
+        synchronized (conversation) {
+            expire(conversation, now);
+            if (!reachable || conversation.queue.isEmpty()) {
+                // Target offline: keep buffering, sweep() retries once it is back
+                return false;
+            }
+            batch = new ArrayList<>(Math.min(maxBatch, conversation.queue.size()));
+            long batchBytes = 0;
+            while (batch.size() < maxBatch && !conversation.queue.isEmpty()
+                    && (batch.isEmpty() || batchBytes + conversation.queue.peekFirst().bytes <= maxBatchBytes)) {
+                Queued queued = conversation.queue.pollFirst();
+                batchBytes += queued.bytes;
+                batch.add(queued);
+            }
+            firstSeq = conversation.nextSeq;
+            conversation.nextSeq += batch.size();
+            dropped = conversation.dropped;
+            conversation.dropped = 0;
+            buffered.addAndGet(-batch.size());
+        }
+
+        deliver(conversation, batch, firstSeq, dropped, local);
+        return true;
+    }
+
+    private void deliver(Conversation conversation, List<Queued> batch, long firstSeq, int dropped, boolean local) {
+        List<Map<String, Object>> messages = new ArrayList<>(batch.size());
+        long bytes = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Queued queued = batch.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("seq", firstSeq + i);
+            entry.put("data", queued.payload);
+            entry.put("timestamp", queued.acceptedAt);
+            messages.add(entry);
+            bytes += queued.bytes;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("messages", messages);
+        payload.put("dropped", dropped);
+        SignalingMessage signal = new SignalingMessage(SignalingMessage.SignalType.MESSAGE,
+            conversation.from, conversation.to, payload, System.currentTimeMillis());
+
+        if (local) {
+            messagingTemplate.convertAndSend("/topic/peer/" + conversation.to, signal);
+        } else if (!federationService.forward(signal)) {
+            undeliverable.add(batch.size());
+            log.debug("⚠️ Relay batch from {} to {} dropped - peer no longer reachable", conversation.from, conversation.to);
+            return;
+        }
+
+        long sentAt = nanoTime.getAsLong();
+        for (Queued queued : batch) {
+            relayDelay.record(sentAt - queued.acceptedNanos);
+        }
+        relayed.add(batch.size());
+        relayedBytes.add(bytes);
+        batches.increment();
+        log.debug("📮 Relayed {} message(s) from {} to {} ({} dropped before)",
+            batch.size(), conversation.from, conversation.to, dropped);
+    }
+
+    /**
+     * Periodic pass: expire old messages, retry conversations whose target came back,
+     * forget idle conversations and idle session quotas
+     */
+    private void sweep() {
+        long now = nanoTime.getAsLong();
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        try {
+            conversations.forEach((key, conversation) -> {
+                boolean retry = false;
+                synchronized (conversation) {
+                    expire(conversation, now);
+                    if (conversation.queue.isEmpty()) {
+                        if (!conversation.scheduled && now - conversation.lastEventAt >= ttlNanos) {
+                            conversation.removed = true;
+                            conversations.remove(key, conversation);
+                        }
+                    } else if (!conversation.scheduled && (peerRegistry.isPeerOnline(conversation.to)
+                            || federationService.isRemotePeer(conversation.to))) {
+                        conversation.scheduled = true;
+                        retry = true;
+                    }
+                }
+                if (retry) {
+                    executorService.execute(() -> flush(conversation));
+                }
+            });
+            quotas.entrySet().removeIf(entry -> entry.getValue().prune(conversations.keySet(), quotaBytesPerSec, quotaBurstBytes, now));
+        } catch (Exception e) {
+            log.error("Error sweeping message relay", e);
+        }
+    }
+
+    /**
+     * Drop messages older than the TTL from the head of the queue (caller holds the lock)
+     */
+    private void expire(Conversation conversation, long now) {
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        int count = 0;
+        while (!conversation.queue.isEmpty() && now - conversation.queue.peekFirst().acceptedNanos >= ttlNanos) {
+            conversation.queue.pollFirst();
+            count++;
+        }
+        if (count > 0) {
+            conversation.dropped += count;
+            buffered.addAndGet(-count);
+            expired.add(count);
+            log.debug("⌛ Expired {} relayed message(s) from {} to {}", count, conversation.from, conversation.to);
+        }
+    }
+
+    private void reject(SignalingMessage message, String reason, long retryAfterMs) {
+        SignalingMessage error = new SignalingMessage();
+        error.setType(SignalingMessage.SignalType.ERROR);
+        error.setTo(message.getFrom());
+        error.setPayload(Map.of("reason", reason, "to", message.getTo(), "retryAfterMs", retryAfterMs));
+        error.setTimestamp(System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/peer/" + message.getFrom(), error);
+    }
+
+    private int measure(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload).length;
+        } catch (JsonProcessingException e) {
+            return MIN_MESSAGE_COST;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("received", received.sum());
+        stats.put("relayed", relayed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("relayedBytes", relayedBytes.sum());
+        stats.put("quotaRejected", quotaRejected.sum());
+        stats.put("conversationRejected", conversationRejected.sum());
+        stats.put("bufferRejected", bufferRejected.sum());
+        stats.put("overflowDropped", overflowDropped.sum());
+        stats.put("expired", expired.sum());
+        stats.put("undeliverable", undeliverable.sum());
+        stats.put("buffered", buffered.get());
+        stats.put("activeConversations", conversations.size());
+        stats.put("sessionQuotas", quotas.size());
+        stats.put("executorQueue", executorService instanceof ScheduledThreadPoolExecutor pool ? pool.getQueue().size() : 0);
+        stats.put("relayDelay", relayDelay.snapshot());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private record Queued(long clientSeq, Object payload, long acceptedAt, long acceptedNanos, int bytes) {
+    }
+
+    private static class Conversation {
+        final String from;
+        final String to;
+        final ArrayDeque<Queued> queue = new ArrayDeque<>();
+        long nextSeq;
+        long lastEventAt;
+        int dropped;
+        boolean scheduled;
+        boolean removed;
+
+        Conversation(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Append, moving ahead of queued messages with a higher client sequence (caller holds the lock)
+         */
+        void insert(Queued queued) {
+            if (queued.clientSeq < 0) {
+                queue.addLast(queued);
+                return;
+            }
+            ArrayDeque<Queued> later = new ArrayDeque<>();
+            while (!queue.isEmpty() && queue.peekLast().clientSeq > queued.clientSeq) {
+                later.addFirst(queue.pollLast());
+            }
+            queue.addLast(queued);
+            queue.addAll(later);
+        }
+    }
+
+    /**
+     * Quota of one STOMP session: byte token bucket and the conversations it feeds
+     */
+    private static class SessionQuota {
+        private final Set<String> conversationKeys = new HashSet<>();
+        private double tokens;
+        private long refilledAt;
+
+        SessionQuota(long burst, long now) {
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        /**
+         * @return false if the conversation is new and the session is already at the bound
+         */
+        synchronized boolean addConversation(String key, int max) {
+            return conversationKeys.contains(key) || (conversationKeys.size() < max && conversationKeys.add(key));
+        }
+
+        /**
+         * Forget conversations that are gone
+         * @return true if the quota is idle (bucket full, no conversations) and can be dropped
+         */
+        synchronized boolean prune(Set<String> liveConversations, long ratePerSec, long burst, long now) {
+            conversationKeys.retainAll(liveConversations);
+            refill(ratePerSec, burst, now);
+            return conversationKeys.isEmpty() && tokens >= burst;
+        }
+
+        /**
+         * @return 0 if the cost was taken, otherwise milliseconds until it would fit
+         */
+        synchronized long tryConsume(long cost, long ratePerSec, long burst, long now) {
+            refill(ratePerSec, burst, now);
+            long effectiveCost = Math.min(cost, burst);
+            if (tokens >= effectiveCost) {
+                tokens -= effectiveCost;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((effectiveCost - tokens) * 1000.0 / ratePerSec));
+        }
+
+        private void refill(long ratePerSec, long burst, long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerSec / 1e9);
+            refilledAt = now;
+        }
+    }
+}
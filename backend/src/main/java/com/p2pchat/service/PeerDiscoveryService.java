@@ -1,5 +1,9 @@
 package com.p2pchat.service;
 
+import com.p2pchat.discovery.DiscoveredPeer;
+import com.p2pchat.discovery.DiscoveryEngine;
+import com.p2pchat.discovery.RankedPeer;
+import com.p2pchat.discovery.UdpDiscoveryTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,9 +19,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -25,34 +29,71 @@ import java.util.concurrent.TimeUnit;
 /**
  * UDP Broadcast Discovery Service
  * Tự động phát hiện các peers trong cùng mạng local bằng UDP broadcast
+ *
+ * Runs the DiscoveryEngine (announcements with load hint and draining flag, PING / PONG RTT
+ * probes, expiry, ranking) over a UdpDiscoveryTransport on real time. Port, announce interval
+ * and expiry are configurable; the DiscoverySimulator tool helps pick them.
  */
 @Service
 public class PeerDiscoveryService {
     
     private static final Logger log = LoggerFactory.getLogger(PeerDiscoveryService.class);
     
-    private static final int DISCOVERY_PORT = 8888;
-    private static final String DISCOVERY_MESSAGE_PREFIX = "P2P-CHAT-DISCOVERY:";
-    private static final long PEER_TIMEOUT_MS = 30000; // 30 seconds
-    
     @Value("${server.port:8080}")
     private int serverPort;
     
-    private DatagramSocket socket;
+    // Off: no UDP socket, no announcements, no discovered peers (e.g. the CDS training run)
+    @Value("${signaling.discovery.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${signaling.discovery.port:8888}")
+    private int discoveryPort;
+    
+    @Value("${signaling.discovery.announce-interval-ms:5000}")
+    private long announceIntervalMs;
+    
+    // A peer not announced for this long is removed (checked every expiry-ms / 3)
+    @Value("${signaling.discovery.expiry-ms:30000}")
+    private long expiryMs;
+    
+    @Value("${signaling.discovery.probe-interval-ms:2000}")
+    private long probeIntervalMs;
+    
+    // Nodes probed per interval (least recently probed first), so probe traffic does not grow with the LAN
+    @Value("${signaling.discovery.probe-fanout:8}")
+    private int probeFanout;
+    
+    // EWMA weight of a new RTT sample (TCP SRTT uses 1/8)
+    @Value("${signaling.discovery.rtt-alpha:0.125}")
+    private double rttAlpha;
+    
+    // Ranking cost of one online peer on a node, in milliseconds of RTT
+    @Value("${signaling.discovery.load-weight-ms:0.1}")
+    private double loadWeightMs;
+    
+    private final StartupMilestones startupMilestones;
+    private final PeerRegistry peerRegistry;
+    
+    private UdpDiscoveryTransport transport;
+    private DiscoveryEngine engine;
     private boolean running = false;
     private ScheduledExecutorService executorService;
     
-    // Map of discovered peers: IP -> {peerId, username, lastSeen, port}
-    private final Map<String, DiscoveredPeer> discoveredPeers = new ConcurrentHashMap<>();
-    
     // Set of blocked IP addresses
     private final Set<String> blockedIPs = new HashSet<>();
     private static final String BLOCKED_IPS_FILE = "blocked-ips.txt";
     
+    // Identity announced before any user registers (no ':' - it is a field separator of the announcement)
+    private static final String NODE_PEER_PREFIX = "node-";
+    private static final String NODE_USERNAME = "node";
+    
     // Local peer information
     private String localIP;
-    private String localPeerId;
-    private String localUsername;
+    
+    public PeerDiscoveryService(StartupMilestones startupMilestones, PeerRegistry peerRegistry) {
+        this.startupMilestones = startupMilestones;
+        this.peerRegistry = peerRegistry;
+    }
     
     @PostConstruct
     public void init() {
@@ -67,23 +108,32 @@ public class PeerDiscoveryService {
                 return;
             }
             
-            log.info("🔍 Starting UDP Discovery Service on {}:{}", localIP, DISCOVERY_PORT);
+            if (!enabled) {
+                log.info("🔍 UDP Discovery disabled");
+                return;
+            }
+            
+            log.info("🔍 Starting UDP Discovery Service on {}:{}", localIP, discoveryPort);
             if (!blockedIPs.isEmpty()) {
                 log.info("🚫 Loaded {} blocked IP(s): {}", blockedIPs.size(), blockedIPs);
             }
             
-            // Create UDP socket
-            socket = new DatagramSocket(DISCOVERY_PORT);
-            socket.setBroadcast(true);
-            socket.setReuseAddress(true);
+            transport = new UdpDiscoveryTransport(discoveryPort, localIP);
+            engine = new DiscoveryEngine(transport, serverPort, peerRegistry::getOnlineCount, this::isBlocked,
+                System::nanoTime, new DiscoveryEngine.Settings(expiryMs, rttAlpha, loadWeightMs, probeFanout));
+            // Announce the node itself until a user registers, so idle nodes are still found (and federated)
+            engine.setLocalPeer(NODE_PEER_PREFIX + localIP, NODE_USERNAME);
+            transport.start((sender, message) -> {
+                startupMilestones.discoveryPacket();
+                engine.onPacket(sender, message);
+            });
             
             running = true;
             
-            // Start listening thread
             executorService = Executors.newScheduledThreadPool(2);
-            executorService.execute(this::listenForBroadcasts);
-            executorService.scheduleAtFixedRate(this::broadcastPresence, 0, 5, TimeUnit.SECONDS);
-            executorService.scheduleAtFixedRate(this::cleanupStalePeers, 10, 10, TimeUnit.SECONDS);
+            executorService.scheduleAtFixedRate(this::broadcastPresence, 0, announceIntervalMs, TimeUnit.MILLISECONDS);
+            executorService.scheduleAtFixedRate(engine::expire, expiryMs / 3, expiryMs / 3, TimeUnit.MILLISECONDS);
+            executorService.scheduleAtFixedRate(engine::probe, probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
             
             log.info("✅ UDP Discovery Service started successfully");
         } catch (Exception e) {
@@ -91,104 +141,17 @@ public class PeerDiscoveryService {
         }
     }
     
-    /**
-     * Listen for UDP broadcast messages from other peers
-     */
-    private void listenForBroadcasts() {
-        byte[] buffer = new byte[1024];
-        
-        while (running) {
-            try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                socket.receive(packet);
-                
-                String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
-                String senderIP = packet.getAddress().getHostAddress();
-                
-                // Ignore our own broadcasts
-                if (senderIP.equals(localIP)) {
-                    continue;
-                }
-                
-                if (message.startsWith(DISCOVERY_MESSAGE_PREFIX)) {
-                    handleDiscoveryMessage(senderIP, message);
-                }
-            } catch (IOException e) {
-                if (running) {
-                    log.error("Error receiving UDP broadcast", e);
-                }
-            }
-        }
-    }
-    
-    /**
-     * Handle received discovery message
-     * Format: P2P-CHAT-DISCOVERY:peerId:username:port
-     */
-    private void handleDiscoveryMessage(String ip, String message) {
-        // Check if IP is blocked
-        if (isBlocked(ip)) {
-            log.debug("🚫 Ignoring blocked IP: {}", ip);
-            return;
-        }
-        
-        try {
-            String data = message.substring(DISCOVERY_MESSAGE_PREFIX.length());
-            String[] parts = data.split(":");
-            
-            if (parts.length >= 3) {
-                String peerId = parts[0];
-                String username = parts[1];
-                int port = Integer.parseInt(parts[2]);
-                
-                DiscoveredPeer peer = new DiscoveredPeer(ip, peerId, username, port, System.currentTimeMillis());
-                discoveredPeers.put(ip, peer);
-                
-                log.debug("📡 Discovered peer: {} ({}) at {}:{}", username, peerId, ip, port);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to parse discovery message from {}: {}", ip, message, e);
-        }
-    }
-    
     /**
      * Broadcast our presence to the network
      */
     private void broadcastPresence() {
-        if (!running || socket == null || localIP == null) {
+        if (!running) {
             return;
         }
-        
-        // Only broadcast if we have peer info
-        if (localPeerId == null || localUsername == null) {
-            return;
-        }
-        
         try {
-            // Broadcast peer info: P2P-CHAT-DISCOVERY:peerId:username:port
-            String message = DISCOVERY_MESSAGE_PREFIX + localPeerId + ":" + localUsername + ":" + serverPort;
-            
-            byte[] data = message.getBytes(StandardCharsets.UTF_8);
-            
-            // Broadcast to all interfaces
-            InetAddress broadcastAddress = InetAddress.getByName("255.255.255.255");
-            DatagramPacket packet = new DatagramPacket(
-                data, 
-                data.length, 
-                broadcastAddress, 
-                DISCOVERY_PORT
-            );
-            
-            socket.send(packet);
-            
-            // Also try subnet broadcast
-            String subnet = getSubnet(localIP);
-            if (subnet != null) {
-                InetAddress subnetBroadcast = InetAddress.getByName(subnet + ".255");
-                packet.setAddress(subnetBroadcast);
-                socket.send(packet);
+            if (engine.announce()) {
+                startupMilestones.discoveryPacket();
             }
-            
         } catch (Exception e) {
             log.debug("Error broadcasting presence", e);
         }
@@ -198,37 +161,15 @@ public class PeerDiscoveryService {
      * Broadcast peer information (called by REST endpoint)
      */
     public void broadcastPeerInfo(String peerId, String username) {
-        // Store local peer info for periodic broadcasts
-        this.localPeerId = peerId;
-        this.localUsername = username;
-        
-        if (!running || socket == null || localIP == null) {
+        if (!running) {
             return;
         }
         
+        // Store local peer info for periodic broadcasts
+        engine.setLocalPeer(peerId, username);
         try {
-            String message = DISCOVERY_MESSAGE_PREFIX + peerId + ":" + username + ":" + serverPort;
-            byte[] data = message.getBytes(StandardCharsets.UTF_8);
-            
-            // Broadcast to all interfaces
-            InetAddress broadcastAddress = InetAddress.getByName("255.255.255.255");
-            DatagramPacket packet = new DatagramPacket(
-                data, 
-                data.length, 
-                broadcastAddress, 
-                DISCOVERY_PORT
-            );
-            
-            socket.send(packet);
-            
-            // Also try subnet broadcast
-            String subnet = getSubnet(localIP);
-            if (subnet != null) {
-                InetAddress subnetBroadcast = InetAddress.getByName(subnet + ".255");
-                packet.setAddress(subnetBroadcast);
-                socket.send(packet);
-            }
-            
+            engine.announce();
+            startupMilestones.discoveryPacket();
             log.info("📢 Broadcasted peer info: {} ({})", username, peerId);
         } catch (Exception e) {
             log.error("Error broadcasting peer info", e);
@@ -236,35 +177,45 @@ public class PeerDiscoveryService {
     }
     
     /**
-     * Clean up stale peers (not seen for 30 seconds)
+     * Announce that this node is draining (right away, then in every periodic announcement)
      */
-    private void cleanupStalePeers() {
-        long now = System.currentTimeMillis();
-        discoveredPeers.entrySet().removeIf(entry -> {
-            boolean stale = (now - entry.getValue().lastSeen) > PEER_TIMEOUT_MS;
-            if (stale) {
-                log.debug("🗑️ Removing stale peer: {}", entry.getKey());
-            }
-            return stale;
-        });
+    public void startDraining() {
+        if (!running) {
+            return;
+        }
+        engine.setDraining(true);
+        broadcastPresence();
+        log.info("📢 Announcing draining state in discovery");
     }
     
     /**
      * Get all discovered peers (excluding blocked IPs)
      */
     public Map<String, DiscoveredPeer> getDiscoveredPeers() {
+        if (!running) {
+            return Map.of();
+        }
         // Remove stale peers before returning
-        cleanupStalePeers();
-        
-        // Filter out blocked IPs
-        Map<String, DiscoveredPeer> filtered = new ConcurrentHashMap<>();
-        for (Map.Entry<String, DiscoveredPeer> entry : discoveredPeers.entrySet()) {
-            if (!isBlocked(entry.getKey())) {
-                filtered.put(entry.getKey(), entry.getValue());
-            }
+        engine.expire();
+        return engine.getDiscoveredPeers();
+    }
+    
+    /**
+     * Discovered peers (excluding blocked IPs), best signaling server first
+     */
+    public List<RankedPeer> getRankedPeers() {
+        if (!running) {
+            return List.of();
         }
-        
-        return filtered;
+        engine.expire();
+        return engine.getRankedPeers();
+    }
+    
+    /**
+     * Identity of this signaling node on the LAN (ip:port), null if the local IP is unknown
+     */
+    public String getLocalNodeId() {
+        return localIP != null ? localIP + ":" + serverPort : null;
     }
     
     /**
@@ -396,47 +347,15 @@ public class PeerDiscoveryService {
         }
     }
     
-    /**
-     * Get subnet from IP (e.g., 192.168.1.100 -> 192.168.1)
-     */
-    private String getSubnet(String ip) {
-        if (ip == null) return null;
-        int lastDot = ip.lastIndexOf('.');
-        if (lastDot > 0) {
-            return ip.substring(0, lastDot);
-        }
-        return null;
-    }
-    
     @PreDestroy
     public void shutdown() {
         running = false;
-        if (socket != null && !socket.isClosed()) {
-            socket.close();
+        if (transport != null) {
+            transport.close();
         }
         if (executorService != null) {
             executorService.shutdown();
         }
         log.info("🛑 UDP Discovery Service stopped");
     }
-    
-    /**
-     * Discovered peer information
-     */
-    public static class DiscoveredPeer {
-        public final String ip;
-        public final String peerId;
-        public final String username;
-        public final int port;
-        public final long lastSeen;
-        
-        public DiscoveredPeer(String ip, String peerId, String username, int port, long lastSeen) {
-            this.ip = ip;
-            this.peerId = peerId;
-            this.username = username;
-            this.port = port;
-            this.lastSeen = lastSeen;
-        }
-    }
 }
-
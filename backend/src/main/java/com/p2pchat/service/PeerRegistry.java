@@ -1,5 +1,6 @@
 package com.p2pchat.service;
 
+import com.p2pchat.jfr.PeerRegistryEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -25,9 +26,12 @@ public class PeerRegistry {
      * Register a peer as online
      */
     public void registerPeer(String peerId, String sessionId) {
+        PeerRegistryEvent event = new PeerRegistryEvent();
+        event.begin();
         log.info("📝 Registering peer {} with session {}", peerId, sessionId);
         onlinePeers.put(peerId, sessionId);
         sessionToPeer.put(sessionId, peerId);
+        commitEvent(event, "REGISTER", peerId);
     }
     
     /**
@@ -38,22 +42,28 @@ public class PeerRegistry {
             log.warn("⚠️ Cannot unregister peer: peerId is null");
             return;
         }
+        PeerRegistryEvent event = new PeerRegistryEvent();
+        event.begin();
         log.info("🗑️ Unregistering peer {}", peerId);
         String sessionId = onlinePeers.remove(peerId);
         if (sessionId != null) {
             sessionToPeer.remove(sessionId);
         }
+        commitEvent(event, "UNREGISTER", peerId);
     }
     
     /**
      * Unregister peer by session ID
      */
     public String unregisterBySession(String sessionId) {
+        PeerRegistryEvent event = new PeerRegistryEvent();
+        event.begin();
         String peerId = sessionToPeer.remove(sessionId);
         if (peerId != null) {
             onlinePeers.remove(peerId);
             log.info("🗑️ Unregistered peer {} by session {}", peerId, sessionId);
         }
+        commitEvent(event, "UNREGISTER_SESSION", peerId);
         return peerId;
     }
     
@@ -85,6 +95,23 @@ public class PeerRegistry {
         return onlinePeers.keySet();
     }
     
+    /**
+     * Number of peers online on this node (load hint for discovery)
+     */
+    public int getOnlineCount() {
+        return onlinePeers.size();
+    }
+    
+    private void commitEvent(PeerRegistryEvent event, String operation, String peerId) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.peerId = peerId;
+            event.onlineCount = onlinePeers.size();
+            event.commit();
+        }
+    }
+    
     /**
      * Clear all peers (used for testing or emergency cleanup)
      */
@@ -0,0 +1,106 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presence Publisher - Sends PEER_ONLINE / PEER_OFFLINE notifications
+ *
+ * The PEER_ONLINE body of a peer is serialized once per presence change (with that change's
+ * timestamp) and the same immutable byte[] is reused for the /topic/peers broadcast and for every
+ * later "existing peer" notification sent to newly registered peers. Together with SharedFrameStompEncoder this makes
+ * an N-way presence broadcast cost one serialization instead of N.
+ *
+ * Every broadcast bumps the presence version. A client that fetched the peer list with
+ * POST /api/bootstrap sends the version back on registration; if nothing changed in between,
+ * the per-peer PEER_ONLINE replay is skipped and STOMP only streams changes.
+ */
+@Service
+public class PresencePublisher {
+
+    public static final String PEERS_TOPIC = "/topic/peers";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // peerId -> serialized PEER_ONLINE body of its latest presence change (never mutated, replaced)
+    private final Map<String, Body> onlineBodies = new ConcurrentHashMap<>();
+
+    // Random per boot, so versions handed out by another node or before a restart never match
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16);
+    private final AtomicLong version = new AtomicLong();
+
+    public PresencePublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Broadcast PEER_ONLINE for a peer to all subscribers of /topic/peers
+     * (a new presence change: the cached body is rebuilt with its timestamp)
+     */
+    public void broadcastOnline(String peerId) {
+        version.incrementAndGet();
+        onlineBodies.put(peerId, serializeOnline(peerId));
+        sendOnline(peerId, PEERS_TOPIC);
+    }
+
+    /**
+     * Send the (cached) PEER_ONLINE body of a peer to a single destination
+     */
+    public void sendOnline(String peerId, String destination) {
+        Body body = onlineBodies.computeIfAbsent(peerId, this::serializeOnline);
+        
+        // Fresh headers per send (the template mutates them), shared payload
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(body.contentType());
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(body.payload(), accessor.getMessageHeaders()));
+    }
+
+    /**
+     * Broadcast PEER_OFFLINE for a peer and drop its cached PEER_ONLINE body
+     */
+    public void broadcastOffline(String peerId) {
+        onlineBodies.remove(peerId);
+        version.incrementAndGet();
+        messagingTemplate.convertAndSend(PEERS_TOPIC, notification(SignalingMessage.SignalType.PEER_OFFLINE, peerId));
+    }
+
+    /**
+     * Opaque presence version, bumped before every PEER_ONLINE / PEER_OFFLINE broadcast
+     * (read it before reading the peer sets: the sets are then at least as new as the version)
+     */
+    public String getVersion() {
+        return epoch + "." + version.get();
+    }
+
+    private Body serializeOnline(String peerId) {
+        Message<?> message = messagingTemplate.getMessageConverter()
+            .toMessage(notification(SignalingMessage.SignalType.PEER_ONLINE, peerId), null);
+        if (message == null || !(message.getPayload() instanceof byte[] payload)) {
+            throw new IllegalStateException("No converter produced a byte[] PEER_ONLINE body for " + peerId);
+        }
+        return new Body(payload, message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class));
+    }
+
+    private static SignalingMessage notification(SignalingMessage.SignalType type, String peerId) {
+        SignalingMessage notification = new SignalingMessage();
+        notification.setType(type);
+        notification.setFrom(peerId);
+        notification.setTimestamp(System.currentTimeMillis());
+        return notification;
+    }
+
+    private record Body(byte[] payload, MimeType contentType) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.p2pchat.service;
+
+import com.p2pchat.util.HashedTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side liveness tracking for WebSocket sessions
+ * Every inbound frame (including STOMP heartbeats) refreshes the session; sessions that stay
+ * silent longer than the idle timeout are closed, which triggers the normal disconnect / PEER_OFFLINE path
+ */
+@Service
+public class SessionLivenessTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionLivenessTracker.class);
+
+    private static final int WHEEL_SIZE = 512;
+
+    @Value("${signaling.liveness.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    @Value("${signaling.liveness.tick-ms:1000}")
+    private long tickMs;
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    private HashedTimingWheel<String> wheel;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>(tickMs, WHEEL_SIZE, idleTimeoutMs, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "liveness-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("💓 Session liveness tracker started (idle timeout {} ms, tick {} ms)", idleTimeoutMs, tickMs);
+    }
+
+    /**
+     * Start tracking a newly established session
+     */
+    public void sessionOpened(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+        wheel.add(session.getId(), System.currentTimeMillis());
+    }
+
+    /**
+     * Record inbound activity (any frame, including heartbeats)
+     */
+    public void sessionActive(String sessionId) {
+        wheel.touch(sessionId, System.currentTimeMillis());
+    }
+
+    /**
+     * Stop tracking a closed session
+     */
+    public void sessionClosed(String sessionId) {
+        sessions.remove(sessionId);
+        wheel.remove(sessionId);
+    }
+
+    public int getTrackedSessionCount() {
+        return wheel.size();
+    }
+
+    private void tick() {
+        try {
+            wheel.advance(System.currentTimeMillis(), this::evict);
+        } catch (Exception e) {
+            log.error("Error advancing liveness wheel", e);
+        }
+    }
+
+    private void evict(String sessionId) {
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        log.info("💤 Session {} silent for more than {} ms - closing", sessionId, idleTimeoutMs);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.warn("Error closing idle session {}", sessionId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
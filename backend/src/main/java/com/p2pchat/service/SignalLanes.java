@@ -0,0 +1,232 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.util.LatencyHistogram;
+import com.p2pchat.util.PriorityLaneQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signal Lanes - SignalType-aware priority for the inbound and outbound STOMP channels
+ *
+ * Tasks queued on the clientInboundChannel / clientOutboundChannel executors are split into
+ * CONTROL (call setup, connect/subscribe frames) > PRESENCE > TYPING > RELAY lanes, so OFFER /
+ * ANSWER / ICE_CANDIDATE never wait behind a presence storm, a typing flood or relayed chat. Per-lane queue wait is
+ * recorded so call-setup latency can be checked under load (GET /api/metrics/lanes); CONTROL-lane
+ * waits also drive the AdmissionController.
+ */
+@Service
+public class SignalLanes {
+
+    public enum Lane {
+        CONTROL,
+        PRESENCE,
+        TYPING,
+        RELAY;
+
+        static Lane of(SignalingMessage.SignalType type) {
+            return switch (type) {
+                case OFFER, ANSWER, ICE_CANDIDATE, CALL_REQUEST, CALL_ACCEPT, CALL_REJECT, CALL_END, REDIRECT -> CONTROL;
+                case TYPING -> TYPING;
+                case MESSAGE -> RELAY;
+                default -> PRESENCE;
+            };
+        }
+    }
+
+    private static final String SIGNAL_PREFIX = "/app/signal/";
+    private static final byte[] TYPE_PREFIX = "{\"type\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final SignalingMessage.SignalType[] TYPES = SignalingMessage.SignalType.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+
+    static {
+        for (int i = 0; i < TYPES.length; i++) {
+            TYPE_NAMES[i] = (TYPES[i].name() + "\"").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Value("${signaling.lanes.enabled:true}")
+    private boolean enabled;
+
+    // A lower lane whose oldest task waited longer than this is served ahead of higher lanes...
+    @Value("${signaling.lanes.starvation-ms:50}")
+    private long starvationMs;
+
+    // ...but at most once every N dequeues
+    @Value("${signaling.lanes.promotion-interval:4}")
+    private int promotionInterval;
+
+    // Tasks queued per channel across all lanes; beyond that new tasks are rejected
+    @Value("${signaling.lanes.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private final AdmissionController admissionController;
+
+    private final Channel inbound = new Channel();
+    private final Channel outbound = new Channel();
+
+    public SignalLanes(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Executor for clientInboundChannel (client frames -> @MessageMapping / broker)
+     */
+    public ThreadPoolTaskExecutor inboundExecutor() {
+        return executor("clientInboundChannel-", inbound, true);
+    }
+
+    /**
+     * Executor for clientOutboundChannel (broker -> client sessions)
+     */
+    public ThreadPoolTaskExecutor outboundExecutor() {
+        return executor("clientOutboundChannel-", outbound, false);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inbound", inbound.snapshot());
+        stats.put("outbound", outbound.snapshot());
+        return stats;
+    }
+
+    /**
+     * Inbound lane from the STOMP frame type and the /app/signal/* destination
+     */
+    static Lane classifyInbound(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return Lane.CONTROL; // CONNECT, SUBSCRIBE, DISCONNECT, ...
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(SIGNAL_PREFIX)) {
+            return Lane.CONTROL; // federation links and other server-side endpoints
+        }
+        return switch (destination.substring(SIGNAL_PREFIX.length())) {
+            case "offer", "answer", "ice-candidate", "call-request", "call-accept", "call-reject", "call-end" -> Lane.CONTROL;
+            case "typing" -> Lane.TYPING;
+            case "message" -> Lane.RELAY;
+            default -> Lane.PRESENCE;
+        };
+    }
+
+    /**
+     * Outbound lane from the "type" field that Jackson writes first in every SignalingMessage body
+     */
+    static Lane classifyOutbound(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return Lane.CONTROL; // CONNECTED, RECEIPT, ERROR, heartbeats, ...
+        }
+        SignalingMessage.SignalType type = sniffType(payload);
+        return type != null ? Lane.of(type) : Lane.PRESENCE;
+    }
+
+    private static SignalingMessage.SignalType sniffType(byte[] payload) {
+        if (!regionMatches(payload, 0, TYPE_PREFIX)) {
+            return null;
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            if (regionMatches(payload, TYPE_PREFIX.length, TYPE_NAMES[i])) {
+                return TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(byte[] payload, int offset, byte[] expected) {
+        if (payload.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (payload[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ThreadPoolTaskExecutor executor(String threadNamePrefix, Channel channel, boolean inboundChannel) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+                return new PriorityLaneQueue<Runnable>(Lane.values().length, queueCapacity,
+                    task -> classify(task, inboundChannel).ordinal(),
+                    starvationMs * 1_000_000L, promotionInterval, (lane, waitNanos, promoted) -> {
+                        channel.dequeued(lane, waitNanos, promoted);
+                        if (lane == Lane.CONTROL.ordinal()) {
+                            admissionController.recordLatency(waitNanos);
+                        }
+                    });
+            }
+        };
+        // Spring's default channel executors also run 2 threads per CPU: their queue is unbounded, so the
+        // pool never grows past the core size. Here the queue is bounded, so the pool is fixed explicitly.
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            channel.rejected.increment();
+            new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+        });
+        executor.setThreadNamePrefix(threadNamePrefix);
+        return executor;
+    }
+
+    private static Lane classify(Runnable task, boolean inboundChannel) {
+        if (task instanceof MessageHandlingRunnable handling) {
+            return inboundChannel ? classifyInbound(handling.getMessage()) : classifyOutbound(handling.getMessage());
+        }
+        return Lane.CONTROL;
+    }
+
+    /**
+     * Per-lane queue wait histograms and starvation promotions of one channel
+     */
+    private static final class Channel {
+
+        private final LatencyHistogram[] waits = new LatencyHistogram[Lane.values().length];
+        private final LongAdder promotions = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        Channel() {
+            for (int i = 0; i < waits.length; i++) {
+                waits[i] = new LatencyHistogram();
+            }
+        }
+
+        void dequeued(int lane, long waitNanos, boolean promoted) {
+            waits[lane].record(waitNanos);
+            if (promoted) {
+                promotions.increment();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            for (Lane lane : Lane.values()) {
+                snapshot.put(lane.name(), waits[lane.ordinal()].snapshot());
+            }
+            snapshot.put("starvationPromotions", promotions.sum());
+            snapshot.put("rejected", rejected.sum());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.p2pchat.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.p2pchat.capture.CaptureEntry;
+import com.p2pchat.capture.CaptureLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Records inbound signaling traffic to a binary capture log for later replay
+ * Disabled by default - enable with signaling.capture.enabled=true
+ */
+@Service
+public class SignalingCaptureService {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalingCaptureService.class);
+
+    private static final long REGION_SIZE = 16L * 1024 * 1024; // 16 MB per mapped region
+
+    @Value("${signaling.capture.enabled:false}")
+    private boolean enabled;
+
+    @Value("${signaling.capture.file:signaling-capture.bin}")
+    private String captureFile;
+
+    @Value("${signaling.capture.redact-payload:true}")
+    private boolean redactPayload;
+
+    private final ObjectMapper objectMapper;
+
+    private CaptureLogWriter writer;
+
+    // Wall clock anchor so arrival times are both absolute and monotonic
+    private long baseEpochNanos;
+    private long baseNanoTime;
+
+    public SignalingCaptureService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path path = Paths.get(captureFile).toAbsolutePath();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            writer = new CaptureLogWriter(path, REGION_SIZE);
+            baseEpochNanos = System.currentTimeMillis() * 1_000_000L;
+            baseNanoTime = System.nanoTime();
+            log.info("🎙️ Signaling capture enabled: {} (redact payload: {})", path, redactPayload);
+        } catch (IOException e) {
+            log.error("❌ Failed to open signaling capture file {}", captureFile, e);
+            writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Record an inbound client message (only SEND frames are captured)
+     */
+    public void record(Message<?> message) {
+        if (writer == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || !(message.getPayload() instanceof byte[] body)) {
+            return;
+        }
+
+        long arrival = baseEpochNanos + (System.nanoTime() - baseNanoTime);
+        byte flags = 0;
+        if (redactPayload) {
+            body = redact(body);
+            flags |= CaptureEntry.FLAG_REDACTED;
+        }
+
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.append(arrival, accessor.getSessionId(), accessor.getDestination(), flags, body);
+            } catch (IOException | RuntimeException e) {
+                log.error("❌ Failed to append to signaling capture, disabling capture", e);
+                closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Replace the SDP / ICE payload with filler of the same serialized size,
+     * keeping message shape (type, from, to, size) intact for replay
+     */
+    private byte[] redact(byte[] body) {
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            if (root instanceof ObjectNode object && object.hasNonNull("payload")) {
+                int size = objectMapper.writeValueAsBytes(object.get("payload")).length;
+                object.put("payload", "x".repeat(Math.max(0, size - 2)));
+                return objectMapper.writeValueAsBytes(object);
+            }
+            return body;
+        } catch (IOException e) {
+            // Not JSON - keep only the size
+            return new byte[body.length];
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (writer != null) {
+            log.info("🎙️ Closing signaling capture ({} bytes)", writer.size());
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Error closing signaling capture", e);
+        }
+        writer = null;
+    }
+}
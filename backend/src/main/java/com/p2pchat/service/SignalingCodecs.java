@@ -0,0 +1,213 @@
+package com.p2pchat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signaling Codecs - per-connection choice between JSON (default) and CBOR message bodies
+ *
+ * A client opts in with the CONNECT header "accept-content-type: application/cbor". Only raw
+ * WebSocket connections (/ws/signaling/websocket) qualify: SockJS transports are text-only and
+ * stay on JSON. The JSON MESSAGE bodies addressed to it are then transcoded to CBOR after lane
+ * classification, and it may SEND CBOR bodies. CBOR frames are labelled
+ * "application/octet-stream;codec=cbor" because Spring (server and client) only writes binary
+ * WebSocket frames for octet-stream content, and CBOR does not survive a text frame;
+ * "application/cbor" is accepted on SEND frames as well. A broadcast body is transcoded once
+ * and shared by all CBOR recipients.
+ */
+@Service
+public class SignalingCodecs {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalingCodecs.class);
+
+    public static final String ACCEPT_HEADER = "accept-content-type";
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+    public static final MimeType CBOR_FRAME = new MimeType("application", "octet-stream", Map.of("codec", "cbor"));
+
+    private static final int CACHE_SLOTS = 256; // power of two
+
+    // Allow clients to negotiate CBOR (JSON is always available)
+    @Value("${signaling.codecs.cbor.enabled:true}")
+    private boolean cborEnabled;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    // Sessions able to receive binary frames (raw WebSocket, not SockJS)
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    // Recently transcoded bodies, slot = identityHashCode(JSON body); a collision replaces the slot
+    private final AtomicReferenceArray<Transcoded> transcoded = new AtomicReferenceArray<>(CACHE_SLOTS);
+
+    private final LongAdder transcodes = new LongAdder();
+    private final LongAdder sharedTranscodes = new LongAdder();
+    private final LongAdder failedTranscodes = new LongAdder();
+    private final LongAdder jsonBytes = new LongAdder();
+    private final LongAdder cborBytes = new LongAdder();
+
+    /**
+     * CBOR body content-types: application/cbor or application/octet-stream;codec=cbor
+     */
+    public static boolean isCbor(MimeType contentType) {
+        return contentType != null && (APPLICATION_CBOR.isCompatibleWith(contentType)
+            || CBOR_FRAME.isCompatibleWith(contentType) && "cbor".equals(contentType.getParameter("codec")));
+    }
+
+    public boolean isCborEnabled() {
+        return cborEnabled;
+    }
+
+    /**
+     * Converter for inbound SEND frames with a CBOR content-type
+     * (strict: frames without a content-type keep going to the JSON converter)
+     */
+    public MessageConverter cborConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(APPLICATION_CBOR, CBOR_FRAME) {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return isCbor(getMimeType(headers));
+            }
+        };
+        converter.setObjectMapper(cborMapper);
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    public void sessionOpened(WebSocketSession session) {
+        if (!(session instanceof SockJsSession)) {
+            binarySessions.add(session.getId());
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        binarySessions.remove(sessionId);
+        cborSessions.remove(sessionId);
+    }
+
+    /**
+     * CONNECT: switch the session to CBOR if the client accepts it and the transport carries binary frames
+     */
+    public void negotiate(String sessionId, List<String> accepted) {
+        if (!cborEnabled || sessionId == null || accepted == null) {
+            return;
+        }
+        boolean wantsCbor = accepted.stream()
+            .flatMap(value -> MimeTypeUtils.parseMimeTypes(value).stream())
+            .anyMatch(SignalingCodecs::isCbor);
+        if (!wantsCbor) {
+            return;
+        }
+        if (binarySessions.contains(sessionId)) {
+            cborSessions.add(sessionId);
+            log.debug("📦 Session {} negotiated CBOR", sessionId);
+        } else {
+            log.debug("📦 Session {} asked for CBOR over a text-only transport, keeping JSON", sessionId);
+        }
+    }
+
+    public boolean isCborSession(String sessionId) {
+        return sessionId != null && cborSessions.contains(sessionId);
+    }
+
+    /**
+     * Outbound: transcode a JSON MESSAGE body for a CBOR session (anything else is returned as is)
+     */
+    public Message<?> encodeForSession(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        if (!isCborSession(SimpMessageHeaderAccessor.getSessionId(headers))
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json) || json.length == 0
+                || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType(headers))) {
+            return message;
+        }
+
+        int slot = System.identityHashCode(json) & (CACHE_SLOTS - 1);
+        Transcoded cached = transcoded.get(slot);
+        byte[] cbor;
+        if (cached != null && cached.json == json) {
+            sharedTranscodes.increment();
+            cbor = cached.cbor;
+        } else {
+            try {
+                cbor = cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+            } catch (IOException e) {
+                failedTranscodes.increment();
+                log.warn("⚠️ Could not transcode a JSON body to CBOR, sending JSON", e);
+                return message;
+            }
+            transcoded.set(slot, new Transcoded(json, cbor));
+            transcodes.increment();
+        }
+        jsonBytes.add(json.length);
+        cborBytes.add(cbor.length);
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(CBOR_FRAME);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Inbound CBOR body as JSON (for the signaling capture), null if it is not CBOR
+     */
+    public byte[] toJson(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] body) || !isCbor(contentType(message.getHeaders()))) {
+            return null;
+        }
+        try {
+            return jsonMapper.writeValueAsBytes(cborMapper.readTree(body));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cborEnabled", cborEnabled);
+        stats.put("cborSessions", cborSessions.size());
+        stats.put("transcodes", transcodes.sum());
+        stats.put("sharedTranscodes", sharedTranscodes.sum());
+        stats.put("failedTranscodes", failedTranscodes.sum());
+        long json = jsonBytes.sum();
+        stats.put("jsonBytes", json);
+        stats.put("cborBytes", cborBytes.sum());
+        stats.put("cborSizeRatio", json > 0 ? (double) cborBytes.sum() / json : null);
+        return stats;
+    }
+
+    private static MimeType contentType(MessageHeaders headers) {
+        Object value = headers.get(MessageHeaders.CONTENT_TYPE);
+        if (value instanceof MimeType mimeType) {
+            return mimeType;
+        }
+        return value instanceof String text ? MimeTypeUtils.parseMimeType(text) : null;
+    }
+
+    private record Transcoded(byte[] json, byte[] cbor) {
+    }
+}
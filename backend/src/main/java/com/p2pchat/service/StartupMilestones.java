@@ -0,0 +1,48 @@
+package com.p2pchat.service;
+
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long after JVM start the server reached its first user-visible milestones
+ * (used to compare startup modes, see the fast-startup Maven profile)
+ */
+@Service
+public class StartupMilestones {
+
+    private final long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final AtomicLong firstSignalingConnectionMs = new AtomicLong(-1);
+    private final AtomicLong firstDiscoveryPacketMs = new AtomicLong(-1);
+
+    /**
+     * First STOMP session connected on /ws/signaling
+     */
+    public void signalingConnected() {
+        firstSignalingConnectionMs.compareAndSet(-1, sinceJvmStart());
+    }
+
+    /**
+     * First UDP discovery packet sent or received
+     */
+    public void discoveryPacket() {
+        if (firstDiscoveryPacketMs.get() < 0) {
+            firstDiscoveryPacketMs.compareAndSet(-1, sinceJvmStart());
+        }
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("firstSignalingConnectionMs", firstSignalingConnectionMs.get());
+        result.put("firstDiscoveryPacketMs", firstDiscoveryPacketMs.get());
+        return result;
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - jvmStartTime;
+    }
+}
@@ -0,0 +1,215 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Coalesces TYPING signals per (from, to) conversation
+ * Forwards at most one typing state per interval (last writer wins) and sends a trailing
+ * "stopped" state once the sender has been quiet for the stop timeout
+ */
+@Service
+public class TypingCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(TypingCoalescer.class);
+
+    @Value("${signaling.typing.interval-ms:1000}")
+    private long intervalMs;
+
+    @Value("${signaling.typing.stop-timeout-ms:3000}")
+    private long stopTimeoutMs;
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // "from|to" -> coalescing state
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+
+    private final LongSupplier nanoTime;
+    private ScheduledExecutorService executorService;
+
+    @Autowired
+    public TypingCoalescer(SimpMessagingTemplate messagingTemplate) {
+        this(messagingTemplate, System::nanoTime, null);
+    }
+
+    /**
+     * @param executorService runs the flush pass (null: own single thread, created on init)
+     */
+    TypingCoalescer(SimpMessagingTemplate messagingTemplate, LongSupplier nanoTime,
+                    ScheduledExecutorService executorService) {
+        this.messagingTemplate = messagingTemplate;
+        this.nanoTime = nanoTime;
+        this.executorService = executorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executorService == null) {
+            executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "typing-coalescer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        long tick = Math.max(50, intervalMs / 4);
+        executorService.scheduleAtFixedRate(this::flush, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Accept a TYPING signal; it is forwarded now, later, or replaced by a newer state
+     */
+    public void submit(SignalingMessage message) {
+        received.increment();
+        if (message.getFrom() == null || message.getTo() == null) {
+            return;
+        }
+
+        long now = nanoTime.getAsLong();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        String key = message.getFrom() + "|" + message.getTo();
+        boolean stopped = isStopped(message);
+        SignalingMessage toSend = null;
+
+        while (true) {
+            Conversation conversation = conversations.computeIfAbsent(key, k -> new Conversation(now - intervalNanos));
+            synchronized (conversation) {
+                if (conversation.removed) {
+                    continue; // lost a race with flush(), retry with a fresh entry
+                }
+                conversation.lastEventAt = now;
+                if (now - conversation.lastForwardedAt >= intervalNanos || (stopped && conversation.lastForwardedTyping)) {
+                    // Leading edge (or an explicit stop after "typing") goes out immediately
+                    toSend = message;
+                    conversation.markForwarded(now, !stopped);
+                } else {
+                    conversation.pending = message;
+                }
+            }
+            break;
+        }
+
+        if (toSend != null) {
+            forward(toSend);
+        }
+    }
+
+    /**
+     * Periodic pass: send the latest pending state once the interval has elapsed, and a
+     * trailing "stopped" for conversations that went quiet
+     */
+    private void flush() {
+        long now = nanoTime.getAsLong();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        long stopTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stopTimeoutMs);
+        try {
+            conversations.forEach((key, conversation) -> {
+                SignalingMessage toSend = null;
+                boolean remove = false;
+
+                synchronized (conversation) {
+                    if (conversation.pending != null && now - conversation.lastForwardedAt >= intervalNanos) {
+                        toSend = conversation.pending;
+                        conversation.markForwarded(now, !isStopped(toSend));
+                    } else if (conversation.pending == null && now - conversation.lastEventAt >= stopTimeoutNanos) {
+                        if (conversation.lastForwardedTyping) {
+                            toSend = stoppedSignal(key);
+                        }
+                        conversation.removed = true;
+                        remove = true;
+                    }
+                }
+
+                if (remove) {
+                    conversations.remove(key, conversation);
+                }
+                if (toSend != null) {
+                    forward(toSend);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error flushing typing coalescer", e);
+        }
+    }
+
+    private void forward(SignalingMessage message) {
+        forwarded.increment();
+        message.setType(SignalingMessage.SignalType.TYPING);
+        message.setTimestamp(System.currentTimeMillis());
+        messagingTemplate.convertAndSendToUser(message.getTo(), "/queue/signal", message);
+    }
+
+    private static SignalingMessage stoppedSignal(String key) {
+        int separator = key.indexOf('|');
+        return new SignalingMessage(SignalingMessage.SignalType.TYPING,
+            key.substring(0, separator), key.substring(separator + 1),
+            Map.of("typing", false), System.currentTimeMillis());
+    }
+
+    /**
+     * A typing signal means "stopped" when its payload is false or {typing|isTyping: false}
+     */
+    private static boolean isStopped(SignalingMessage message) {
+        Object payload = message.getPayload();
+        if (payload instanceof Boolean typing) {
+            return !typing;
+        }
+        if (payload instanceof Map<?, ?> map) {
+            Object typing = map.containsKey("typing") ? map.get("typing") : map.get("isTyping");
+            return Boolean.FALSE.equals(typing);
+        }
+        return false;
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("received", received.sum());
+        stats.put("forwarded", forwarded.sum());
+        stats.put("activeConversations", (long) conversations.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class Conversation {
+        SignalingMessage pending;
+        long lastForwardedAt; // nanoTime
+        long lastEventAt;     // nanoTime
+        boolean lastForwardedTyping;
+        boolean removed;
+
+        // neverForwardedAt: a time at least one interval back, so the first signal is a leading edge
+        Conversation(long neverForwardedAt) {
+            this.lastForwardedAt = neverForwardedAt;
+        }
+
+        void markForwarded(long now, boolean typing) {
+            pending = null;
+            lastForwardedAt = now;
+            lastForwardedTyping = typing;
+        }
+    }
+}
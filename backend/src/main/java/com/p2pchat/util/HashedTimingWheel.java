@@ -0,0 +1,159 @@
+package com.p2pchat.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for idle-timeout tracking.
+ *
+ * Each key sits in exactly one bucket of a fixed-size wheel. {@link #touch} only records the
+ * last-activity time (O(1), lock-free), and entries are lazily re-bucketed when the wheel
+ * reaches them, so the cost per heartbeat stays constant no matter how many keys are tracked.
+ * {@link #advance} is called from a single ticker thread.
+ */
+public class HashedTimingWheel<K> {
+
+    private static final class Node<K> {
+        final K key;
+        volatile long lastActivity;
+        long deadline;
+        Node<K> prev;
+        Node<K> next;
+        Node<K> bucket; // sentinel of the owning bucket, null when unlinked
+
+        Node(K key, long now) {
+            this.key = key;
+            this.lastActivity = now;
+        }
+    }
+
+    private final long tickMs;
+    private final long timeoutMs;
+    private final Node<K>[] buckets;
+    private final int mask;
+    private final Map<K, Node<K>> index = new ConcurrentHashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMs, int wheelSize, long timeoutMs, long now) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMs = tickMs;
+        this.timeoutMs = timeoutMs;
+        this.mask = wheelSize - 1;
+        this.buckets = new Node[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            Node<K> sentinel = new Node<>(null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            buckets[i] = sentinel;
+        }
+        this.currentTick = now / tickMs;
+    }
+
+    /**
+     * Start tracking a key (or refresh it if already tracked)
+     */
+    public void add(K key, long now) {
+        Node<K> node = new Node<>(key, now);
+        Node<K> existing = index.putIfAbsent(key, node);
+        if (existing != null) {
+            existing.lastActivity = now;
+            return;
+        }
+        synchronized (this) {
+            schedule(node, now + timeoutMs);
+        }
+    }
+
+    /**
+     * Record activity for a key - O(1), no locking
+     */
+    public void touch(K key, long now) {
+        Node<K> node = index.get(key);
+        if (node != null) {
+            node.lastActivity = now;
+        }
+    }
+
+    /**
+     * Stop tracking a key
+     */
+    public void remove(K key) {
+        Node<K> node = index.remove(key);
+        if (node != null) {
+            synchronized (this) {
+                unlink(node);
+            }
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Process all ticks up to {@code now}, handing keys that stayed silent for the
+     * whole timeout to {@code onExpired}
+     */
+    public void advance(long now, Consumer<K> onExpired) {
+        long targetTick = now / tickMs;
+        while (true) {
+            Node<K> expired = null;
+            synchronized (this) {
+                if (currentTick > targetTick) {
+                    return;
+                }
+                Node<K> sentinel = buckets[(int) (currentTick & mask)];
+                Node<K> node = sentinel.next;
+                while (node != sentinel) {
+                    Node<K> next = node.next;
+                    if (node.deadline <= now) {
+                        long deadline = node.lastActivity + timeoutMs;
+                        unlink(node);
+                        if (deadline <= now) {
+                            // Chain expired nodes through 'next' for delivery outside the lock
+                            node.next = expired;
+                            expired = node;
+                        } else {
+                            schedule(node, deadline);
+                        }
+                    }
+                    node = next;
+                }
+                currentTick++;
+            }
+            for (Node<K> node = expired; node != null; node = node.next) {
+                if (index.remove(node.key, node)) {
+                    onExpired.accept(node.key);
+                }
+            }
+        }
+    }
+
+    private void schedule(Node<K> node, long deadline) {
+        // Never schedule into the bucket currently being processed
+        long tick = Math.max(deadline / tickMs, currentTick + 1);
+        node.deadline = deadline;
+        Node<K> sentinel = buckets[(int) (tick & mask)];
+        node.bucket = sentinel;
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.bucket == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        node.bucket = null;
+    }
+}
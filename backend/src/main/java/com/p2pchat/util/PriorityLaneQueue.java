@@ -0,0 +1,359 @@
+package com.p2pchat.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Blocking queue with strict-priority lanes (lane 0 = highest), FIFO within a lane, optionally
+ * bounded by a total capacity (offer() then fails when full, put() waits).
+ *
+ * Starvation protection: when the head of a lower lane has waited longer than
+ * {@code maxWaitNanos}, it is served ahead of higher lanes, but at most once every
+ * {@code promotionInterval} dequeues, so a backlogged low lane gets a guaranteed trickle
+ * without being able to take over. Every dequeue reports its lane and queue wait to the
+ * {@link WaitListener}, after the queue lock is released. Usable as the work queue of a
+ * ThreadPoolExecutor.
+ */
+public class PriorityLaneQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    @FunctionalInterface
+    public interface WaitListener {
+        void dequeued(int lane, long waitNanos, boolean promoted);
+    }
+
+    private record Entry<E>(E item, long enqueuedNanos) {
+    }
+
+    private record Dequeued<E>(E item, int lane, long waitNanos, boolean promoted) {
+    }
+
+    private final ArrayDeque<Entry<E>>[] lanes;
+    private final int capacity;
+    private final ToIntFunction<? super E> classifier;
+    private final long maxWaitNanos;
+    private final int promotionInterval;
+    private final WaitListener listener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int count;
+    private int sincePromotion;
+
+    /**
+     * Unbounded queue
+     */
+    public PriorityLaneQueue(int laneCount, ToIntFunction<? super E> classifier, long maxWaitNanos,
+                             int promotionInterval, WaitListener listener) {
+        this(laneCount, Integer.MAX_VALUE, classifier, maxWaitNanos, promotionInterval, listener);
+    }
+
+    /**
+     * @param capacity total number of items across all lanes
+     */
+    @SuppressWarnings("unchecked")
+    public PriorityLaneQueue(int laneCount, int capacity, ToIntFunction<? super E> classifier, long maxWaitNanos,
+                             int promotionInterval, WaitListener listener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.lanes = new ArrayDeque[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+        this.capacity = capacity;
+        this.classifier = classifier;
+        this.maxWaitNanos = maxWaitNanos;
+        this.promotionInterval = Math.max(1, promotionInterval);
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean offer(E item) {
+        Entry<E> entry = entry(item);
+        int lane = lane(item);
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+            enqueue(lane, entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E item) throws InterruptedException {
+        Entry<E> entry = entry(item);
+        int lane = lane(item);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            enqueue(lane, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E item, long timeout, TimeUnit unit) throws InterruptedException {
+        Entry<E> entry = entry(item);
+        int lane = lane(item);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(lane, entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        Dequeued<E> dequeued;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            dequeued = dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return report(dequeued);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        Dequeued<E> dequeued;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            dequeued = dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return report(dequeued);
+    }
+
+    @Override
+    public E poll() {
+        Dequeued<E> dequeued;
+        lock.lock();
+        try {
+            dequeued = count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+        return dequeued != null ? report(dequeued) : null;
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<Entry<E>> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst().item();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of queued items per lane
+     */
+    public int[] laneSizes() {
+        lock.lock();
+        try {
+            int[] sizes = new int[lanes.length];
+            for (int i = 0; i < lanes.length; i++) {
+                sizes[i] = lanes[i].size();
+            }
+            return sizes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        lock.lock();
+        try {
+            for (ArrayDeque<Entry<E>> lane : lanes) {
+                Iterator<Entry<E>> it = lane.iterator();
+                while (it.hasNext()) {
+                    if (it.next().item().equals(item)) {
+                        it.remove();
+                        count--;
+                        notFull.signal();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        List<Dequeued<E>> drained = new ArrayList<>();
+        lock.lock();
+        try {
+            while (count > 0 && drained.size() < maxElements) {
+                drained.add(dequeue());
+            }
+        } finally {
+            lock.unlock();
+        }
+        drained.forEach(dequeued -> target.add(report(dequeued)));
+        return drained.size();
+    }
+
+    /**
+     * Snapshot iterator in priority order; remove() removes the item from the queue
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ArrayDeque<Entry<E>> lane : lanes) {
+                lane.forEach(entry -> snapshot.add(entry.item()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                PriorityLaneQueue.this.remove(last);
+            }
+        };
+    }
+
+    private static <E> Entry<E> entry(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        return new Entry<>(item, System.nanoTime());
+    }
+
+    private int lane(E item) {
+        return Math.min(lanes.length - 1, Math.max(0, classifier.applyAsInt(item)));
+    }
+
+    // Called with the lock held and count < capacity
+    private void enqueue(int lane, Entry<E> entry) {
+        lanes[lane].addLast(entry);
+        count++;
+        notEmpty.signal();
+    }
+
+    // Called with the lock held and count > 0; the caller reports the result after unlocking
+    private Dequeued<E> dequeue() {
+        long now = System.nanoTime();
+        int lane = 0;
+        while (lanes[lane].isEmpty()) {
+            lane++;
+        }
+
+        boolean promoted = false;
+        if (++sincePromotion >= promotionInterval) {
+            // Serve the longest-waiting lower lane whose head is past the starvation limit
+            long oldest = now - maxWaitNanos;
+            for (int lower = lane + 1; lower < lanes.length; lower++) {
+                Entry<E> head = lanes[lower].peekFirst();
+                if (head != null && head.enqueuedNanos() <= oldest) {
+                    oldest = head.enqueuedNanos();
+                    lane = lower;
+                    promoted = true;
+                }
+            }
+            if (promoted) {
+                sincePromotion = 0;
+            }
+        }
+
+        Entry<E> entry = lanes[lane].pollFirst();
+        count--;
+        notFull.signal();
+        return new Dequeued<>(entry.item(), lane, now - entry.enqueuedNanos(), promoted);
+    }
+
+    // Called without the lock: the listener may be slow or take locks of its own
+    private E report(Dequeued<E> dequeued) {
+        listener.dequeued(dequeued.lane(), dequeued.waitNanos(), dequeued.promoted());
+        return dequeued.item();
+    }
+}
@@ -0,0 +1,103 @@
+package com.p2pchat.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedFrameStompEncoderTest {
+
+    private static final byte[] BODY = "{\"type\":\"PEER_ONLINE\",\"from\":\"alice\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final SharedFrameStompEncoder shared = new SharedFrameStompEncoder();
+    private final StompEncoder standard = new StompEncoder();
+    private final StompDecoder decoder = new StompDecoder();
+
+    private static Map<String, Object> messageHeaders(String destination, String subscription, String messageId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId(subscription);
+        accessor.setMessageId(messageId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setContentLength(BODY.length);
+        // Every character STOMP 1.2 escapes, in a header value and in a header name
+        accessor.setNativeHeader("x-note", "a:b\\c\nd\re");
+        accessor.setNativeHeader("x:key", "plain");
+        return accessor.getMessageHeaders();
+    }
+
+    private Message<byte[]> decode(byte[] frame) {
+        List<Message<byte[]>> messages = decoder.decode(ByteBuffer.wrap(frame));
+        assertThat(messages).hasSize(1);
+        return messages.get(0);
+    }
+
+    private static void assertSameFrame(Message<byte[]> actual, Message<byte[]> expected) {
+        StompHeaderAccessor actualHeaders = StompHeaderAccessor.wrap(actual);
+        StompHeaderAccessor expectedHeaders = StompHeaderAccessor.wrap(expected);
+        assertThat(actualHeaders.getCommand()).isEqualTo(expectedHeaders.getCommand());
+        assertThat(actualHeaders.toNativeHeaderMap()).isEqualTo(expectedHeaders.toNativeHeaderMap());
+        assertThat(actual.getPayload()).isEqualTo(expected.getPayload());
+    }
+
+    @Test
+    void messageFrameDecodesLikeTheStandardEncoding() {
+        Map<String, Object> headers = messageHeaders("/topic/peers", "sub-0", "msg-1");
+
+        Message<byte[]> decoded = decode(shared.encode(headers, BODY));
+
+        assertSameFrame(decoded, decode(standard.encode(headers, BODY)));
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(decoded);
+        assertThat(accessor.getFirstNativeHeader("x-note")).isEqualTo("a:b\\c\nd\re");
+        assertThat(accessor.getFirstNativeHeader("x:key")).isEqualTo("plain");
+        assertThat(accessor.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(accessor.getContentLength()).isEqualTo(BODY.length);
+    }
+
+    @Test
+    void samePayloadToDifferentDestinationsSharesTheBody() {
+        // PresencePublisher's replay: one body, one /topic/peer/{id} destination per new peer
+        for (String peer : List.of("bob", "carol", "dave")) {
+            Map<String, Object> headers = messageHeaders("/topic/peer/" + peer, "sub-" + peer, "msg-" + peer);
+
+            Message<byte[]> decoded = decode(shared.encode(headers, BODY));
+
+            assertSameFrame(decoded, decode(standard.encode(headers, BODY)));
+            assertThat(StompHeaderAccessor.wrap(decoded).getDestination()).isEqualTo("/topic/peer/" + peer);
+        }
+        assertThat(shared.getStats()).containsEntry("sharedMisses", 1L).containsEntry("sharedHits", 2L);
+    }
+
+    @Test
+    void equalButDistinctPayloadsAreEncodedSeparately() {
+        Map<String, Object> headers = messageHeaders("/topic/peers", "sub-0", "msg-1");
+
+        shared.encode(headers, BODY);
+        byte[] frame = shared.encode(headers, BODY.clone());
+
+        assertSameFrame(decode(frame), decode(standard.encode(headers, BODY)));
+        assertThat(shared.getStats()).containsEntry("sharedMisses", 2L).containsEntry("sharedHits", 0L);
+    }
+
+    @Test
+    void otherFramesUseTheStandardEncoding() {
+        StompHeaderAccessor error = StompHeaderAccessor.create(StompCommand.ERROR);
+        error.setMessage("bad frame");
+        Map<String, Object> emptyMessage = messageHeaders("/topic/peers", "sub-0", "msg-1");
+
+        assertThat(shared.encode(error.getMessageHeaders(), BODY))
+            .isEqualTo(standard.encode(error.getMessageHeaders(), BODY));
+        assertThat(shared.encode(emptyMessage, new byte[0])).isEqualTo(standard.encode(emptyMessage, new byte[0]));
+        assertThat(shared.getStats()).containsEntry("sharedMisses", 0L).containsEntry("sharedHits", 0L);
+    }
+}
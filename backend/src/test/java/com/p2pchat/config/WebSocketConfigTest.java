@@ -0,0 +1,84 @@
+package com.p2pchat.config;
+
+import com.p2pchat.service.SignalLanes;
+import com.p2pchat.service.SignalingCodecs;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketConfigTest {
+
+    private static SignalingCodecs codecs(boolean cborEnabled) {
+        SignalingCodecs codecs = new SignalingCodecs();
+        ReflectionTestUtils.setField(codecs, "cborEnabled", cborEnabled);
+        return codecs;
+    }
+
+    private static WebSocketConfig config(SignalingCodecs codecs) {
+        // Lanes disabled: the outbound channel keeps Spring's executor
+        return new WebSocketConfig(null, null, new SignalLanes(null), null, codecs, null);
+    }
+
+    private static List<MessageConverter> converters(boolean cborEnabled) {
+        List<MessageConverter> converters = new ArrayList<>();
+        assertThat(config(codecs(cborEnabled)).configureMessageConverters(converters)).isTrue(); // keep the JSON default
+        return converters;
+    }
+
+    @Test
+    void cborConverterIsRegisteredWhenEnabled() {
+        assertThat(converters(true)).hasSize(1);
+    }
+
+    @Test
+    void cborConverterIsNotRegisteredWhenDisabled() {
+        assertThat(converters(false)).isEmpty();
+    }
+
+    @Test
+    void outboundChannelTranscodesBeforeHandlingForCborSessions() {
+        SignalingCodecs codecs = codecs(true);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("raw");
+        codecs.sessionOpened(session);
+        codecs.negotiate("raw", List.of("application/cbor"));
+
+        List<ChannelInterceptor> interceptors = new ArrayList<>();
+        config(codecs).configureClientOutboundChannel(new ChannelRegistration() {
+            @Override
+            public ChannelRegistration interceptors(ChannelInterceptor... added) {
+                interceptors.addAll(List.of(added));
+                return super.interceptors(added);
+            }
+        });
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("raw");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> json = MessageBuilder.createMessage("{\"type\":\"PEER_ONLINE\"}".getBytes(),
+            accessor.getMessageHeaders());
+
+        assertThat(interceptors).singleElement().isInstanceOf(ExecutorChannelInterceptor.class);
+        Message<?> handled = ((ExecutorChannelInterceptor) interceptors.get(0)).beforeHandle(json, null, null);
+
+        assertThat(handled.getHeaders().get(MessageHeaders.CONTENT_TYPE)).isEqualTo(SignalingCodecs.CBOR_FRAME);
+        assertThat(codecs.getStats()).containsEntry("transcodes", 1L);
+    }
+}
@@ -0,0 +1,106 @@
+package com.p2pchat.controller;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.service.AdmissionController;
+import com.p2pchat.service.CallStateTable;
+import com.p2pchat.service.DrainCoordinator;
+import com.p2pchat.service.FederationService;
+import com.p2pchat.service.MessageRelayService;
+import com.p2pchat.service.PeerDiscoveryService;
+import com.p2pchat.service.PeerRegistry;
+import com.p2pchat.service.PresencePublisher;
+import com.p2pchat.service.TypingCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SignalingControllerTest {
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final PeerRegistry peerRegistry = new PeerRegistry();
+    private PresencePublisher presencePublisher;
+    private SignalingController controller;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        presencePublisher = new PresencePublisher(template);
+        // Not initialized: no links, so no remote peers
+        FederationService federation = new FederationService(template, peerRegistry,
+            mock(PeerDiscoveryService.class), null, presencePublisher, null);
+        controller = new SignalingController(template, peerRegistry, mock(TypingCoalescer.class), federation,
+            presencePublisher, new AdmissionController(), mock(CallStateTable.class), mock(DrainCoordinator.class),
+            mock(MessageRelayService.class));
+
+        peerOnline("alice", null);
+        peerOnline("bob", null);
+        sent.clear();
+    }
+
+    private void peerOnline(String peerId, String presenceVersion) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId("session-" + peerId);
+        Object payload = presenceVersion != null ? Map.of("presenceVersion", presenceVersion) : null;
+        controller.handlePeerOnline(new SignalingMessage(SignalingMessage.SignalType.PEER_ONLINE, peerId, null,
+            payload, 0L), accessor);
+    }
+
+    private long sentTo(String destination) {
+        return sent.stream()
+            .filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+            .count();
+    }
+
+    @Test
+    void peerWithoutVersionGetsEveryExistingPeer() {
+        peerOnline("carol", null);
+
+        assertThat(sentTo("/topic/peer/carol")).isEqualTo(2);
+        assertThat(sentTo(PresencePublisher.PEERS_TOPIC)).isEqualTo(1);
+    }
+
+    @Test
+    void peerWithTheCurrentVersionSkipsTheReplay() {
+        String bootstrapVersion = presencePublisher.getVersion();
+
+        peerOnline("carol", bootstrapVersion);
+
+        assertThat(sentTo("/topic/peer/carol")).isZero();
+        // Existing peers still learn about the new one
+        assertThat(sentTo(PresencePublisher.PEERS_TOPIC)).isEqualTo(1);
+        assertThat(peerRegistry.isPeerOnline("carol")).isTrue();
+    }
+
+    @Test
+    void peerWithAStaleVersionGetsTheReplay() {
+        String bootstrapVersion = presencePublisher.getVersion();
+        // Presence changed between bootstrap and registration
+        peerOnline("dave", null);
+        sent.clear();
+
+        peerOnline("carol", bootstrapVersion);
+
+        assertThat(sentTo("/topic/peer/carol")).isEqualTo(3);
+    }
+
+    @Test
+    void versionFromAnotherBootGetsTheReplay() {
+        String version = presencePublisher.getVersion();
+        String otherEpoch = "0" + version;
+
+        peerOnline("carol", otherEpoch);
+
+        assertThat(sentTo("/topic/peer/carol")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,135 @@
+package com.p2pchat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private AdmissionController admission;
+
+    @BeforeEach
+    void setUp() {
+        // Defaults of application.properties, without the window ticker (steps are driven by the test)
+        admission = new AdmissionController();
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "targetLatencyMs", 50L);
+        ReflectionTestUtils.setField(admission, "minSamples", 50);
+        ReflectionTestUtils.setField(admission, "minLimit", 50);
+        ReflectionTestUtils.setField(admission, "maxLimit", 20000);
+        ReflectionTestUtils.setField(admission, "increaseStep", 50);
+        ReflectionTestUtils.setField(admission, "decreaseFactor", 0.8);
+        ReflectionTestUtils.setField(admission, "retryAfterMs", 2000L);
+    }
+
+    private void window(int samples, long latencyNanos) {
+        for (int i = 0; i < samples; i++) {
+            admission.recordLatency(latencyNanos);
+        }
+        ReflectionTestUtils.invokeMethod(admission, "adjust");
+    }
+
+    private void open(int sessions) {
+        for (int i = 0; i < sessions; i++) {
+            admission.sessionOpened();
+        }
+    }
+
+    private int limit() {
+        return (int) admission.getStats().get("limit");
+    }
+
+    private void setLimit(int limit) {
+        ReflectionTestUtils.setField(admission, "limit", limit);
+    }
+
+    @Test
+    void slowWindowCutsLimitFromActiveSessions() {
+        setLimit(20000);
+        open(1000);
+
+        window(100, SLOW);
+
+        assertThat(limit()).isEqualTo(800);
+        assertThat(admission.getStats()).containsEntry("overloaded", true);
+        assertThat(admission.tryAdmitConnection()).isFalse();
+        assertThat(admission.tryAdmitRegistration()).isFalse();
+    }
+
+    @Test
+    void repeatedSlowWindowsStopAtMinLimit() {
+        setLimit(100);
+        open(100);
+
+        for (int i = 0; i < 10; i++) {
+            window(100, SLOW);
+        }
+
+        assertThat(limit()).isEqualTo(50);
+    }
+
+    @Test
+    void fastWindowGrowsNearlyUsedLimitAdditively() {
+        setLimit(1000);
+        open(900);
+
+        window(100, FAST);
+        assertThat(limit()).isEqualTo(1050);
+
+        window(100, FAST);
+        assertThat(limit()).isEqualTo(1050); // 900 active is now under 90% of the limit
+    }
+
+    @Test
+    void growthStopsAtMaxLimit() {
+        setLimit(19990);
+        open(19990);
+
+        window(100, FAST);
+
+        assertThat(limit()).isEqualTo(20000);
+    }
+
+    @Test
+    void recoveryClearsOverloadButKeepsLimit() {
+        setLimit(1000);
+        open(500);
+        window(100, SLOW);
+        assertThat(limit()).isEqualTo(400);
+
+        admission.sessionClosed();
+        window(100, FAST);
+
+        assertThat(admission.getStats()).containsEntry("overloaded", false);
+        assertThat(limit()).isEqualTo(450); // 499 active >= 90% of 400
+        assertThat(admission.tryAdmitRegistration()).isTrue();
+    }
+
+    @Test
+    void sparseWindowDoesNotMoveLimit() {
+        setLimit(1000);
+        open(1000);
+
+        window(10, SLOW);
+
+        assertThat(limit()).isEqualTo(1000);
+        assertThat(admission.getStats()).containsEntry("overloaded", false);
+    }
+
+    @Test
+    void retryAfterGrowsWithOverload() {
+        setLimit(1000);
+        open(1000);
+        window(100, SLOW);
+
+        // p99 of 200 ms is 4x the target: base 8 s, randomized up to 2x
+        assertThat(admission.retryAfterMs()).isBetween(8000L, 16000L);
+    }
+}
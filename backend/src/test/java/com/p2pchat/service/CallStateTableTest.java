@@ -0,0 +1,155 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.dto.SignalingMessage.SignalType;
+import com.p2pchat.service.CallStateTable.Verdict;
+import com.p2pchat.util.ManualScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallStateTableTest {
+
+    private static final long GRACE_MS = 1000;
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final AtomicInteger deferredRelays = new AtomicInteger();
+    private CallStateTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new CallStateTable(scheduler::nanoTime, scheduler);
+        ReflectionTestUtils.setField(table, "idleTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(table, "tombstoneTtlMs", 30000L);
+        ReflectionTestUtils.setField(table, "earlySignalGraceMs", GRACE_MS);
+        table.init();
+    }
+
+    private static SignalingMessage signal(SignalType type, String from, String to) {
+        return new SignalingMessage(type, from, to, Map.of(), 0L);
+    }
+
+    private Verdict relay(SignalType type, String from, String to) {
+        return table.onSignal(signal(type, from, to), deferredRelays::incrementAndGet);
+    }
+
+    private void endedCall() {
+        assertThat(relay(SignalType.OFFER, "alice", "bob")).isEqualTo(Verdict.RELAY);
+        assertThat(relay(SignalType.ANSWER, "bob", "alice")).isEqualTo(Verdict.RELAY);
+        assertThat(relay(SignalType.CALL_END, "alice", "bob")).isEqualTo(Verdict.RELAY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> stats(String key) {
+        return (Map<String, Long>) table.getStats().get(key);
+    }
+
+    @Test
+    void lateAnswerAndCandidateAfterCallEndAreStale() {
+        endedCall();
+
+        assertThat(table.onSignal(signal(SignalType.ANSWER, "bob", "alice"))).isFalse();
+        assertThat(table.onSignal(signal(SignalType.ICE_CANDIDATE, "bob", "alice"), null)).isEqualTo(Verdict.STALE);
+
+        assertThat(stats("staleDropped")).containsEntry("ANSWER", 1L).containsEntry("ICE_CANDIDATE", 1L);
+        assertThat(scheduler.pendingCount()).isEqualTo(1); // only the sweep, nothing held
+    }
+
+    @Test
+    void earlyCandidateIsRelayedOnceTheOfferArrivesWithinGrace() {
+        endedCall();
+
+        assertThat(relay(SignalType.ICE_CANDIDATE, "bob", "alice")).isEqualTo(Verdict.HELD);
+        scheduler.advance(200);
+        assertThat(relay(SignalType.OFFER, "alice", "bob")).isEqualTo(Verdict.RELAY);
+        assertThat(deferredRelays).hasValue(0);
+
+        scheduler.advance(GRACE_MS);
+
+        assertThat(deferredRelays).hasValue(1);
+        assertThat(table.getStats()).containsEntry("heldReleased", 1L);
+        assertThat(stats("staleDropped")).isEmpty();
+    }
+
+    @Test
+    void heldSignalIsDiscardedAfterGrace() {
+        endedCall();
+
+        assertThat(relay(SignalType.ICE_CANDIDATE, "bob", "alice")).isEqualTo(Verdict.HELD);
+        scheduler.advance(GRACE_MS - 1);
+        assertThat(stats("staleDropped")).isEmpty();
+
+        scheduler.advance(1);
+
+        assertThat(deferredRelays).hasValue(0);
+        assertThat(stats("staleDropped")).containsEntry("ICE_CANDIDATE", 1L);
+        assertThat(table.getStats()).containsEntry("heldReleased", 0L);
+    }
+
+    @Test
+    void newOfferRevivesTombstonedPair() {
+        endedCall();
+        assertThat(stats("states")).containsEntry("ENDED", 1L);
+
+        assertThat(relay(SignalType.OFFER, "bob", "alice")).isEqualTo(Verdict.RELAY);
+        assertThat(stats("states")).containsEntry("ENDED", 0L).containsEntry("NEGOTIATING", 1L);
+
+        assertThat(relay(SignalType.ANSWER, "alice", "bob")).isEqualTo(Verdict.RELAY);
+        assertThat(relay(SignalType.ICE_CANDIDATE, "alice", "bob")).isEqualTo(Verdict.RELAY);
+        assertThat(stats("states")).containsEntry("ANSWERED", 1L);
+        assertThat(table.hasCallInSetup("bob", 1000)).isTrue();
+    }
+
+    @Test
+    void atMost32SignalsAreHeldPerCall() {
+        endedCall();
+
+        for (int i = 0; i < 32; i++) {
+            assertThat(relay(SignalType.ICE_CANDIDATE, "bob", "alice")).isEqualTo(Verdict.HELD);
+        }
+        assertThat(relay(SignalType.ICE_CANDIDATE, "bob", "alice")).isEqualTo(Verdict.STALE);
+
+        relay(SignalType.OFFER, "alice", "bob");
+        scheduler.advance(GRACE_MS);
+
+        assertThat(deferredRelays).hasValue(32);
+        assertThat(stats("staleDropped")).containsEntry("ICE_CANDIDATE", 1L);
+    }
+
+    @Test
+    void heldSlotsAreFreedWhenGraceExpires() {
+        endedCall();
+        for (int i = 0; i < 32; i++) {
+            relay(SignalType.ICE_CANDIDATE, "bob", "alice");
+        }
+
+        scheduler.advance(GRACE_MS);
+
+        assertThat(relay(SignalType.ICE_CANDIDATE, "bob", "alice")).isEqualTo(Verdict.HELD);
+    }
+
+    @Test
+    void rejectAfterCallerCancelledIsStale() {
+        assertThat(relay(SignalType.CALL_REQUEST, "alice", "bob")).isEqualTo(Verdict.RELAY);
+        assertThat(relay(SignalType.CALL_END, "alice", "bob")).isEqualTo(Verdict.RELAY);
+
+        assertThat(table.onSignal(signal(SignalType.CALL_REJECT, "bob", "alice"))).isFalse();
+        assertThat(stats("states")).containsEntry("ENDED", 1L).containsEntry("REJECTED", 0L);
+    }
+
+    @Test
+    void tombstoneExpiresAfterTtl() {
+        endedCall();
+
+        scheduler.advance(30000 + 7500);
+
+        assertThat(stats("states")).containsEntry("ENDED", 0L);
+        // Unknown pair again: relayed as is
+        assertThat(relay(SignalType.ANSWER, "bob", "alice")).isEqualTo(Verdict.RELAY);
+    }
+}
@@ -0,0 +1,125 @@
+package com.p2pchat.service;
+
+import com.p2pchat.discovery.DiscoveredPeer;
+import com.p2pchat.discovery.RankedPeer;
+import com.p2pchat.dto.SignalingMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DrainCoordinatorTest {
+
+    private static final Duration PHASE_TIMEOUT = Duration.ofMillis(1000);
+
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    private final PeerRegistry peerRegistry = new PeerRegistry();
+    private final PeerDiscoveryService discoveryService = mock(PeerDiscoveryService.class);
+    private final AdmissionController admissionController = new AdmissionController();
+    private final CallStateTable callStateTable = new CallStateTable();
+    private DrainCoordinator drain;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        drain = new DrainCoordinator(template, peerRegistry, discoveryService, admissionController, callStateTable);
+        ReflectionTestUtils.setField(drain, "redirectWindowMs", 10000L);
+        ReflectionTestUtils.setField(drain, "timeoutMs", 30000L);
+        ReflectionTestUtils.setField(drain, "callQuietMs", 2000L);
+        ReflectionTestUtils.setField(drain, "drainOnShutdown", true);
+        ReflectionTestUtils.setField(drain, "shutdownPhaseTimeout", PHASE_TIMEOUT);
+        ReflectionTestUtils.setField(drain, "maxAlternatives", 3);
+
+        when(discoveryService.getRankedPeers()).thenReturn(List.of(
+            new RankedPeer(new DiscoveredPeer("10.0.0.2", "node-2", "node", 8080, 0), 1.0, 0, false, 1.0),
+            new RankedPeer(new DiscoveredPeer("10.0.0.3", "node-3", "node", 8080, 0), 2.0, 0, true, 2.0)));
+        for (String peerId : List.of("alice", "bob", "carol")) {
+            peerRegistry.registerPeer(peerId, "session-" + peerId);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        drain.shutdown();
+    }
+
+    private long closeContextMillis() {
+        long start = System.nanoTime();
+        drain.onContextClosed(new ContextClosedEvent(new GenericApplicationContext()));
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private List<String> redirectedPeers() {
+        return sent.stream()
+            .filter(message -> ((SignalingMessage) message.getPayload()).getType() == SignalingMessage.SignalType.REDIRECT)
+            .map(message -> SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+            .toList();
+    }
+
+    @Test
+    void shutdownRedirectsEveryPeerWithinThePhaseTimeout() {
+        long elapsedMs = closeContextMillis();
+
+        // The redirect window shrinks to half of the budget
+        assertThat(elapsedMs).isLessThan(PHASE_TIMEOUT.toMillis());
+        assertThat(redirectedPeers()).containsExactlyInAnyOrder("/topic/peer/alice", "/topic/peer/bob", "/topic/peer/carol");
+        SignalingMessage redirect = (SignalingMessage) sent.get(0).getPayload();
+        assertThat(redirect.getPayload()).isEqualTo(Map.of("reason", "DRAINING", "servers",
+            List.of("http://10.0.0.2:8080/ws/signaling")));
+        assertThat(drain.getStats()).containsEntry("drained", true).containsEntry("redirected", 3L);
+        assertThat(admissionController.tryAdmitConnection()).isFalse();
+        verify(discoveryService).startDraining();
+    }
+
+    @Test
+    void callSetupHoldsTheDrainOnlyUntilTheBudgetIsSpent() {
+        // Signaled again every 200 ms, so never quiet for call-quiet-ms
+        Thread caller = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                callStateTable.onSignal(new SignalingMessage(SignalingMessage.SignalType.CALL_REQUEST, "alice", "bob", null, 0L));
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        caller.setDaemon(true);
+        caller.start();
+        try {
+            long elapsedMs = closeContextMillis();
+
+            assertThat(elapsedMs).isBetween(PHASE_TIMEOUT.toMillis() / 2, PHASE_TIMEOUT.toMillis() + 500);
+            assertThat(redirectedPeers()).hasSize(3);
+            assertThat((long) drain.getStats().get("deferredForCalls")).isPositive();
+        } finally {
+            caller.interrupt();
+        }
+    }
+
+    @Test
+    void noDrainOnShutdownWhenDisabled() {
+        ReflectionTestUtils.setField(drain, "drainOnShutdown", false);
+
+        closeContextMillis();
+
+        assertThat(drain.isDraining()).isFalse();
+        assertThat(sent).isEmpty();
+    }
+}
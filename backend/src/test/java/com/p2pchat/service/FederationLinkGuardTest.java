@@ -0,0 +1,131 @@
+package com.p2pchat.service;
+
+import com.p2pchat.discovery.DiscoveredPeer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FederationLinkGuardTest {
+
+    private static final String SECRET = "s3cret";
+    private static final String NODE_ID = "10.0.0.2:8080";
+
+    private final PeerDiscoveryService discoveryService = mock(PeerDiscoveryService.class);
+    private FederationLinkGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new FederationLinkGuard(discoveryService);
+        ReflectionTestUtils.setField(guard, "secret", SECRET);
+        when(discoveryService.getDiscoveredPeers()).thenReturn(Map.of(
+            "10.0.0.2", new DiscoveredPeer("10.0.0.2", "node-10.0.0.2", "node", 8080, 0)));
+    }
+
+    private record Handshake(boolean accepted, int status, Map<String, Object> attributes) {
+    }
+
+    private Handshake handshake(String secret, String nodeId, String sourceIp) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", FederationLinkGuard.ENDPOINT);
+        request.setRemoteAddr(sourceIp);
+        request.setRemoteHost(sourceIp);
+        if (secret != null) {
+            request.addHeader(FederationLinkGuard.SECRET_HEADER, secret);
+        }
+        if (nodeId != null) {
+            request.addHeader(FederationLinkGuard.NODE_HEADER, nodeId);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+        Map<String, Object> attributes = new HashMap<>();
+        HandshakeInterceptor interceptor = guard.handshakeInterceptor();
+
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request), serverResponse,
+            null, attributes);
+        serverResponse.flush();
+        return new Handshake(accepted, response.getStatus(), attributes);
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String destination, String nodeId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId("session");
+        accessor.setDestination(destination);
+        Map<String, Object> attributes = new HashMap<>();
+        if (nodeId != null) {
+            // As stored by the handshake
+            attributes.put("federation.nodeId", nodeId);
+        }
+        accessor.setSessionAttributes(attributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    void discoveredNodeWithTheSecretIsAccepted() throws Exception {
+        Handshake handshake = handshake(SECRET, NODE_ID, "10.0.0.2");
+
+        assertThat(handshake.accepted()).isTrue();
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionAttributes(handshake.attributes());
+        assertThat(FederationLinkGuard.nodeId(accessor)).isEqualTo(NODE_ID);
+    }
+
+    @Test
+    void badOrMissingSecretIsRefused() throws Exception {
+        assertThat(handshake("wrong", NODE_ID, "10.0.0.2").status()).isEqualTo(HttpStatus.FORBIDDEN.value());
+        assertThat(handshake(null, NODE_ID, "10.0.0.2").accepted()).isFalse();
+
+        ReflectionTestUtils.setField(guard, "secret", "");
+        assertThat(handshake("", NODE_ID, "10.0.0.2").accepted()).isFalse();
+    }
+
+    @Test
+    void nodeIdMustMatchTheSourceAddress() throws Exception {
+        // A host on the LAN that knows the secret cannot claim another node's id
+        Handshake spoofed = handshake(SECRET, NODE_ID, "10.0.0.66");
+
+        assertThat(spoofed.accepted()).isFalse();
+        assertThat(spoofed.status()).isEqualTo(HttpStatus.FORBIDDEN.value());
+        assertThat(spoofed.attributes()).isEmpty();
+        assertThat(handshake(SECRET, "10.0.0.66:8080", "10.0.0.66").accepted()).isFalse();
+        assertThat(handshake(SECRET, null, "10.0.0.2").accepted()).isFalse();
+    }
+
+    @Test
+    void patternSubscriptionsAreRefusedForEveryone() {
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/**", null))).isNull();
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/federation/*", NODE_ID))).isNull();
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/peer/{id}", null))).isNull();
+    }
+
+    @Test
+    void linkSessionOnlyUsesItsOwnFederationDestinations() {
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/federation/" + NODE_ID, NODE_ID))).isNotNull();
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/federation/10.0.0.3:8080", NODE_ID))).isNull();
+        assertThat(guard.authorize(frame(SimpMessageType.MESSAGE, FederationService.INBOUND_DESTINATION, NODE_ID))).isNotNull();
+        assertThat(guard.authorize(frame(SimpMessageType.MESSAGE, "/app/signal", NODE_ID))).isNull();
+    }
+
+    @Test
+    void clientSessionCannotUseFederationDestinations() {
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/federation/" + NODE_ID, null))).isNull();
+        assertThat(guard.authorize(frame(SimpMessageType.MESSAGE, FederationService.INBOUND_DESTINATION, null))).isNull();
+        assertThat(guard.authorize(frame(SimpMessageType.SUBSCRIBE, "/topic/peer/alice", null))).isNotNull();
+        assertThat(guard.authorize(frame(SimpMessageType.MESSAGE, "/app/signal", null))).isNotNull();
+    }
+}
@@ -0,0 +1,185 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.service.MessageRelayService.Result;
+import com.p2pchat.util.ManualScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageRelayServiceTest {
+
+    private static final long BATCH_WINDOW_MS = 25;
+    private static final long TTL_MS = 30000;
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final PeerRegistry peerRegistry = new PeerRegistry();
+    private MessageRelayService relay;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        // Not initialized: no links, so no peer is remote
+        FederationService federation = new FederationService(template, peerRegistry, null, null, null, null);
+        relay = new MessageRelayService(template, peerRegistry, federation, scheduler::nanoTime, scheduler);
+        // Defaults of application.properties
+        ReflectionTestUtils.setField(relay, "enabled", true);
+        ReflectionTestUtils.setField(relay, "batchWindowMs", BATCH_WINDOW_MS);
+        ReflectionTestUtils.setField(relay, "maxBatch", 32);
+        ReflectionTestUtils.setField(relay, "maxBatchBytes", 16384);
+        ReflectionTestUtils.setField(relay, "ttlMs", TTL_MS);
+        ReflectionTestUtils.setField(relay, "bufferCapacity", 10000);
+        ReflectionTestUtils.setField(relay, "conversationCapacity", 256);
+        ReflectionTestUtils.setField(relay, "quotaBytesPerSec", 32768L);
+        ReflectionTestUtils.setField(relay, "quotaBurstBytes", 131072L);
+        ReflectionTestUtils.setField(relay, "maxConversationsPerSession", 16);
+        relay.init();
+        peerRegistry.registerPeer("bob", "session-bob");
+    }
+
+    private Result submit(String to, String data, int size, long seq) {
+        return relay.submit(new SignalingMessage(SignalingMessage.SignalType.MESSAGE, "alice", to, data, 0L),
+            "session-alice", size, seq);
+    }
+
+    private List<SignalingMessage> sentTo(String destination) {
+        return sent.stream()
+            .filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+            .map(message -> (SignalingMessage) message.getPayload())
+            .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> messages(SignalingMessage batch) {
+        return (List<Map<String, Object>>) ((Map<String, Object>) batch.getPayload()).get("messages");
+    }
+
+    private static Object dropped(SignalingMessage batch) {
+        return ((Map<?, ?>) batch.getPayload()).get("dropped");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> error(SignalingMessage signal) {
+        assertThat(signal.getType()).isEqualTo(SignalingMessage.SignalType.ERROR);
+        return (Map<String, Object>) signal.getPayload();
+    }
+
+    @Test
+    void outOfOrderArrivalsAreDeliveredInClientSequence() {
+        assertThat(submit("bob", "m2", 100, 2)).isEqualTo(Result.QUEUED);
+        assertThat(submit("bob", "m0", 100, 0)).isEqualTo(Result.QUEUED);
+        assertThat(submit("bob", "m1", 100, 1)).isEqualTo(Result.QUEUED);
+
+        scheduler.advance(BATCH_WINDOW_MS - 1);
+        assertThat(sentTo("/topic/peer/bob")).isEmpty();
+
+        scheduler.advance(1);
+
+        List<SignalingMessage> batches = sentTo("/topic/peer/bob");
+        assertThat(batches).hasSize(1);
+        assertThat(messages(batches.get(0))).extracting(entry -> entry.get("data")).containsExactly("m0", "m1", "m2");
+        assertThat(messages(batches.get(0))).extracting(entry -> entry.get("seq")).containsExactly(0L, 1L, 2L);
+        assertThat(dropped(batches.get(0))).isEqualTo(0);
+    }
+
+    @Test
+    void backlogIsSplitIntoBatchesAndFlushedWithoutWaitingForTheNextWindow() {
+        for (int i = 0; i < 40; i++) {
+            submit("bob", "m" + i, 100, i);
+        }
+        for (int i = 0; i < 3; i++) {
+            submit("bob", "big" + i, 10000, 40 + i);
+        }
+
+        scheduler.advance(BATCH_WINDOW_MS);
+
+        // 32 by count, 8 + one big message by bytes, then one big message per batch
+        List<SignalingMessage> batches = sentTo("/topic/peer/bob");
+        assertThat(batches).extracting(batch -> messages(batch).size()).containsExactly(32, 9, 1, 1);
+        assertThat(messages(batches.get(3)).get(0)).containsEntry("seq", 42L).containsEntry("data", "big2");
+        assertThat(relay.getStats()).containsEntry("batches", 4L).containsEntry("buffered", 0);
+    }
+
+    @Test
+    void senderOverQuotaGetsRetryAfter() {
+        assertThat(submit("bob", "a", 65536, 0)).isEqualTo(Result.QUEUED);
+        assertThat(submit("bob", "b", 65536, 1)).isEqualTo(Result.QUEUED);
+
+        assertThat(submit("bob", "c", 65536, 2)).isEqualTo(Result.QUOTA_EXCEEDED);
+
+        List<SignalingMessage> errors = sentTo("/topic/peer/alice");
+        assertThat(errors).hasSize(1);
+        assertThat(error(errors.get(0))).containsEntry("reason", "RELAY_QUOTA").containsEntry("retryAfterMs", 2000L);
+
+        scheduler.advance(2000);
+        assertThat(submit("bob", "c", 65536, 2)).isEqualTo(Result.QUEUED);
+    }
+
+    @Test
+    void sessionFeedingTooManyConversationsIsRejected() {
+        ReflectionTestUtils.setField(relay, "maxConversationsPerSession", 2);
+        submit("bob", "a", 100, 0);
+        submit("carol", "b", 100, 0);
+
+        assertThat(submit("dave", "c", 100, 0)).isEqualTo(Result.TOO_MANY_CONVERSATIONS);
+        assertThat(submit("bob", "d", 100, 1)).isEqualTo(Result.QUEUED);
+
+        List<SignalingMessage> errors = sentTo("/topic/peer/alice");
+        assertThat(errors).hasSize(1);
+        assertThat(error(errors.get(0))).containsEntry("reason", "RELAY_CONVERSATIONS").containsEntry("to", "dave");
+    }
+
+    @Test
+    void fullBufferRejectsNewMessages() {
+        ReflectionTestUtils.setField(relay, "bufferCapacity", 2);
+        submit("bob", "a", 100, 0);
+        submit("bob", "b", 100, 1);
+
+        assertThat(submit("bob", "c", 100, 2)).isEqualTo(Result.BUFFER_FULL);
+        assertThat(error(sentTo("/topic/peer/alice").get(0)))
+            .containsEntry("reason", "RELAY_FULL").containsEntry("retryAfterMs", 1000L);
+
+        scheduler.advance(BATCH_WINDOW_MS);
+        assertThat(submit("bob", "c", 100, 2)).isEqualTo(Result.QUEUED);
+    }
+
+    @Test
+    void undeliveredMessagesExpireAndTheNextBatchReportsThem() {
+        assertThat(submit("carol", "old0", 100, 0)).isEqualTo(Result.QUEUED);
+        assertThat(submit("carol", "old1", 100, 1)).isEqualTo(Result.QUEUED);
+        scheduler.advance(TTL_MS - 1000);
+        assertThat(submit("carol", "fresh", 100, 2)).isEqualTo(Result.QUEUED);
+
+        scheduler.advance(1000);
+        assertThat(sentTo("/topic/peer/carol")).isEmpty();
+        assertThat(relay.getStats()).containsEntry("expired", 2L).containsEntry("buffered", 1);
+
+        // Target comes back: the sweep retries the conversation
+        peerRegistry.registerPeer("carol", "session-carol");
+        scheduler.advance(1000);
+
+        List<SignalingMessage> batches = sentTo("/topic/peer/carol");
+        assertThat(batches).hasSize(1);
+        assertThat(messages(batches.get(0))).extracting(entry -> entry.get("data")).containsExactly("fresh");
+        assertThat(dropped(batches.get(0))).isEqualTo(2);
+    }
+
+    @Test
+    void ownMessagesAndAnonymousSessionsAreRejected() {
+        assertThat(relay.submit(new SignalingMessage(SignalingMessage.SignalType.MESSAGE, "alice", "alice", "x", 0L),
+            "session-alice", 10, 0)).isEqualTo(Result.REJECTED);
+        assertThat(relay.submit(new SignalingMessage(SignalingMessage.SignalType.MESSAGE, "alice", "bob", "x", 0L),
+            null, 10, 0)).isEqualTo(Result.REJECTED);
+        assertThat(sent).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.p2pchat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p2pchat.dto.SignalingMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PresencePublisherTest {
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PresencePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        publisher = new PresencePublisher(template);
+    }
+
+    private static String destination(Message<?> message) {
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private SignalingMessage read(Message<?> message) throws Exception {
+        return objectMapper.readValue((byte[]) message.getPayload(), SignalingMessage.class);
+    }
+
+    @Test
+    void everyBroadcastBumpsTheVersion() {
+        String initial = publisher.getVersion();
+
+        publisher.broadcastOnline("alice");
+        String afterOnline = publisher.getVersion();
+        publisher.broadcastOffline("alice");
+        String afterOffline = publisher.getVersion();
+
+        assertThat(afterOnline).isNotEqualTo(initial);
+        assertThat(afterOffline).isNotEqualTo(afterOnline).isNotEqualTo(initial);
+        // Same epoch, only the counter moves
+        String epoch = initial.substring(0, initial.indexOf('.') + 1);
+        assertThat(afterOnline).startsWith(epoch).endsWith(".1");
+        assertThat(afterOffline).startsWith(epoch).endsWith(".2");
+    }
+
+    @Test
+    void replayingAPeerDoesNotBumpTheVersion() {
+        publisher.broadcastOnline("alice");
+        String version = publisher.getVersion();
+
+        publisher.sendOnline("alice", "/topic/peer/bob");
+
+        assertThat(publisher.getVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void versionsDifferBetweenBoots() {
+        PresencePublisher other = new PresencePublisher(new SimpMessagingTemplate((message, timeout) -> true));
+
+        // Same counter, different epoch: a version from another node or an earlier boot never matches
+        assertThat(other.getVersion()).isNotEqualTo(publisher.getVersion());
+    }
+
+    @Test
+    void onlineBodyIsSerializedOnceAndReusedForReplays() throws Exception {
+        publisher.broadcastOnline("alice");
+        publisher.sendOnline("alice", "/topic/peer/bob");
+        publisher.sendOnline("alice", "/topic/peer/carol");
+
+        assertThat(sent).extracting(PresencePublisherTest::destination)
+            .containsExactly(PresencePublisher.PEERS_TOPIC, "/topic/peer/bob", "/topic/peer/carol");
+        assertThat(sent.get(1).getPayload()).isSameAs(sent.get(0).getPayload());
+        assertThat(sent.get(2).getPayload()).isSameAs(sent.get(0).getPayload());
+        assertThat(read(sent.get(0)).getType()).isEqualTo(SignalingMessage.SignalType.PEER_ONLINE);
+        assertThat(read(sent.get(0)).getFrom()).isEqualTo("alice");
+    }
+
+    @Test
+    void newPresenceChangeRebuildsTheBody() {
+        publisher.broadcastOnline("alice");
+        publisher.broadcastOffline("alice");
+        publisher.broadcastOnline("alice");
+
+        assertThat(sent).hasSize(3);
+        assertThat(sent.get(2).getPayload()).isNotSameAs(sent.get(0).getPayload());
+    }
+}
@@ -0,0 +1,77 @@
+package com.p2pchat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignalLanesTest {
+
+    private static final int QUEUE_CAPACITY = 3;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+    private SignalLanes lanes;
+
+    @BeforeEach
+    void setUp() {
+        lanes = new SignalLanes(new AdmissionController());
+        ReflectionTestUtils.setField(lanes, "enabled", true);
+        ReflectionTestUtils.setField(lanes, "starvationMs", 50L);
+        ReflectionTestUtils.setField(lanes, "promotionInterval", 4);
+        ReflectionTestUtils.setField(lanes, "queueCapacity", QUEUE_CAPACITY);
+        executor = lanes.inboundExecutor();
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    private void block() {
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    void poolIsFixedAtTheDefaultChannelSize() {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+        assertThat(executor.getCorePoolSize()).isEqualTo(threads);
+        assertThat(executor.getMaxPoolSize()).isEqualTo(threads);
+    }
+
+    @Test
+    void tasksBeyondTheQueueCapacityAreRejectedAndCounted() {
+        // Occupy every thread, then fill the queue
+        for (int i = 0; i < executor.getMaxPoolSize() + QUEUE_CAPACITY; i++) {
+            block();
+        }
+        assertThat(executor.getThreadPoolExecutor().getQueue().remainingCapacity()).isZero();
+
+        assertThatThrownBy(this::block).isInstanceOf(TaskRejectedException.class);
+
+        assertThat(executor.getPoolSize()).isEqualTo(executor.getMaxPoolSize());
+        assertThat(inboundStats()).containsEntry("rejected", 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> inboundStats() {
+        return (Map<String, Object>) lanes.getStats().get("inbound");
+    }
+}
@@ -0,0 +1,185 @@
+package com.p2pchat.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.p2pchat.dto.SignalingMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SignalingCodecsTest {
+
+    private static final List<String> ACCEPT_CBOR = List.of("application/cbor");
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final CBORMapper cborMapper = new CBORMapper();
+    private SignalingCodecs codecs;
+
+    @BeforeEach
+    void setUp() {
+        codecs = new SignalingCodecs();
+        ReflectionTestUtils.setField(codecs, "cborEnabled", true);
+    }
+
+    private static SignalingMessage offer() {
+        return new SignalingMessage(SignalingMessage.SignalType.OFFER, "alice", "bob",
+            Map.of("sdp", "v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1", "type", "offer"), 1700000000000L);
+    }
+
+    private void openSession(String sessionId, boolean sockJs) {
+        WebSocketSession session = sockJs ? mock(SockJsSession.class) : mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(sessionId);
+        codecs.sessionOpened(session);
+    }
+
+    private static Message<byte[]> outbound(String sessionId, SimpMessageType type, byte[] body, MimeType contentType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/peers");
+        accessor.setContentType(contentType);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+
+    @Test
+    void signalingMessageRoundTripsThroughCborConverter() {
+        MessageConverter converter = codecs.cborConverter();
+        SignalingMessage original = offer();
+
+        Message<?> encoded = converter.toMessage(original,
+            new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, SignalingCodecs.CBOR_FRAME)));
+        SignalingMessage decoded = (SignalingMessage) converter.fromMessage(encoded, SignalingMessage.class);
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(original);
+    }
+
+    @Test
+    void converterOnlyAcceptsCborContentTypes() {
+        MessageConverter converter = codecs.cborConverter();
+        byte[] json = "{\"type\":\"OFFER\"}".getBytes();
+
+        Message<byte[]> untyped = MessageBuilder.withPayload(json).build();
+        Message<byte[]> typedJson = MessageBuilder.withPayload(json)
+            .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON).build();
+
+        assertThat(converter.fromMessage(untyped, SignalingMessage.class)).isNull();
+        assertThat(converter.fromMessage(typedJson, SignalingMessage.class)).isNull();
+        assertThat(SignalingCodecs.isCbor(MimeTypeUtils.parseMimeType("application/cbor"))).isTrue();
+        assertThat(SignalingCodecs.isCbor(MimeTypeUtils.parseMimeType("application/octet-stream;codec=cbor"))).isTrue();
+        assertThat(SignalingCodecs.isCbor(MimeTypeUtils.APPLICATION_OCTET_STREAM)).isFalse();
+    }
+
+    @Test
+    void rawWebSocketSessionNegotiatesCbor() {
+        openSession("raw", false);
+
+        codecs.negotiate("raw", List.of("application/json, application/cbor"));
+
+        assertThat(codecs.isCborSession("raw")).isTrue();
+        codecs.sessionClosed("raw");
+        assertThat(codecs.isCborSession("raw")).isFalse();
+    }
+
+    @Test
+    void sockJsSessionStaysOnJson() {
+        openSession("sockjs", true);
+
+        codecs.negotiate("sockjs", ACCEPT_CBOR);
+
+        assertThat(codecs.isCborSession("sockjs")).isFalse();
+    }
+
+    @Test
+    void noCborWithoutAcceptHeaderOrWhenDisabled() {
+        openSession("plain", false);
+        codecs.negotiate("plain", null);
+        codecs.negotiate("plain", List.of("application/json"));
+        assertThat(codecs.isCborSession("plain")).isFalse();
+
+        ReflectionTestUtils.setField(codecs, "cborEnabled", false);
+        openSession("disabled", false);
+        codecs.negotiate("disabled", ACCEPT_CBOR);
+        assertThat(codecs.isCborSession("disabled")).isFalse();
+    }
+
+    @Test
+    void jsonMessageIsTranscodedForCborSession() throws Exception {
+        openSession("raw", false);
+        codecs.negotiate("raw", ACCEPT_CBOR);
+        byte[] json = jsonMapper.writeValueAsBytes(offer());
+
+        Message<?> encoded = codecs.encodeForSession(outbound("raw", SimpMessageType.MESSAGE, json,
+            MimeTypeUtils.APPLICATION_JSON));
+
+        assertThat(encoded.getHeaders().get(MessageHeaders.CONTENT_TYPE)).isEqualTo(SignalingCodecs.CBOR_FRAME);
+        assertThat(SimpMessageHeaderAccessor.getDestination(encoded.getHeaders())).isEqualTo("/topic/peers");
+        JsonNode decoded = cborMapper.readTree((byte[]) encoded.getPayload());
+        assertThat(decoded).isEqualTo(jsonMapper.readTree(json));
+        assertThat(((byte[]) encoded.getPayload()).length).isLessThan(json.length);
+        // And back to JSON for the signaling capture
+        assertThat(jsonMapper.readTree(codecs.toJson(encoded))).isEqualTo(jsonMapper.readTree(json));
+    }
+
+    @Test
+    void broadcastBodyIsTranscodedOncePerFrame() throws Exception {
+        openSession("a", false);
+        openSession("b", false);
+        codecs.negotiate("a", ACCEPT_CBOR);
+        codecs.negotiate("b", ACCEPT_CBOR);
+        byte[] json = jsonMapper.writeValueAsBytes(offer());
+
+        Object first = codecs.encodeForSession(outbound("a", SimpMessageType.MESSAGE, json,
+            MimeTypeUtils.APPLICATION_JSON)).getPayload();
+        Object second = codecs.encodeForSession(outbound("b", SimpMessageType.MESSAGE, json,
+            MimeTypeUtils.APPLICATION_JSON)).getPayload();
+
+        assertThat(second).isSameAs(first);
+        assertThat(codecs.getStats()).containsEntry("transcodes", 1L).containsEntry("sharedTranscodes", 1L);
+    }
+
+    @Test
+    void otherFramesPassThroughUnchanged() throws Exception {
+        openSession("raw", false);
+        openSession("json", false);
+        codecs.negotiate("raw", ACCEPT_CBOR);
+        byte[] json = jsonMapper.writeValueAsBytes(offer());
+
+        Message<byte[]> toJsonSession = outbound("json", SimpMessageType.MESSAGE, json, MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> heartbeat = outbound("raw", SimpMessageType.HEARTBEAT, new byte[0], null);
+        Message<byte[]> text = outbound("raw", SimpMessageType.MESSAGE, "hi".getBytes(), MimeTypeUtils.TEXT_PLAIN);
+
+        assertThat(codecs.encodeForSession(toJsonSession)).isSameAs(toJsonSession);
+        assertThat(codecs.encodeForSession(heartbeat)).isSameAs(heartbeat);
+        assertThat(codecs.encodeForSession(text)).isSameAs(text);
+        assertThat(codecs.getStats()).containsEntry("transcodes", 0L);
+    }
+
+    @Test
+    void malformedJsonIsSentAsIs() {
+        openSession("raw", false);
+        codecs.negotiate("raw", ACCEPT_CBOR);
+        Message<byte[]> broken = outbound("raw", SimpMessageType.MESSAGE, "{\"type\":".getBytes(),
+            MimeTypeUtils.APPLICATION_JSON);
+
+        assertThat(codecs.encodeForSession(broken)).isSameAs(broken);
+        assertThat(codecs.getStats()).containsEntry("failedTranscodes", 1L);
+    }
+}
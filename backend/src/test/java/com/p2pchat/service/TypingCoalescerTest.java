@@ -0,0 +1,135 @@
+package com.p2pchat.service;
+
+import com.p2pchat.dto.SignalingMessage;
+import com.p2pchat.util.ManualScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TypingCoalescerTest {
+
+    private static final long INTERVAL_MS = 1000;
+    private static final long STOP_TIMEOUT_MS = 3000;
+    private static final long TICK_MS = INTERVAL_MS / 4;
+
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final List<Long> sentAtMs = new ArrayList<>();
+    private TypingCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+            sentAtMs.add(scheduler.currentTimeMillis());
+            return sent.add(message);
+        });
+        coalescer = new TypingCoalescer(template, scheduler::nanoTime, scheduler);
+        // Defaults of application.properties
+        ReflectionTestUtils.setField(coalescer, "intervalMs", INTERVAL_MS);
+        ReflectionTestUtils.setField(coalescer, "stopTimeoutMs", STOP_TIMEOUT_MS);
+        coalescer.init();
+    }
+
+    private void typing(String from, String to, boolean typing) {
+        coalescer.submit(new SignalingMessage(SignalingMessage.SignalType.TYPING, from, to,
+            Map.of("typing", typing), 0L));
+    }
+
+    private List<Object> sentTo(String peerId) {
+        String destination = "/user/" + peerId + "/queue/signal";
+        return sent.stream()
+            .filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+            .map(message -> ((SignalingMessage) message.getPayload()).getPayload())
+            .toList();
+    }
+
+    @Test
+    void leadingEdgeIsForwardedImmediately() {
+        typing("alice", "bob", true);
+
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true));
+        assertThat(coalescer.getStats()).containsEntry("received", 1L).containsEntry("forwarded", 1L);
+    }
+
+    @Test
+    void atMostOneStatePerInterval() {
+        // A keystroke every 100 ms for 5 s
+        for (int i = 0; i < 50; i++) {
+            typing("alice", "bob", true);
+            scheduler.advance(100);
+        }
+
+        // The leading edge, then the latest pending state once per interval (the last one at 5 s)
+        assertThat(sentAtMs).hasSize(6);
+        for (int i = 1; i < sentAtMs.size(); i++) {
+            assertThat(sentAtMs.get(i) - sentAtMs.get(i - 1)).isGreaterThanOrEqualTo(INTERVAL_MS);
+        }
+        assertThat(coalescer.getStats()).containsEntry("received", 50L);
+    }
+
+    @Test
+    void latestPendingStateWinsAtTheEndOfTheInterval() {
+        typing("alice", "bob", true);
+        scheduler.advance(200);
+        typing("alice", "bob", false);
+        typing("alice", "bob", true);
+        typing("alice", "bob", false);
+
+        // The explicit stop right after "typing" went out at once; the later states wait
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true), Map.of("typing", false));
+
+        scheduler.advance(INTERVAL_MS - 1);
+        assertThat(sentTo("bob")).hasSize(2);
+        scheduler.advance(TICK_MS);
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true), Map.of("typing", false),
+            Map.of("typing", false));
+    }
+
+    @Test
+    void trailingStopIsSentAfterStopTimeout() {
+        typing("alice", "bob", true);
+
+        scheduler.advance(STOP_TIMEOUT_MS - 1);
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true));
+
+        // Sent by the first flush tick after the timeout
+        scheduler.advance(TICK_MS);
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true), Map.of("typing", false));
+        assertThat(coalescer.getStats()).containsEntry("activeConversations", 0L);
+
+        scheduler.advance(STOP_TIMEOUT_MS);
+        assertThat(sentTo("bob")).hasSize(2);
+    }
+
+    @Test
+    void noTrailingStopWhenTheLastStateSentWasStopped() {
+        typing("alice", "bob", true);
+        typing("alice", "bob", false);
+
+        scheduler.advance(STOP_TIMEOUT_MS + TICK_MS);
+
+        assertThat(sentTo("bob")).containsExactly(Map.of("typing", true), Map.of("typing", false));
+        assertThat(coalescer.getStats()).containsEntry("activeConversations", 0L);
+    }
+
+    @Test
+    void conversationsAreCoalescedIndependently() {
+        typing("alice", "bob", true);
+        typing("carol", "bob", true);
+        typing("alice", "dave", true);
+        typing("alice", "bob", true);
+
+        assertThat(sentTo("bob")).hasSize(2);
+        assertThat(sentTo("dave")).hasSize(1);
+        assertThat(coalescer.getStats()).containsEntry("activeConversations", 3L);
+    }
+}
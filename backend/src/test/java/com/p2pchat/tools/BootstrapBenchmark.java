@@ -0,0 +1,229 @@
+package com.p2pchat.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares login-to-first-call-ready time of the legacy login sequence and POST /api/bootstrap
+ * against a running signaling server.
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.BootstrapBenchmark \
+ *       -Dexec.args="--host http://localhost:8080 --peers 200 --runs 20"
+ *
+ * --peers background peers are registered first. Then each run logs one client in, alternating:
+ *   legacy     POST /api/discovery/broadcast, GET /api/discovery/peers, STOMP connect, peer-online,
+ *              ready after one PEER_ONLINE frame per online peer and our own PEER_ONLINE broadcast
+ *   bootstrap  POST /api/bootstrap, STOMP connect, peer-online with the presence version,
+ *              ready after our own PEER_ONLINE broadcast (the peer list came with the bootstrap)
+ * The own broadcast is watched by a separate long-lived session: SUBSCRIBE and the registration
+ * run on different inbound lanes, so the logging-in session may subscribe after its broadcast.
+ */
+public class BootstrapBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String host = "http://localhost:8080";
+        int peers = 200;
+        int runs = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = args[++i];
+                case "--peers" -> peers = Integer.parseInt(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        WebSocketStompClient client = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setInboundMessageSizeLimit(1024 * 1024);
+        HttpClient http = HttpClient.newHttpClient();
+        String wsUrl = host + "/ws/signaling";
+
+        System.out.printf("Registering %d background peers on %s%n", peers, host);
+        List<StompSession> background = registerBackground(client, http, host, wsUrl, peers);
+        Map<String, CountDownLatch> registrations = new ConcurrentHashMap<>();
+        StompSession observer = client.connectAsync(wsUrl, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS);
+        observer.subscribe("/topic/peers", frames(signal -> {
+            CountDownLatch registered = registrations.get(signal.path("from").asText());
+            if (registered != null && "PEER_ONLINE".equals(signal.path("type").asText())) {
+                registered.countDown();
+            }
+        }));
+        Thread.sleep(500);
+        int online = bootstrap(http, host, "bench-probe").path("peers").size();
+        System.out.printf("%d peers online%n", online);
+
+        long[] legacy = new long[runs];
+        long[] bootstrap = new long[runs];
+        for (int r = 0; r < 2 * runs; r++) {
+            boolean useBootstrap = r % 2 == 1;
+            long ms = login(client, http, host, wsUrl, "bench-login-" + r, useBootstrap, online, registrations);
+            (useBootstrap ? bootstrap : legacy)[r / 2] = ms;
+            System.out.printf("run %d %-9s %d ms%n", r / 2 + 1, useBootstrap ? "bootstrap" : "legacy", ms);
+        }
+
+        System.out.println();
+        System.out.printf("Login to call-ready with %d peers online (ms): %n", online);
+        System.out.printf("  legacy     p50=%d p90=%d max=%d%n", percentile(legacy, 0.5), percentile(legacy, 0.9), percentile(legacy, 1.0));
+        System.out.printf("  bootstrap  p50=%d p90=%d max=%d (%+.0f%% p50)%n",
+            percentile(bootstrap, 0.5), percentile(bootstrap, 0.9), percentile(bootstrap, 1.0),
+            100.0 * (percentile(bootstrap, 0.5) - percentile(legacy, 0.5)) / Math.max(1, percentile(legacy, 0.5)));
+
+        for (StompSession session : background) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * One login; returns the time until the client knows every online peer and is registered
+     */
+    private static long login(WebSocketStompClient client, HttpClient http, String host, String wsUrl,
+                              String peerId, boolean useBootstrap, int online,
+                              Map<String, CountDownLatch> registrations) throws Exception {
+        CountDownLatch registered = new CountDownLatch(1);
+        registrations.put(peerId, registered);
+        long start = System.nanoTime();
+        String presenceVersion = null;
+        if (useBootstrap) {
+            JsonNode response = bootstrap(http, host, peerId);
+            presenceVersion = response.path("presenceVersion").asText();
+            if (response.path("peers").size() != online) {
+                throw new IllegalStateException("Bootstrap returned " + response.path("peers").size() + " peers");
+            }
+        } else {
+            post(http, host + "/api/discovery/broadcast", Map.of("peerId", peerId, "username", "bench"));
+            http.send(HttpRequest.newBuilder(URI.create(host + "/api/discovery/peers")).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        }
+
+        StompSession session = client.connectAsync(wsUrl, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS);
+        Set<String> replayed = ConcurrentHashMap.newKeySet();
+        CountDownLatch knowsEveryone = new CountDownLatch(useBootstrap ? 0 : 1);
+        session.subscribe("/topic/peer/" + peerId, frames(signal -> {
+            if ("PEER_ONLINE".equals(signal.path("type").asText())
+                    && replayed.add(signal.path("from").asText()) && replayed.size() >= online) {
+                knowsEveryone.countDown();
+            }
+        }));
+
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/signal/peer-online");
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        Map<String, Object> message = presenceVersion != null
+            ? Map.of("type", "PEER_ONLINE", "from", peerId, "payload", Map.of("presenceVersion", presenceVersion))
+            : Map.of("type", "PEER_ONLINE", "from", peerId);
+        session.send(headers, MAPPER.writeValueAsBytes(message));
+
+        if (!registered.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(peerId + " was not registered (overloaded or draining?)");
+        }
+        if (!knowsEveryone.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(peerId + " received " + replayed.size() + " of " + online + " online peers");
+        }
+        registrations.remove(peerId);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        session.disconnect();
+        // Let the PEER_OFFLINE settle so runs do not overlap
+        Thread.sleep(100);
+        return elapsedMs;
+    }
+
+    private static List<StompSession> registerBackground(WebSocketStompClient client, HttpClient http, String host,
+                                                         String wsUrl, int peers) throws Exception {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/signal/peer-online");
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        List<StompSession> sessions = new ArrayList<>();
+        for (int p = 0; p < peers; p++) {
+            sessions.add(client.connectAsync(wsUrl, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS));
+        }
+        // Registrations may be shed by admission control: resend until everyone is online
+        for (int attempt = 0; attempt < 20; attempt++) {
+            Set<String> online = new HashSet<>();
+            bootstrap(http, host, "bench-probe").path("peers").forEach(id -> online.add(id.asText()));
+            int missing = 0;
+            for (int p = 0; p < peers; p++) {
+                String peerId = "bench-peer-" + p;
+                if (!online.contains(peerId)) {
+                    missing++;
+                    sessions.get(p).send(headers, MAPPER.writeValueAsBytes(Map.of("type", "PEER_ONLINE", "from", peerId)));
+                    Thread.sleep(2);
+                }
+            }
+            if (missing == 0) {
+                break;
+            }
+            Thread.sleep(500);
+        }
+        return sessions;
+    }
+
+    private static JsonNode bootstrap(HttpClient http, String host, String peerId) throws Exception {
+        return MAPPER.readTree(post(http, host + "/api/bootstrap", Map.of("peerId", peerId, "username", "bench")));
+    }
+
+    private static String post(HttpClient http, String url, Map<String, String> body) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+            .build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private interface SignalHandler {
+        void handle(JsonNode signal);
+    }
+
+    private static StompFrameHandler frames(SignalHandler handler) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                try {
+                    handler.handle(MAPPER.readTree((byte[]) payload));
+                } catch (Exception e) {
+                    // Not a signaling message
+                }
+            }
+        };
+    }
+
+    private static long percentile(long[] values, double p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(p * sorted.length) - 1))];
+    }
+}
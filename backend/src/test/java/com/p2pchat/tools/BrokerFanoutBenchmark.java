@@ -0,0 +1,137 @@
+package com.p2pchat.tools;
+
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures broadcast fan-out throughput and latency of a running signaling server.
+ *
+ * Run it once against a server in the default SimpleBroker mode and once against a server in
+ * relay mode (e.g. started with -Pembedded-broker and the "embedded-broker" Spring profile):
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.BrokerFanoutBenchmark \
+ *       -Dexec.args="--url http://localhost:8080/ws/signaling --subscribers 10000 --connections 100 --messages 50"
+ *
+ * Subscribers are spread over a smaller number of STOMP connections; every subscription on
+ * /topic/bench receives every published message. Latency is publish-to-receive within this JVM.
+ */
+public class BrokerFanoutBenchmark {
+
+    private static final String DESTINATION = "/topic/bench";
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080/ws/signaling";
+        int subscribers = 10_000;
+        int connections = 100;
+        int messages = 50;
+        long intervalMs = 100;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--subscribers" -> subscribers = Integer.parseInt(args[++i]);
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--messages" -> messages = Integer.parseInt(args[++i]);
+                case "--interval-ms" -> intervalMs = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        WebSocketStompClient client = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setInboundMessageSizeLimit(1024 * 1024);
+
+        long expected = (long) subscribers * messages;
+        long[] latenciesNs = new long[(int) Math.min(expected, Integer.MAX_VALUE - 8)];
+        AtomicInteger received = new AtomicInteger();
+        AtomicLong lastReceive = new AtomicLong();
+
+        StompFrameHandler handler = new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                long now = System.nanoTime();
+                long sentAt = Long.parseLong(new String((byte[]) payload, StandardCharsets.US_ASCII));
+                int index = received.getAndIncrement();
+                if (index < latenciesNs.length) {
+                    latenciesNs[index] = now - sentAt;
+                }
+                lastReceive.accumulateAndGet(now, Math::max);
+            }
+        };
+
+        System.out.printf("Connecting %d subscribers over %d connections to %s%n", subscribers, connections, url);
+        List<StompSession> sessions = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            sessions.add(client.connectAsync(url, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS));
+        }
+        for (int s = 0; s < subscribers; s++) {
+            sessions.get(s % connections).subscribe(DESTINATION, handler);
+        }
+        StompSession publisher = client.connectAsync(url, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS);
+
+        // Let SUBSCRIBE frames settle before publishing
+        Thread.sleep(2000);
+
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(DESTINATION);
+        headers.setContentType(MimeTypeUtils.TEXT_PLAIN);
+
+        long start = System.nanoTime();
+        for (int m = 0; m < messages; m++) {
+            publisher.send(headers, Long.toString(System.nanoTime()).getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(intervalMs);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        int count = Math.min(received.get(), latenciesNs.length);
+        long[] sorted = Arrays.copyOf(latenciesNs, count);
+        Arrays.sort(sorted);
+        double seconds = (lastReceive.get() - start) / 1e9;
+
+        System.out.printf("Delivered %d / %d (%.1f%%)%n", received.get(), expected, 100.0 * received.get() / expected);
+        System.out.printf("Throughput: %.0f deliveries/s%n", count / seconds);
+        System.out.printf("Latency (ms): p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+            percentileMs(sorted, 0.50), percentileMs(sorted, 0.90), percentileMs(sorted, 0.99),
+            count > 0 ? sorted[count - 1] / 1e6 : 0.0);
+
+        sessions.add(publisher);
+        for (StompSession session : sessions) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
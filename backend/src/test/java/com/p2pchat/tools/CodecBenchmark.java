@@ -0,0 +1,445 @@
+package com.p2pchat.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.p2pchat.capture.CaptureEntry;
+import com.p2pchat.capture.CaptureLogReader;
+import com.p2pchat.dto.SignalingMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compares body codecs for signaling messages: bytes per message and encode / decode cost.
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.CodecBenchmark \
+ *       -Dexec.args="--capture signaling.cap --iterations 20000"
+ *
+ * Samples are the OFFER / ANSWER / ICE_CANDIDATE / PEER_ONLINE bodies of a capture taken with
+ * signaling.capture.redact-payload=false (redacted entries are skipped), or, without --capture,
+ * a built-in Chrome-style audio + video + data channel negotiation.
+ *
+ * Codecs (SignalingMessage -> bytes -> SignalingMessage):
+ *   json          what every client gets today
+ *   cbor          negotiated with accept-content-type: application/cbor
+ *   json+deflate  per message, no shared state
+ *   json+dict     deflate with a preset dictionary of other SDP / ICE samples of the same kind
+ *                 (leave-one-out), i.e. a per-session dictionary pre-trained on SDP
+ *   cbor+dict     same on the CBOR bytes
+ */
+public class CodecBenchmark {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final CBORMapper CBOR = new CBORMapper();
+
+    // Deflate window: a preset dictionary longer than this is never referenced
+    private static final int MAX_DICTIONARY = 32 * 1024;
+
+    private interface Codec {
+        byte[] encode(SignalingMessage message) throws Exception;
+
+        SignalingMessage decode(byte[] bytes) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String capture = null;
+        int iterations = 20_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--capture" -> capture = args[++i];
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Map<SignalingMessage.SignalType, List<SignalingMessage>> samples =
+            capture != null ? fromCapture(Path.of(capture)) : builtIn();
+        System.out.printf("Samples from %s:", capture != null ? capture : "built-in negotiation");
+        samples.forEach((type, messages) -> System.out.printf(" %d %s", messages.size(), type));
+        System.out.println();
+
+        // Silent pass first so every codec is JIT-compiled before anything is measured
+        measure(samples, iterations / 4, false);
+        measure(samples, iterations, true);
+    }
+
+    private static void measure(Map<SignalingMessage.SignalType, List<SignalingMessage>> samples, int iterations,
+                                boolean print) throws Exception {
+        for (Map.Entry<SignalingMessage.SignalType, List<SignalingMessage>> entry : samples.entrySet()) {
+            List<SignalingMessage> messages = entry.getValue();
+            if (print) {
+                System.out.printf("%n== %s (%d samples) ==%n", entry.getKey(), messages.size());
+                System.out.printf("%-14s %10s %8s %12s %12s%n", "codec", "bytes/msg", "vs json", "encode(us)", "decode(us)");
+            }
+            double jsonBytes = 0;
+            for (String name : List.of("json", "cbor", "json+deflate", "json+dict", "cbor+dict")) {
+                long bytes = 0;
+                long encodeNanos = 0;
+                long decodeNanos = 0;
+                for (int s = 0; s < messages.size(); s++) {
+                    Codec codec = codec(name, dictionary(name, messages, s));
+                    SignalingMessage message = messages.get(s);
+                    byte[] encoded = codec.encode(message);
+                    verify(name, message, codec.decode(encoded));
+                    bytes += encoded.length;
+
+                    int rounds = Math.max(100, iterations / messages.size());
+                    long[] nanos = time(codec, message, encoded, rounds);
+                    encodeNanos += nanos[0] / rounds;
+                    decodeNanos += nanos[1] / rounds;
+                }
+                double perMessage = (double) bytes / messages.size();
+                if (name.equals("json")) {
+                    jsonBytes = perMessage;
+                }
+                if (print) {
+                    System.out.printf("%-14s %10.0f %7.0f%% %12.2f %12.2f%n", name, perMessage,
+                        100.0 * perMessage / jsonBytes, encodeNanos / 1e3 / messages.size(), decodeNanos / 1e3 / messages.size());
+                }
+            }
+        }
+    }
+
+    private static Codec codec(String name, byte[] dictionary) {
+        return switch (name) {
+            case "json" -> new Codec() {
+                public byte[] encode(SignalingMessage message) throws Exception {
+                    return JSON.writeValueAsBytes(message);
+                }
+
+                public SignalingMessage decode(byte[] bytes) throws Exception {
+                    return JSON.readValue(bytes, SignalingMessage.class);
+                }
+            };
+            case "cbor" -> new Codec() {
+                public byte[] encode(SignalingMessage message) throws Exception {
+                    return CBOR.writeValueAsBytes(message);
+                }
+
+                public SignalingMessage decode(byte[] bytes) throws Exception {
+                    return CBOR.readValue(bytes, SignalingMessage.class);
+                }
+            };
+            default -> {
+                Codec inner = codec(name.startsWith("cbor") ? "cbor" : "json", null);
+                yield new Codec() {
+                    public byte[] encode(SignalingMessage message) throws Exception {
+                        return deflate(inner.encode(message), dictionary);
+                    }
+
+                    public SignalingMessage decode(byte[] bytes) throws Exception {
+                        return inner.decode(inflate(bytes, dictionary));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Leave-one-out dictionary: the other samples of the same kind, most recent last, as the codec encodes them
+     */
+    private static byte[] dictionary(String name, List<SignalingMessage> messages, int exclude) throws Exception {
+        if (!name.endsWith("+dict")) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int s = 0; s < messages.size(); s++) {
+            if (s != exclude) {
+                out.write(name.startsWith("cbor") ? CBOR.writeValueAsBytes(messages.get(s)) : JSON.writeValueAsBytes(messages.get(s)));
+            }
+        }
+        byte[] all = out.toByteArray();
+        if (all.length <= MAX_DICTIONARY) {
+            return all;
+        }
+        byte[] tail = new byte[MAX_DICTIONARY];
+        System.arraycopy(all, all.length - MAX_DICTIONARY, tail, 0, MAX_DICTIONARY);
+        return tail;
+    }
+
+    private static byte[] deflate(byte[] input, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[input.length + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, byte[] dictionary) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != null) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long[] time(Codec codec, SignalingMessage message, byte[] encoded, int rounds) throws Exception {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            sink += codec.encode(message).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            sink += codec.decode(encoded).getTimestamp();
+        }
+        long decodeNanos = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return new long[] {encodeNanos, decodeNanos};
+    }
+
+    private static void verify(String name, SignalingMessage expected, SignalingMessage actual) throws Exception {
+        if (!JSON.writeValueAsString(expected).equals(JSON.writeValueAsString(actual))) {
+            throw new IllegalStateException(name + " did not round-trip " + expected.getType());
+        }
+    }
+
+    private static Map<SignalingMessage.SignalType, List<SignalingMessage>> fromCapture(Path file) throws Exception {
+        Map<SignalingMessage.SignalType, List<SignalingMessage>> samples = new LinkedHashMap<>();
+        int redacted = 0;
+        for (CaptureEntry entry : CaptureLogReader.readAll(file)) {
+            if (entry.isRedacted()) {
+                redacted++;
+                continue;
+            }
+            try {
+                SignalingMessage message = JSON.readValue(entry.body, SignalingMessage.class);
+                if (message.getType() != null) {
+                    samples.computeIfAbsent(message.getType(), k -> new ArrayList<>()).add(message);
+                }
+            } catch (Exception e) {
+                // Not a signaling message
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("No unredacted signaling messages in " + file + " (" + redacted
+                + " redacted entries; capture with signaling.capture.redact-payload=false)");
+        }
+        return samples;
+    }
+
+    /**
+     * One audio + video + data channel negotiation between two Chrome peers
+     */
+    private static Map<SignalingMessage.SignalType, List<SignalingMessage>> builtIn() {
+        Map<SignalingMessage.SignalType, List<SignalingMessage>> samples = new LinkedHashMap<>();
+        String caller = "alice_1718000000000_k3j9x2";
+        String callee = "bob_1718000000100_p7q2m8";
+        long timestamp = 1_718_000_000_000L;
+
+        samples.put(SignalingMessage.SignalType.OFFER, List.of(
+            message(SignalingMessage.SignalType.OFFER, caller, callee, Map.of("type", "offer", "sdp",
+                sdp("4611731400430051336", "Kq3B", "W1vFBRqiZ8yP8tMCu0M8HyRz", "actpass",
+                    "41:7A:1B:E5:22:0C:5F:90:3E:8B:AC:5D:19:77:0D:C4:6E:A2:F1:93:08:5B:36:C7:D4:2E:91:A0:6F:3C:88:B5",
+                    "3735928559", "1584283117", "2804382930")), timestamp),
+            message(SignalingMessage.SignalType.OFFER, callee, caller, Map.of("type", "offer", "sdp",
+                sdp("7263548812309345511", "zP8d", "u2nH0pQ7aZx1K9wYbE5rTg3M", "actpass",
+                    "9C:05:E2:7B:44:A1:6D:38:F0:12:CB:85:3A:7E:59:D6:02:B4:91:E8:27:63:AF:1C:DE:70:45:8B:36:F9:A2:0D",
+                    "2146120233", "3021884710", "991233847")), timestamp + 9_000)));
+        samples.put(SignalingMessage.SignalType.ANSWER, List.of(
+            message(SignalingMessage.SignalType.ANSWER, callee, caller, Map.of("type", "answer", "sdp",
+                sdp("2289120045778123901", "f4Xe", "hO0m3dKx9Q2bWy7uVnR4sE1L", "active",
+                    "D2:19:8E:A4:5C:33:07:F1:6B:E0:92:4D:BA:28:C5:7F:13:E6:89:0A:54:DB:31:A7:FC:66:02:9E:45:B8:7C:E1",
+                    "1176448392", "4091322657", "2617742084")), timestamp + 800),
+            message(SignalingMessage.SignalType.ANSWER, caller, callee, Map.of("type", "answer", "sdp",
+                sdp("5590127734120098432", "m2Qa", "Yt6pL0vB3xR9cK1sW8eN5jHd", "active",
+                    "0E:B3:57:C9:21:6A:F4:88:3D:12:A5:7B:E0:49:96:CF:68:2B:D1:84:5F:0A:E7:33:9C:46:B8:71:2D:F5:60:1A",
+                    "3388221045", "771049236", "1923004417")), timestamp + 9_700)));
+
+        List<SignalingMessage> candidates = new ArrayList<>();
+        String[] lines = {
+            "candidate:3924551204 1 udp 2122260223 192.168.1.23 58713 typ host generation 0 ufrag Kq3B network-id 1 network-cost 10",
+            "candidate:2191003751 1 udp 2122194687 10.8.0.6 49801 typ host generation 0 ufrag Kq3B network-id 2 network-cost 50",
+            "candidate:1457218341 1 udp 2122129151 2a02:8108:1c0:6e00:5d3:91ff:fe2c:7a41 60112 typ host generation 0 ufrag Kq3B network-id 3 network-cost 10",
+            "candidate:842163049 1 udp 1686052607 93.184.216.34 58713 raddr 192.168.1.23 rport 58713 typ srflx generation 0 ufrag Kq3B network-id 1 network-cost 10",
+            "candidate:4107315283 1 tcp 1518280447 192.168.1.23 9 typ host tcptype active generation 0 ufrag Kq3B network-id 1 network-cost 10",
+            "candidate:1901884412 1 udp 41885439 203.0.113.50 53211 raddr 93.184.216.34 rport 58713 typ relay generation 0 ufrag Kq3B network-id 1 network-cost 10",
+            "candidate:1129983357 1 udp 2113937151 6b1d2a9c-5f0e-4c31-9a77-2e8b1f40c6d3.local 53044 typ host generation 0 ufrag f4Xe network-cost 999",
+            "candidate:3340861127 1 udp 1677729535 198.51.100.77 41290 raddr 0.0.0.0 rport 0 typ srflx generation 0 ufrag f4Xe network-cost 999",
+            "candidate:2756019423 1 tcp 1518214911 10.0.0.41 9 typ host tcptype active generation 0 ufrag f4Xe network-id 2 network-cost 10",
+            "candidate:687533208 1 udp 25108223 203.0.113.50 61980 raddr 198.51.100.77 rport 41290 typ relay generation 0 ufrag f4Xe network-cost 999"
+        };
+        for (int i = 0; i < lines.length; i++) {
+            boolean fromCaller = i < 6;
+            String ufrag = fromCaller ? "Kq3B" : "f4Xe";
+            Map<String, Object> candidate = new LinkedHashMap<>();
+            candidate.put("candidate", lines[i]);
+            candidate.put("sdpMid", "0");
+            candidate.put("sdpMLineIndex", 0);
+            candidate.put("usernameFragment", ufrag);
+            candidates.add(message(SignalingMessage.SignalType.ICE_CANDIDATE, fromCaller ? caller : callee,
+                fromCaller ? callee : caller, candidate, timestamp + 850 + i * 37L));
+        }
+        samples.put(SignalingMessage.SignalType.ICE_CANDIDATE, candidates);
+
+        samples.put(SignalingMessage.SignalType.PEER_ONLINE, List.of(
+            message(SignalingMessage.SignalType.PEER_ONLINE, caller, null, null, timestamp - 60_000),
+            message(SignalingMessage.SignalType.PEER_ONLINE, callee, null, null, timestamp - 42_000),
+            message(SignalingMessage.SignalType.PEER_ONLINE, "carol_1718000000200_z1v6c4", null, null, timestamp - 7_000)));
+        return samples;
+    }
+
+    private static SignalingMessage message(SignalingMessage.SignalType type, String from, String to, Object payload, long timestamp) {
+        SignalingMessage message = new SignalingMessage();
+        message.setType(type);
+        message.setFrom(from);
+        message.setTo(to);
+        message.setPayload(payload);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    /**
+     * Chrome-style unified-plan SDP: opus audio, VP8 / VP9 / H264 / AV1 video with RTX, SCTP data channel
+     */
+    private static String sdp(String sessionId, String ufrag, String pwd, String setup,
+                              String fingerprint, String audioSsrc, String videoSsrc, String rtxSsrc) {
+        String stream = "stream-" + sessionId.substring(0, 8);
+        String track = "track-" + sessionId.substring(8);
+        String ice = "a=ice-ufrag:" + ufrag + "\n"
+            + "a=ice-pwd:" + pwd + "\n"
+            + "a=ice-options:trickle\n"
+            + "a=fingerprint:sha-256 " + fingerprint + "\n"
+            + "a=setup:" + setup + "\n";
+        return ("v=0\n"
+            + "o=- " + sessionId + " 2 IN IP4 127.0.0.1\n"
+            + "s=-\n"
+            + "t=0 0\n"
+            + "a=group:BUNDLE 0 1 2\n"
+            + "a=extmap-allow-mixed\n"
+            + "a=msid-semantic: WMS " + stream + "\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9 0 8 13 110 126\n"
+            + "c=IN IP4 0.0.0.0\n"
+            + "a=rtcp:9 IN IP4 0.0.0.0\n"
+            + ice
+            + "a=mid:0\n"
+            + "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\n"
+            + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\n"
+            + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\n"
+            + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\n"
+            + "a=sendrecv\n"
+            + "a=msid:" + stream + " " + track + "-audio\n"
+            + "a=rtcp-mux\n"
+            + "a=rtpmap:111 opus/48000/2\n"
+            + "a=rtcp-fb:111 transport-cc\n"
+            + "a=fmtp:111 minptime=10;useinbandfec=1\n"
+            + "a=rtpmap:63 red/48000/2\n"
+            + "a=fmtp:63 111/111\n"
+            + "a=rtpmap:9 G722/8000\n"
+            + "a=rtpmap:0 PCMU/8000\n"
+            + "a=rtpmap:8 PCMA/8000\n"
+            + "a=rtpmap:13 CN/8000\n"
+            + "a=rtpmap:110 telephone-event/48000\n"
+            + "a=rtpmap:126 telephone-event/8000\n"
+            + "a=ssrc:" + audioSsrc + " cname:" + ufrag + "cname\n"
+            + "a=ssrc:" + audioSsrc + " msid:" + stream + " " + track + "-audio\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99 100 101 35 36 37 38 102 103 104 105 106 107 108 109 127 125 39 40 45 46 112 113 114 115 116\n"
+            + "c=IN IP4 0.0.0.0\n"
+            + "a=rtcp:9 IN IP4 0.0.0.0\n"
+            + ice
+            + "a=mid:1\n"
+            + "a=extmap:14 urn:ietf:params:rtp-hdrext:toffset\n"
+            + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\n"
+            + "a=extmap:13 urn:3gpp:video-orientation\n"
+            + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\n"
+            + "a=extmap:5 http://www.webrtc.org/experiments/rtp-hdrext/playout-delay\n"
+            + "a=extmap:6 http://www.webrtc.org/experiments/rtp-hdrext/video-content-type\n"
+            + "a=extmap:7 http://www.webrtc.org/experiments/rtp-hdrext/video-timing\n"
+            + "a=extmap:8 http://www.webrtc.org/experiments/rtp-hdrext/color-space\n"
+            + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\n"
+            + "a=extmap:10 urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id\n"
+            + "a=extmap:11 urn:ietf:params:rtp-hdrext:sdes:repaired-rtp-stream-id\n"
+            + "a=sendrecv\n"
+            + "a=msid:" + stream + " " + track + "-video\n"
+            + "a=rtcp-mux\n"
+            + "a=rtcp-rsize\n"
+            + codec(96, "VP8/90000", null, 97)
+            + codec(98, "VP9/90000", "profile-id=0", 99)
+            + codec(100, "VP9/90000", "profile-id=2", 101)
+            + codec(35, "AV1/90000", "level-idx=5;profile=0;tier=0", 36)
+            + codec(37, "AV1/90000", "level-idx=5;profile=1;tier=0", 38)
+            + codec(102, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f", 103)
+            + codec(104, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42001f", 105)
+            + codec(106, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42e01f", 107)
+            + codec(108, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42e01f", 109)
+            + codec(127, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=4d001f", 125)
+            + codec(39, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=4d001f", 40)
+            + codec(45, "H264/90000", "level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=f4001f", 46)
+            + "a=rtpmap:112 H264/90000\n"
+            + "a=rtcp-fb:112 goog-remb\n"
+            + "a=rtcp-fb:112 transport-cc\n"
+            + "a=rtcp-fb:112 ccm fir\n"
+            + "a=rtcp-fb:112 nack\n"
+            + "a=rtcp-fb:112 nack pli\n"
+            + "a=fmtp:112 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=64001f\n"
+            + "a=rtpmap:113 rtx/90000\n"
+            + "a=fmtp:113 apt=112\n"
+            + "a=rtpmap:114 red/90000\n"
+            + "a=rtpmap:115 rtx/90000\n"
+            + "a=fmtp:115 apt=114\n"
+            + "a=rtpmap:116 ulpfec/90000\n"
+            + "a=ssrc-group:FID " + videoSsrc + " " + rtxSsrc + "\n"
+            + "a=ssrc:" + videoSsrc + " cname:" + ufrag + "cname\n"
+            + "a=ssrc:" + videoSsrc + " msid:" + stream + " " + track + "-video\n"
+            + "a=ssrc:" + rtxSsrc + " cname:" + ufrag + "cname\n"
+            + "a=ssrc:" + rtxSsrc + " msid:" + stream + " " + track + "-video\n"
+            + "m=application 9 UDP/DTLS/SCTP webrtc-datachannel\n"
+            + "c=IN IP4 0.0.0.0\n"
+            + ice
+            + "a=mid:2\n"
+            + "a=sctp-port:5000\n"
+            + "a=max-message-size:262144\n").replace("\n", "\r\n");
+    }
+
+    private static String codec(int pt, String rtpmap, String fmtp, int rtx) {
+        return "a=rtpmap:" + pt + " " + rtpmap + "\n"
+            + "a=rtcp-fb:" + pt + " goog-remb\n"
+            + "a=rtcp-fb:" + pt + " transport-cc\n"
+            + "a=rtcp-fb:" + pt + " ccm fir\n"
+            + "a=rtcp-fb:" + pt + " nack\n"
+            + "a=rtcp-fb:" + pt + " nack pli\n"
+            + (fmtp != null ? "a=fmtp:" + pt + " " + fmtp + "\n" : "")
+            + "a=rtpmap:" + rtx + " rtx/90000\n"
+            + "a=fmtp:" + rtx + " apt=" + pt + "\n";
+    }
+}
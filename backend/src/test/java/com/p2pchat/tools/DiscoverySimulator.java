@@ -0,0 +1,402 @@
+package com.p2pchat.tools;
+
+import ch.qos.logback.classic.Level;
+import com.p2pchat.discovery.DiscoveryEngine;
+import com.p2pchat.discovery.DiscoveryTransport;
+import com.p2pchat.util.LatencyHistogram;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs hundreds of DiscoveryEngine instances in one JVM over a simulated network, on virtual
+ * time, to measure how announce / expiry settings behave with loss, latency and churn.
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.DiscoverySimulator \
+ *       -Dexec.args="--nodes 300 --duration-s 600 --loss 0.05 --churn-per-min 10 --announce-ms 5000 --expiry-ms 15000"
+ *
+ * Nodes boot spread over one announce interval. Every packet is dropped with probability --loss,
+ * otherwise delivered after --latency-ms plus up to --jitter-ms. With --churn-per-min, random
+ * nodes crash (they stop sending and receiving) and come back with empty state after --downtime-s.
+ *
+ * Reported:
+ *   initial convergence  time until every node knows every other node
+ *   join convergence     per rejoin, time until the node knows all live nodes and all live nodes know it
+ *   converged time       share of the run in which membership was complete
+ *   false expiries       live nodes removed from some node's membership
+ *   packets              sent / received per node per second (broadcast announcements, unicast probes)
+ */
+public class DiscoverySimulator {
+
+    private final Random random;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Node> byAddress = new HashMap<>();
+    private final Set<Node> joining = new HashSet<>();
+
+    private final long announceMs;
+    private final long expiryMs;
+    private final long probeMs;
+    private final int probeFanout;
+    private final double loss;
+    private final long latencyNanos;
+    private final long jitterNanos;
+
+    private long now;
+    private long sequence;
+
+    private int live;
+    private boolean booted; // every node had its first boot
+    private long knownPairs; // (observer, subject) pairs with both alive and subject in the observer's membership
+    private long convergedSince = -1;
+    private long convergedNanos;
+    private long initialConvergence = -1;
+
+    private final LatencyHistogram joinConvergence = new LatencyHistogram();
+    private long joins;
+    private long unconvergedJoins;
+    private long falseExpiries;
+    private long broadcastsSent;
+    private long unicastsSent;
+    private long received;
+    private long dropped;
+
+    private record Event(long at, long sequence, Runnable action) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            return at != other.at ? Long.compare(at, other.at) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final class Node implements DiscoveryTransport {
+        final String address;
+        DiscoveryEngine engine;
+        boolean alive;
+        int generation;
+        long joinedAt;
+        int knowsLive;
+        int knownByLive;
+
+        Node(int index) {
+            this.address = "10." + (index >> 16 & 255) + "." + (index >> 8 & 255) + "." + (index & 255);
+        }
+
+        @Override
+        public void start(Receiver receiver) {
+            // Packets are handed to the engine directly by the simulated network
+        }
+
+        @Override
+        public void broadcast(String message) {
+            broadcastsSent++;
+            for (Node target : nodes) {
+                if (target != this) {
+                    transmit(this, target, message);
+                }
+            }
+        }
+
+        @Override
+        public void send(String address, String message) {
+            unicastsSent++;
+            Node target = byAddress.get(address);
+            if (target != null) {
+                transmit(this, target, message);
+            }
+        }
+
+        @Override
+        public String localAddress() {
+            return address;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    DiscoverySimulator(long seed, long announceMs, long expiryMs, long probeMs, int probeFanout, double loss,
+                       long latencyMs, long jitterMs) {
+        this.random = new Random(seed);
+        this.announceMs = announceMs;
+        this.expiryMs = expiryMs;
+        this.probeMs = probeMs;
+        this.probeFanout = probeFanout;
+        this.loss = loss;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMs);
+    }
+
+    public static void main(String[] args) {
+        int nodeCount = 200;
+        long durationS = 300;
+        long announceMs = 5000;
+        long expiryMs = 30000;
+        long probeMs = 2000;
+        int probeFanout = 8;
+        double loss = 0.0;
+        long latencyMs = 1;
+        long jitterMs = 2;
+        double churnPerMin = 0;
+        long downtimeS = 20;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--nodes" -> nodeCount = Integer.parseInt(args[++i]);
+                case "--duration-s" -> durationS = Long.parseLong(args[++i]);
+                case "--announce-ms" -> announceMs = Long.parseLong(args[++i]);
+                case "--expiry-ms" -> expiryMs = Long.parseLong(args[++i]);
+                case "--probe-ms" -> probeMs = Long.parseLong(args[++i]);
+                case "--probe-fanout" -> probeFanout = Integer.parseInt(args[++i]);
+                case "--loss" -> loss = Double.parseDouble(args[++i]);
+                case "--latency-ms" -> latencyMs = Long.parseLong(args[++i]);
+                case "--jitter-ms" -> jitterMs = Long.parseLong(args[++i]);
+                case "--churn-per-min" -> churnPerMin = Double.parseDouble(args[++i]);
+                case "--downtime-s" -> downtimeS = Long.parseLong(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        // One debug line per packet would dominate the run
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.p2pchat.discovery")).setLevel(Level.INFO);
+
+        System.out.printf("Simulating %d nodes for %d s: announce %d ms, expiry %d ms, probe %d ms x %d, "
+                + "loss %.1f%%, latency %d+%d ms, churn %.1f/min (down %d s)%n",
+            nodeCount, durationS, announceMs, expiryMs, probeMs, probeFanout, loss * 100, latencyMs, jitterMs,
+            churnPerMin, downtimeS);
+
+        long wallStart = System.nanoTime();
+        DiscoverySimulator simulator = new DiscoverySimulator(seed, announceMs, expiryMs, probeMs, probeFanout, loss,
+            latencyMs, jitterMs);
+        simulator.run(nodeCount, TimeUnit.SECONDS.toNanos(durationS), churnPerMin, TimeUnit.SECONDS.toNanos(downtimeS));
+        simulator.report(nodeCount, durationS, (System.nanoTime() - wallStart) / 1e9);
+    }
+
+    void run(int nodeCount, long durationNanos, double churnPerMin, long downtimeNanos) {
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = new Node(i + 1);
+            nodes.add(node);
+            byAddress.put(node.address, node);
+            // Boot times spread over one announce interval
+            schedule(random.nextLong(TimeUnit.MILLISECONDS.toNanos(announceMs)), () -> join(node));
+        }
+        schedule(TimeUnit.MILLISECONDS.toNanos(announceMs), () -> {
+            booted = true;
+            changed(0, null, null);
+        });
+        if (churnPerMin > 0) {
+            long meanGap = (long) (TimeUnit.MINUTES.toNanos(1) / churnPerMin);
+            scheduleChurn(meanGap, downtimeNanos);
+        }
+
+        while (!events.isEmpty() && events.peek().at() <= durationNanos) {
+            Event event = events.poll();
+            now = event.at();
+            event.action().run();
+        }
+        now = durationNanos;
+        if (convergedSince >= 0) {
+            convergedNanos += now - convergedSince;
+        }
+        unconvergedJoins += joining.size();
+    }
+
+    private void scheduleChurn(long meanGap, long downtimeNanos) {
+        long gap = (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+        schedule(gap, () -> {
+            Node victim = nodes.get(random.nextInt(nodes.size()));
+            if (victim.alive && booted) {
+                crash(victim);
+                schedule(downtimeNanos, () -> join(victim));
+            }
+            scheduleChurn(meanGap, downtimeNanos);
+        });
+    }
+
+    private void join(Node node) {
+        node.engine = new DiscoveryEngine(node, 8080, () -> 0, ip -> false, () -> now,
+            new DiscoveryEngine.Settings(expiryMs, 0.125, 0.1, probeFanout));
+        node.engine.setLocalPeer("peer-" + node.address, "node");
+        node.engine.setMembershipListener(new DiscoveryEngine.MembershipListener() {
+            @Override
+            public void discovered(String address) {
+                Node subject = byAddress.get(address);
+                if (subject.alive) {
+                    node.knowsLive++;
+                    subject.knownByLive++;
+                    changed(1, node, subject);
+                }
+            }
+
+            @Override
+            public void expired(String address) {
+                Node subject = byAddress.get(address);
+                if (subject.alive) {
+                    falseExpiries++;
+                    node.knowsLive--;
+                    subject.knownByLive--;
+                    changed(-1, node, subject);
+                }
+            }
+        });
+        node.alive = true;
+        node.joinedAt = now;
+        node.knowsLive = 0;
+        node.knownByLive = 0;
+        live++;
+
+        // Nodes that have not expired the previous incarnation yet already "know" it
+        long stillKnown = 0;
+        for (Node observer : nodes) {
+            if (observer != node && observer.alive && observer.engine.knows(node.address)) {
+                observer.knowsLive++;
+                node.knownByLive++;
+                stillKnown++;
+            }
+        }
+        if (node.generation > 0) {
+            joins++;
+            joining.add(node);
+        }
+        changed(stillKnown, node, null);
+
+        int generation = ++node.generation;
+        periodic(node, generation, 0, TimeUnit.MILLISECONDS.toNanos(announceMs), node.engine::announce);
+        long expiryTick = TimeUnit.MILLISECONDS.toNanos(expiryMs) / 3;
+        periodic(node, generation, expiryTick, expiryTick, node.engine::expire);
+        if (probeMs > 0) {
+            long probeTick = TimeUnit.MILLISECONDS.toNanos(probeMs);
+            periodic(node, generation, probeTick, probeTick, node.engine::probe);
+        }
+    }
+
+    private void crash(Node node) {
+        node.alive = false;
+        node.generation++;
+        live--;
+        long lost = node.knowsLive;
+        for (Node other : nodes) {
+            if (other != node && other.alive) {
+                if (other.engine.knows(node.address)) {
+                    other.knowsLive--;
+                    lost++;
+                }
+                if (node.engine.knows(other.address)) {
+                    other.knownByLive--;
+                }
+            }
+        }
+        node.knowsLive = 0;
+        node.knownByLive = 0;
+        if (joining.remove(node)) {
+            unconvergedJoins++;
+        }
+        changed(-lost, null, null);
+        // The live set shrank: pending joiners may be complete now
+        new ArrayList<>(joining).forEach(this::checkJoin);
+    }
+
+    private void changed(long delta, Node a, Node b) {
+        knownPairs += delta;
+        boolean converged = booted && knownPairs == (long) live * (live - 1);
+        if (converged && convergedSince < 0) {
+            convergedSince = now;
+            if (initialConvergence < 0) {
+                initialConvergence = now;
+            }
+        } else if (!converged && convergedSince >= 0) {
+            convergedNanos += now - convergedSince;
+            convergedSince = -1;
+        }
+        if (a != null) {
+            checkJoin(a);
+        }
+        if (b != null) {
+            checkJoin(b);
+        }
+    }
+
+    private void checkJoin(Node node) {
+        if (joining.contains(node) && node.knowsLive == live - 1 && node.knownByLive == live - 1) {
+            joining.remove(node);
+            joinConvergence.record(now - node.joinedAt);
+        }
+    }
+
+    private void transmit(Node from, Node to, String message) {
+        if (random.nextDouble() < loss) {
+            dropped++;
+            return;
+        }
+        long delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(jitterNanos) : 0);
+        schedule(delay, () -> {
+            if (to.alive) {
+                received++;
+                to.engine.onPacket(from.address, message);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private void periodic(Node node, int generation, long delay, long interval, Task task) {
+        schedule(delay, () -> {
+            if (node.generation != generation) {
+                return; // crashed since
+            }
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            periodic(node, generation, interval, interval, task);
+        });
+    }
+
+    private void schedule(long delay, Runnable action) {
+        events.add(new Event(now + delay, sequence++, action));
+    }
+
+    boolean initiallyConverged() {
+        return initialConvergence >= 0;
+    }
+
+    /**
+     * Unicast packets (probes and their answers) sent per node per second
+     */
+    double unicastPerNodeSecond(int nodeCount, long durationS) {
+        return unicastsSent / ((double) nodeCount * durationS);
+    }
+
+    void report(int nodeCount, long durationS, double wallSeconds) {
+        System.out.printf("Initial convergence: %s%n",
+            initialConvergence >= 0 ? String.format("%.2f s", initialConvergence / 1e9) : "not reached");
+        LatencyHistogram h = joinConvergence;
+        System.out.printf("Join convergence (ms): %d joins, %d converged, p50=%.0f p90=%.0f p99=%.0f max=%.0f, %d did not converge%n",
+            joins, h.count(), h.percentile(0.50) / 1e6, h.percentile(0.90) / 1e6, h.percentile(0.99) / 1e6,
+            h.percentile(1.0) / 1e6, unconvergedJoins);
+        double measured = durationS - (initialConvergence >= 0 ? initialConvergence / 1e9 : durationS);
+        System.out.printf("Converged: %.1f%% of the time after initial convergence%n",
+            measured > 0 ? 100.0 * (convergedNanos / 1e9) / measured : 0.0);
+        System.out.printf("False expiries: %d%n", falseExpiries);
+        double perNodeSecond = (double) nodeCount * durationS;
+        System.out.printf("Packets per node per second: sent %.2f (broadcast %.2f, unicast %.2f), received %.2f, dropped %d%n",
+            (broadcastsSent + unicastsSent) / perNodeSecond, broadcastsSent / perNodeSecond,
+            unicastsSent / perNodeSecond, received / perNodeSecond, dropped);
+        System.out.printf("Simulated %d s in %.1f s%n", durationS, wallSeconds);
+    }
+}
@@ -0,0 +1,45 @@
+package com.p2pchat.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DiscoverySimulatorTest {
+
+    private static final long DURATION_S = 60;
+    private static final long PROBE_MS = 2000;
+    private static final int FANOUT = 8;
+
+    private static DiscoverySimulator simulate(int nodes) {
+        DiscoverySimulator simulator = new DiscoverySimulator(1, 5000, 30000, PROBE_MS, FANOUT, 0.0, 1, 2);
+        simulator.run(nodes, TimeUnit.SECONDS.toNanos(DURATION_S), 0, 0);
+        return simulator;
+    }
+
+    @Test
+    void probeTrafficPerNodeDoesNotGrowWithTheNetwork() {
+        DiscoverySimulator small = simulate(25);
+        DiscoverySimulator large = simulate(200);
+
+        // PINGs to FANOUT nodes per interval, and on average as many PONGs
+        double bound = 2.0 * FANOUT * 1000 / PROBE_MS;
+        double smallRate = small.unicastPerNodeSecond(25, DURATION_S);
+        double largeRate = large.unicastPerNodeSecond(200, DURATION_S);
+        assertThat(smallRate).isLessThanOrEqualTo(bound);
+        assertThat(largeRate).isLessThanOrEqualTo(bound);
+        assertThat(largeRate).isCloseTo(smallRate, within(smallRate * 0.1));
+        assertThat(small.initiallyConverged()).isTrue();
+        assertThat(large.initiallyConverged()).isTrue();
+    }
+
+    @Test
+    void networkSmallerThanFanoutProbesEveryNode() {
+        DiscoverySimulator simulator = simulate(5);
+
+        // 4 PINGs per interval and 4 PONGs, minus the intervals before the other nodes are known
+        assertThat(simulator.unicastPerNodeSecond(5, DURATION_S)).isBetween(3.0, 4.0);
+    }
+}
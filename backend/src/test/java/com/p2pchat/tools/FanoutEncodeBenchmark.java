@@ -0,0 +1,143 @@
+package com.p2pchat.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p2pchat.config.SharedFrameStompEncoder;
+import com.p2pchat.dto.SignalingMessage;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures CPU time and allocation of encoding one presence broadcast for N subscribers,
+ * standard StompEncoder (one full encode per recipient) vs SharedFrameStompEncoder (shared body).
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.FanoutEncodeBenchmark \
+ *       -Dexec.args="--subscribers 1000,10000 --broadcasts 200"
+ *
+ * Runs in-process on the outbound encode path only (no sockets), so the numbers isolate the
+ * per-recipient serialization cost. Frames of both encoders are decoded and compared first.
+ */
+public class FanoutEncodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int[] subscriberCounts = {1_000, 10_000};
+        int broadcasts = 200;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--subscribers" -> subscriberCounts = Arrays.stream(args[++i].split(","))
+                    .mapToInt(Integer::parseInt).toArray();
+                case "--broadcasts" -> broadcasts = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        StompEncoder standard = new StompEncoder();
+        SharedFrameStompEncoder shared = new SharedFrameStompEncoder();
+
+        for (int subscribers : subscriberCounts) {
+            List<MessageHeaders> recipients = recipientHeaders(subscribers);
+            verify(standard, shared, recipients, body(objectMapper, 0));
+
+            // Warm up both paths before measuring
+            run(standard, recipients, objectMapper, broadcasts / 4 + 1);
+            run(shared, recipients, objectMapper, broadcasts / 4 + 1);
+
+            Result baseline = run(standard, recipients, objectMapper, broadcasts);
+            Result optimized = run(shared, recipients, objectMapper, broadcasts);
+
+            long frames = (long) subscribers * broadcasts;
+            System.out.printf("%n== %d subscribers x %d broadcasts ==%n", subscribers, broadcasts);
+            System.out.printf("%-14s %14s %14s %16s%n", "encoder", "cpu ns/frame", "alloc B/frame", "cpu ms/broadcast");
+            print("standard", baseline, frames, broadcasts);
+            print("shared-frame", optimized, frames, broadcasts);
+            System.out.printf("cpu %+.1f%%, alloc %+.1f%%%n",
+                100.0 * (optimized.cpuNanos - baseline.cpuNanos) / baseline.cpuNanos,
+                100.0 * (optimized.allocatedBytes - baseline.allocatedBytes) / baseline.allocatedBytes);
+        }
+        System.out.println();
+        System.out.println("Shared-frame encoder: " + shared.getStats());
+    }
+
+    private static Result run(StompEncoder encoder, List<MessageHeaders> recipients, ObjectMapper objectMapper,
+                              int broadcasts) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sink = 0;
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long allocStart = threads.getCurrentThreadAllocatedBytes();
+        for (int b = 0; b < broadcasts; b++) {
+            // One body per broadcast, shared by every subscription (as the SimpleBroker does)
+            byte[] payload = body(objectMapper, b);
+            for (MessageHeaders headers : recipients) {
+                sink += encoder.encode(headers, payload).length;
+            }
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocStart;
+        if (sink == 0) {
+            throw new IllegalStateException("nothing encoded");
+        }
+        return new Result(cpu, allocated);
+    }
+
+    private static void verify(StompEncoder standard, StompEncoder shared, List<MessageHeaders> recipients,
+                               byte[] payload) {
+        StompDecoder decoder = new StompDecoder();
+        for (MessageHeaders headers : recipients.subList(0, Math.min(3, recipients.size()))) {
+            Message<byte[]> expected = decoder.decode(ByteBuffer.wrap(standard.encode(headers, payload))).get(0);
+            Message<byte[]> actual = decoder.decode(ByteBuffer.wrap(shared.encode(headers, payload))).get(0);
+            StompHeaderAccessor expectedHeaders = StompHeaderAccessor.wrap(expected);
+            StompHeaderAccessor actualHeaders = StompHeaderAccessor.wrap(actual);
+            if (!Arrays.equals(expected.getPayload(), actual.getPayload())
+                    || !expectedHeaders.toNativeHeaderMap().equals(actualHeaders.toNativeHeaderMap())) {
+                throw new IllegalStateException("Shared-frame encoding differs: " + actualHeaders.toNativeHeaderMap()
+                    + " vs " + expectedHeaders.toNativeHeaderMap());
+            }
+        }
+    }
+
+    /**
+     * Headers of the MESSAGE frame for each subscriber, as StompSubProtocolHandler hands them to the encoder
+     */
+    private static List<MessageHeaders> recipientHeaders(int subscribers) {
+        List<MessageHeaders> recipients = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setSessionId("session-" + i);
+            accessor.setSubscriptionId("sub-0");
+            accessor.setMessageId("session-" + i + "-" + i);
+            accessor.setDestination("/topic/peers");
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            recipients.add(accessor.getMessageHeaders());
+        }
+        return recipients;
+    }
+
+    private static byte[] body(ObjectMapper objectMapper, int n) throws Exception {
+        SignalingMessage message = new SignalingMessage();
+        message.setType(SignalingMessage.SignalType.PEER_ONLINE);
+        message.setFrom("peer-" + n + "-a1b2c3d4e5f6");
+        message.setTimestamp(System.currentTimeMillis());
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    private static void print(String name, Result result, long frames, int broadcasts) {
+        System.out.printf("%-14s %14.1f %14.1f %16.2f%n", name,
+            (double) result.cpuNanos / frames, (double) result.allocatedBytes / frames,
+            result.cpuNanos / 1e6 / broadcasts);
+    }
+
+    private record Result(long cpuNanos, long allocatedBytes) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.p2pchat.tools;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Summarizes the com.p2pchat.* events of a JDK Flight Recorder file into per-type latency breakdowns
+ * and outcome counts.
+ *
+ * Events are enabled by default, but the per-message ones only record calls of at least 1 ms, so
+ * their percentiles describe that tail; each section is labeled with the threshold found in the
+ * recording. Record (add signaling-all.jfc for full distributions, thresholds at 0):
+ *   java -XX:StartFlightRecording=filename=signaling.jfr,settings=profile,settings=src/test/resources/signaling-all.jfc \
+ *       -jar p2p-chat-signaling.jar
+ * Summarize:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.JfrSummaryTool -Dexec.args="signaling.jfr"
+ */
+public class JfrSummaryTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: JfrSummaryTool <recording.jfr>");
+            System.exit(1);
+        }
+
+        // group label -> {total, lookup, send} duration samples in nanoseconds
+        Map<String, List<long[]>> relays = new TreeMap<>();
+        // signal type -> outcome -> count (DELIVERED, FORWARDED, STALE, HELD, DROPPED, relay QUEUED / rejections)
+        Map<String, Map<String, Integer>> relayOutcomes = new TreeMap<>();
+        Set<String> outcomes = new TreeSet<>();
+        // event type id -> threshold setting, event name -> type id
+        Map<Long, String> thresholds = new HashMap<>();
+        Map<String, Long> typeIds = new HashMap<>();
+        Map<String, List<long[]>> registry = new TreeMap<>();
+        Map<String, List<long[]>> packets = new TreeMap<>();
+        List<long[]> cleanups = new ArrayList<>();
+        long cleanupRemoved = 0;
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(Paths.get(args[0]))) {
+            long duration = event.getDuration().toNanos();
+            typeIds.putIfAbsent(event.getEventType().getName(), event.getEventType().getId());
+            switch (event.getEventType().getName()) {
+                case "jdk.ActiveSetting" -> {
+                    if ("threshold".equals(event.getString("name"))) {
+                        thresholds.put(event.getLong("id"), event.getString("value"));
+                    }
+                }
+                case "com.p2pchat.SignalRelay" -> {
+                    String type = event.getString("signalType");
+                    String outcome = String.valueOf(event.getString("outcome"));
+                    relays.computeIfAbsent(type, k -> new ArrayList<>())
+                        .add(new long[] {duration, event.getLong("lookupNanos"), event.getLong("sendNanos")});
+                    relayOutcomes.computeIfAbsent(type, k -> new TreeMap<>()).merge(outcome, 1, Integer::sum);
+                    outcomes.add(outcome);
+                }
+                case "com.p2pchat.PeerRegistry" -> registry
+                    .computeIfAbsent(event.getString("operation"), k -> new ArrayList<>())
+                    .add(new long[] {duration});
+                case "com.p2pchat.DiscoveryPacket" -> packets
+                    .computeIfAbsent(event.getString("outcome"), k -> new ArrayList<>())
+                    .add(new long[] {duration});
+                case "com.p2pchat.DiscoveryCleanup" -> {
+                    cleanups.add(new long[] {duration});
+                    cleanupRemoved += event.getInt("removed");
+                }
+                default -> {
+                    // not ours
+                }
+            }
+        }
+
+        System.out.println("== Signal relays (us" + scope("com.p2pchat.SignalRelay", thresholds, typeIds) + ") ==");
+        System.out.printf("%-16s %8s %10s %10s %10s %12s %12s%n",
+            "type", "count", "p50", "p99", "max", "lookup-p99", "send-p99");
+        relays.forEach((type, samples) -> System.out.printf("%-16s %8d %10.1f %10.1f %10.1f %12.1f %12.1f%n",
+            type, samples.size(),
+            percentileUs(samples, 0, 0.50), percentileUs(samples, 0, 0.99), percentileUs(samples, 0, 1.0),
+            percentileUs(samples, 1, 0.99), percentileUs(samples, 2, 0.99)));
+
+        System.out.println();
+        System.out.println("== Signal relay outcomes (count" + scope("com.p2pchat.SignalRelay", thresholds, typeIds) + ") ==");
+        System.out.printf("%-16s", "type");
+        outcomes.forEach(outcome -> System.out.printf(" %22s", outcome));
+        System.out.println();
+        relayOutcomes.forEach((type, counts) -> {
+            System.out.printf("%-16s", type);
+            outcomes.forEach(outcome -> System.out.printf(" %22d", counts.getOrDefault(outcome, 0)));
+            System.out.println();
+        });
+
+        printSimple("Peer registry (us" + scope("com.p2pchat.PeerRegistry", thresholds, typeIds) + ")",
+            "operation", registry);
+        printSimple("Discovery packets (us" + scope("com.p2pchat.DiscoveryPacket", thresholds, typeIds) + ")",
+            "outcome", packets);
+
+        System.out.println();
+        System.out.println("== Discovery cleanup passes (us" + scope("com.p2pchat.DiscoveryCleanup", thresholds, typeIds) + ") ==");
+        System.out.printf("passes=%d removed=%d p50=%.1f p99=%.1f max=%.1f%n", cleanups.size(), cleanupRemoved,
+            percentileUs(cleanups, 0, 0.50), percentileUs(cleanups, 0, 0.99), percentileUs(cleanups, 0, 1.0));
+    }
+
+    /**
+     * Section label suffix: which events the recording kept (all of them only with a 0 threshold)
+     */
+    private static String scope(String eventName, Map<Long, String> thresholds, Map<String, Long> typeIds) {
+        Long id = typeIds.get(eventName);
+        if (id == null) {
+            return ", no events";
+        }
+        String threshold = thresholds.get(id);
+        if (threshold == null) {
+            return ", threshold unknown";
+        }
+        return threshold.trim().matches("0\\s*[a-z]*") ? ", all events" : ", >= " + threshold + " tail only";
+    }
+
+    private static void printSimple(String title, String column, Map<String, List<long[]>> groups) {
+        System.out.println();
+        System.out.println("== " + title + " ==");
+        System.out.printf("%-20s %8s %10s %10s %10s%n", column, "count", "p50", "p99", "max");
+        groups.forEach((key, samples) -> System.out.printf("%-20s %8d %10.1f %10.1f %10.1f%n",
+            key, samples.size(), percentileUs(samples, 0, 0.50), percentileUs(samples, 0, 0.99),
+            percentileUs(samples, 0, 1.0)));
+    }
+
+    private static double percentileUs(List<long[]> samples, int column, double p) {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        List<Long> values = new ArrayList<>(samples.size());
+        for (long[] sample : samples) {
+            values.add(sample[column]);
+        }
+        Collections.sort(values);
+        int index = Math.min(values.size() - 1, Math.max(0, (int) Math.ceil(p * values.size()) - 1));
+        return values.get(index) / 1000.0;
+    }
+}
@@ -0,0 +1,265 @@
+package com.p2pchat.tools;
+
+import com.p2pchat.dto.SignalingMessage;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Measures call-setup latency (OFFER -> ANSWER round trip) while other sessions flood the
+ * server with presence churn and typing indicators.
+ *
+ * Run it against a server with signaling.lanes.enabled=true and again with =false:
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.LanePriorityBenchmark \
+ *       -Dexec.args="--url http://localhost:8080/ws/signaling --flooders 200 --flood-rate 2000 --duration-s 20"
+ *
+ * Each flooder registers a peer and subscribes to /topic/peers, then repeatedly toggles
+ * PEER_OFFLINE / PEER_ONLINE (every toggle fans out to all flooders) and sends TYPING, in
+ * total --flood-rate toggle + typing pairs per second. With --join-rate, new clients keep
+ * connecting, subscribing to /topic/peers and registering during the run (a reconnect storm)
+ * to exercise admission control.
+ * Setup connections retry rejected handshakes with jittered backoff, like the web client.
+ * A caller / callee pair exchanges OFFER / ANSWER every --call-interval-ms throughout.
+ */
+public class LanePriorityBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080/ws/signaling";
+        int flooders = 200;
+        int floodThreads = 8;
+        long durationS = 20;
+        long callIntervalMs = 50;
+        int floodRate = 2000;
+        int joinRate = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--flooders" -> flooders = Integer.parseInt(args[++i]);
+                case "--flood-threads" -> floodThreads = Integer.parseInt(args[++i]);
+                case "--duration-s" -> durationS = Long.parseLong(args[++i]);
+                case "--call-interval-ms" -> callIntervalMs = Long.parseLong(args[++i]);
+                case "--flood-rate" -> floodRate = Integer.parseInt(args[++i]);
+                case "--join-rate" -> joinRate = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        WebSocketStompClient client = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setInboundMessageSizeLimit(1024 * 1024);
+
+        AtomicLong floodReceived = new AtomicLong();
+        StompFrameHandler floodSink = handler(payload -> floodReceived.incrementAndGet());
+
+        System.out.printf("Connecting %d flooders to %s%n", flooders, url);
+        List<StompSession> floodSessions = new ArrayList<>();
+        for (int f = 0; f < flooders; f++) {
+            StompSession session = connectWithRetry(client, url);
+            session.subscribe("/topic/peers", floodSink);
+            session.subscribe("/topic/peer/flood-" + f, floodSink);
+            session.send("/app/signal/peer-online", signal(SignalingMessage.SignalType.PEER_ONLINE, "flood-" + f, null));
+            floodSessions.add(session);
+        }
+
+        // Callee answers every OFFER; caller times OFFER -> ANSWER
+        Map<String, Long> pending = new ConcurrentHashMap<>();
+        List<Long> rtts = Collections.synchronizedList(new ArrayList<>());
+        StompSession callee = connectWithRetry(client, url);
+        callee.subscribe("/topic/peer/bench-callee", handler(payload -> {
+            if (payload.getType() == SignalingMessage.SignalType.OFFER) {
+                SignalingMessage answer = signal(SignalingMessage.SignalType.ANSWER, "bench-callee", "bench-caller");
+                answer.setPayload(payload.getPayload());
+                callee.send("/app/signal/answer", answer);
+            }
+        }));
+        callee.send("/app/signal/peer-online", signal(SignalingMessage.SignalType.PEER_ONLINE, "bench-callee", null));
+        StompSession caller = connectWithRetry(client, url);
+        caller.subscribe("/topic/peer/bench-caller", handler(payload -> {
+            if (payload.getType() == SignalingMessage.SignalType.ANSWER) {
+                Long sentAt = pending.remove(String.valueOf(payload.getPayload()));
+                if (sentAt != null) {
+                    rtts.add(System.nanoTime() - sentAt);
+                }
+            }
+        }));
+        caller.send("/app/signal/peer-online", signal(SignalingMessage.SignalType.PEER_ONLINE, "bench-caller", null));
+        Thread.sleep(2000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong floodSent = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        int perThread = (flooders + floodThreads - 1) / floodThreads;
+        long pairIntervalNanos = TimeUnit.SECONDS.toNanos(1) * floodThreads / Math.max(1, floodRate);
+        for (int t = 0; t < floodThreads; t++) {
+            int from = t * perThread;
+            int to = Math.min(flooders, from + perThread);
+            Thread thread = new Thread(() -> {
+                boolean online = true;
+                long next = System.nanoTime();
+                while (running.get()) {
+                    for (int f = from; f < to && running.get(); f++) {
+                        String peerId = "flood-" + f;
+                        StompSession session = floodSessions.get(f);
+                        session.send("/app/signal/typing", signal(SignalingMessage.SignalType.TYPING, peerId,
+                            "flood-" + ((f + 1) % floodSessions.size())));
+                        session.send(online ? "/app/signal/peer-offline" : "/app/signal/peer-online",
+                            signal(online ? SignalingMessage.SignalType.PEER_OFFLINE : SignalingMessage.SignalType.PEER_ONLINE,
+                                peerId, null));
+                        floodSent.addAndGet(2);
+                        next += pairIntervalNanos;
+                        long sleep = next - System.nanoTime();
+                        if (sleep > 0) {
+                            LockSupport.parkNanos(sleep);
+                        }
+                    }
+                    online = !online;
+                }
+            }, "flood-" + t);
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Reconnect storm: new clients that connect + register once, without retrying
+        AtomicLong joinsConnected = new AtomicLong();
+        AtomicLong joinsRefused = new AtomicLong();
+        AtomicLong joinsOverloaded = new AtomicLong();
+        if (joinRate > 0) {
+            String joinUrl = url;
+            long joinIntervalNanos = TimeUnit.SECONDS.toNanos(1) / joinRate;
+            Thread joiner = new Thread(() -> {
+                long next = System.nanoTime();
+                for (int j = 0; running.get(); j++) {
+                    String peerId = "join-" + j;
+                    client.connectAsync(joinUrl, new StompSessionHandlerAdapter() {}).whenComplete((session, error) -> {
+                        if (error != null) {
+                            joinsRefused.incrementAndGet();
+                            return;
+                        }
+                        joinsConnected.incrementAndGet();
+                        session.subscribe("/topic/peers", floodSink);
+                        session.subscribe("/topic/peer/" + peerId, handler(payload -> {
+                            if (payload.getType() == SignalingMessage.SignalType.ERROR) {
+                                joinsOverloaded.incrementAndGet();
+                            }
+                        }));
+                        session.send("/app/signal/peer-online", signal(SignalingMessage.SignalType.PEER_ONLINE, peerId, null));
+                    });
+                    next += joinIntervalNanos;
+                    LockSupport.parkNanos(Math.max(0, next - System.nanoTime()));
+                }
+            }, "joiner");
+            joiner.start();
+            threads.add(joiner);
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationS);
+        int calls = 0;
+        while (System.nanoTime() < end) {
+            String callId = "call-" + calls++;
+            SignalingMessage offer = signal(SignalingMessage.SignalType.OFFER, "bench-caller", "bench-callee");
+            offer.setPayload(callId);
+            pending.put(callId, System.nanoTime());
+            caller.send("/app/signal/offer", offer);
+            Thread.sleep(callIntervalMs);
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Thread.sleep(3000);
+
+        long[] sorted;
+        synchronized (rtts) {
+            sorted = rtts.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        System.out.printf("Flood: sent %d frames, received %d frames in %d s%n", floodSent.get(), floodReceived.get(), durationS);
+        System.out.printf("Calls: %d sent, %d answered%n", calls, sorted.length);
+        if (joinRate > 0) {
+            System.out.printf("Joins: %d connected, %d handshakes refused, %d registrations rejected (overloaded)%n",
+                joinsConnected.get(), joinsRefused.get(), joinsOverloaded.get());
+        }
+        System.out.printf("OFFER->ANSWER RTT (ms): p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+            percentileMs(sorted, 0.50), percentileMs(sorted, 0.90), percentileMs(sorted, 0.99),
+            sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+
+        printServerMetrics(url, "lanes");
+        printServerMetrics(url, "admission");
+        System.exit(0);
+    }
+
+    private static StompSession connectWithRetry(WebSocketStompClient client, String url) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return client.connectAsync(url, new StompSessionHandlerAdapter() {}).get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (attempt == 20) {
+                    throw e;
+                }
+                Thread.sleep(500 + ThreadLocalRandom.current().nextLong(500L << Math.min(attempt, 3)));
+            }
+        }
+    }
+
+    private static void printServerMetrics(String url, String name) {
+        String metricsUrl = url.replaceFirst("^ws", "http").replaceFirst("/ws/signaling.*$", "/api/metrics/" + name);
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(metricsUrl)).build(), HttpResponse.BodyHandlers.ofString());
+            System.out.println("Server " + name + ": " + response.body());
+        } catch (Exception e) {
+            System.out.println("Server " + name + " unavailable: " + e.getMessage());
+        }
+    }
+
+    private static SignalingMessage signal(SignalingMessage.SignalType type, String from, String to) {
+        return new SignalingMessage(type, from, to, null, System.currentTimeMillis());
+    }
+
+    private static StompFrameHandler handler(Consumer<SignalingMessage> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return SignalingMessage.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                consumer.accept((SignalingMessage) payload);
+            }
+        };
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,292 @@
+package com.p2pchat.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p2pchat.capture.CaptureEntry;
+import com.p2pchat.capture.CaptureLogReader;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-drives a signaling capture against a running server and reports delivery outcomes.
+ *
+ * Usage:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.SignalingReplayTool \
+ *       -Dexec.args="capture.bin [--url http://localhost:8080/ws/signaling] [--speed 1|N|max]
+ *                    [--grace-ms 2000] [--report out.tsv] [--baseline previous.tsv]"
+ *
+ * Each captured session gets its own STOMP connection. Relayed signals (those with a "to")
+ * are matched at the receiving replay session to compute delivered / missing counts and
+ * delivery latency per signal type. With --baseline the report is diffed against an earlier run.
+ */
+public class SignalingReplayTool {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String url;
+    private final double speed;
+    private final long graceMs;
+
+    private final WebSocketStompClient stompClient;
+    private final Map<String, StompSession> sessions = new HashMap<>();
+    private final Map<String, String> sessionPeers = new HashMap<>();
+
+    // (type|from|to) -> send times (nanoTime) of signals still waiting for delivery
+    private final Map<String, Deque<Long>> pending = new ConcurrentHashMap<>();
+    private final Map<String, TypeStats> stats = new ConcurrentHashMap<>();
+
+    public SignalingReplayTool(String url, double speed, long graceMs) {
+        this.url = url;
+        this.speed = speed;
+        this.graceMs = graceMs;
+        this.stompClient = new WebSocketStompClient(
+            new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: SignalingReplayTool <capture.bin> [--url U] [--speed 1|N|max] "
+                + "[--grace-ms MS] [--report FILE] [--baseline FILE]");
+            System.exit(1);
+        }
+
+        String url = "http://localhost:8080/ws/signaling";
+        double speed = 1.0;
+        long graceMs = 2000;
+        Path report = null;
+        Path baseline = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--speed" -> {
+                    String value = args[++i];
+                    speed = "max".equals(value) ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+                }
+                case "--grace-ms" -> graceMs = Long.parseLong(args[++i]);
+                case "--report" -> report = Paths.get(args[++i]);
+                case "--baseline" -> baseline = Paths.get(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<CaptureEntry> entries = CaptureLogReader.readAll(Paths.get(args[0]));
+        System.out.printf("Loaded %d captured frames from %s%n", entries.size(), args[0]);
+
+        SignalingReplayTool tool = new SignalingReplayTool(url, speed, graceMs);
+        Map<String, long[]> result = tool.replay(entries);
+
+        print(result);
+        if (report != null) {
+            write(result, report);
+        }
+        if (baseline != null) {
+            diff(read(baseline), result);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Replay all entries and return type -> {sent, delivered, p50Us, p99Us, maxUs}
+     */
+    public Map<String, long[]> replay(List<CaptureEntry> entries) throws Exception {
+        if (entries.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        long captureStart = entries.get(0).arrivalEpochNanos;
+        long replayStart = System.nanoTime();
+
+        for (CaptureEntry entry : entries) {
+            if (!Double.isInfinite(speed)) {
+                long due = replayStart + (long) ((entry.arrivalEpochNanos - captureStart) / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            send(entry);
+        }
+
+        // Give in-flight signals time to arrive
+        Thread.sleep(graceMs);
+
+        for (StompSession session : sessions.values()) {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+
+        Map<String, long[]> result = new TreeMap<>();
+        stats.forEach((type, s) -> result.put(type, s.summary()));
+        return result;
+    }
+
+    private void send(CaptureEntry entry) throws Exception {
+        JsonNode signal = MAPPER.readTree(entry.body);
+        String type = text(signal, "type");
+        String from = text(signal, "from");
+        String to = text(signal, "to");
+
+        StompSession session = sessions.get(entry.sessionId);
+        if (session == null) {
+            session = stompClient.connectAsync(url, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+            sessions.put(entry.sessionId, session);
+        }
+        if (from != null && !from.equals(sessionPeers.get(entry.sessionId))) {
+            sessionPeers.put(entry.sessionId, from);
+            session.subscribe("/topic/peer/" + from, new DeliveryHandler(from));
+        }
+
+        if (type != null && from != null && to != null) {
+            stats.computeIfAbsent(type, t -> new TypeStats()).sent++;
+            Deque<Long> queue = pending.computeIfAbsent(key(type, from, to), k -> new ArrayDeque<>());
+            synchronized (queue) {
+                queue.add(System.nanoTime());
+            }
+        }
+
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(entry.destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        session.send(headers, entry.body);
+    }
+
+    private class DeliveryHandler implements StompFrameHandler {
+        private final String peerId;
+
+        DeliveryHandler(String peerId) {
+            this.peerId = peerId;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return byte[].class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long now = System.nanoTime();
+            try {
+                JsonNode signal = MAPPER.readTree((byte[]) payload);
+                String type = text(signal, "type");
+                Deque<Long> queue = pending.get(key(type, text(signal, "from"), peerId));
+                if (queue == null) {
+                    return;
+                }
+                Long sentAt;
+                synchronized (queue) {
+                    sentAt = queue.poll();
+                }
+                if (sentAt != null) {
+                    stats.get(type).delivered(TimeUnit.NANOSECONDS.toMicros(now - sentAt));
+                }
+            } catch (IOException e) {
+                // Non-JSON frame, ignore
+            }
+        }
+    }
+
+    private static class TypeStats {
+        long sent;
+        private final List<Long> latenciesUs = new ArrayList<>();
+
+        synchronized void delivered(long latencyUs) {
+            latenciesUs.add(latencyUs);
+        }
+
+        synchronized long[] summary() {
+            List<Long> sorted = new ArrayList<>(latenciesUs);
+            Collections.sort(sorted);
+            return new long[] {
+                sent,
+                sorted.size(),
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.99),
+                sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1)
+            };
+        }
+
+        private static long percentile(List<Long> sorted, double p) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+        }
+    }
+
+    private static String key(String type, String from, String to) {
+        return type + "|" + from + "|" + to;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+
+    private static void print(Map<String, long[]> result) {
+        System.out.printf("%-16s %8s %10s %8s %10s %10s %10s%n",
+            "type", "sent", "delivered", "missing", "p50(us)", "p99(us)", "max(us)");
+        result.forEach((type, r) -> System.out.printf("%-16s %8d %10d %8d %10d %10d %10d%n",
+            type, r[0], r[1], r[0] - r[1], r[2], r[3], r[4]));
+    }
+
+    private static void write(Map<String, long[]> result, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            result.forEach((type, r) -> out.printf("%s\t%d\t%d\t%d\t%d\t%d%n", type, r[0], r[1], r[2], r[3], r[4]));
+        }
+    }
+
+    private static Map<String, long[]> read(Path file) throws IOException {
+        Map<String, long[]> result = new TreeMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t");
+            if (parts.length == 6) {
+                long[] values = new long[5];
+                for (int i = 0; i < 5; i++) {
+                    values[i] = Long.parseLong(parts[i + 1]);
+                }
+                result.put(parts[0], values);
+            }
+        }
+        return result;
+    }
+
+    private static void diff(Map<String, long[]> baseline, Map<String, long[]> current) {
+        System.out.println();
+        System.out.printf("%-16s %14s %14s %14s%n", "type", "Δmissing", "Δp50(us)", "Δp99(us)");
+        TreeMap<String, long[]> all = new TreeMap<>(baseline);
+        all.putAll(current);
+        for (String type : all.keySet()) {
+            long[] b = baseline.getOrDefault(type, new long[5]);
+            long[] c = current.getOrDefault(type, new long[5]);
+            System.out.printf("%-16s %+14d %+14d %+14d%n",
+                type, (c[0] - c[1]) - (b[0] - b[1]), c[2] - b[2], c[3] - b[3]);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.p2pchat.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cold-start time of one or more server launch commands.
+ *
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.p2pchat.tools.StartupBenchmark -Dexec.args="--runs 5
+ *       --cmd 'java -jar baseline.jar'
+ *       --cmd 'java -XX:SharedArchiveFile=target/app-cds.jsa -Dspring.aot.enabled=true -jar target/p2p-chat-signaling-1.0.0.jar'"
+ *
+ * For each run the command is spawned, /ws/signaling is polled until a STOMP session connects,
+ * a discovery broadcast is triggered, and the server-side milestones from /api/metrics/startup
+ * (time since JVM start) are collected. Medians are reported per command.
+ */
+public class StartupBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        String host = "http://localhost:8080";
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--host" -> host = args[++i];
+                case "--cmd" -> commands.add(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (commands.isEmpty()) {
+            System.err.println("Usage: StartupBenchmark [--runs N] [--host URL] --cmd '<launch command>' [--cmd ...]");
+            System.exit(1);
+        }
+
+        long[][] medians = new long[commands.size()][];
+        for (int c = 0; c < commands.size(); c++) {
+            long[][] samples = new long[3][runs];
+            for (int r = 0; r < runs; r++) {
+                long[] sample = measure(commands.get(c), host);
+                for (int k = 0; k < 3; k++) {
+                    samples[k][r] = sample[k];
+                }
+                System.out.printf("[%d] run %d: connect=%d ms, server ws=%d ms, server udp=%d ms%n",
+                    c, r + 1, sample[0], sample[1], sample[2]);
+            }
+            medians[c] = new long[] {median(samples[0]), median(samples[1]), median(samples[2])};
+        }
+
+        System.out.println();
+        System.out.printf("%-4s %14s %14s %14s  %s%n", "#", "connect(ms)", "server-ws(ms)", "server-udp(ms)", "command");
+        for (int c = 0; c < commands.size(); c++) {
+            String delta = c == 0 ? "" : String.format(" (%+.0f%% connect vs #0)",
+                100.0 * (medians[c][0] - medians[0][0]) / medians[0][0]);
+            System.out.printf("%-4d %14d %14d %14d  %s%s%n",
+                c, medians[c][0], medians[c][1], medians[c][2], commands.get(c), delta);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return {wall ms from spawn to first STOMP connect, server ms to first ws connection, server ms to first UDP packet}
+     */
+    private static long[] measure(String command, String host) throws Exception {
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        HttpClient http = HttpClient.newHttpClient();
+        String wsUrl = host.replaceFirst("^http", "ws") + "/ws/signaling/websocket";
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(Arrays.asList(command.split(" +")))
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            StompSession session = null;
+            while (session == null) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Server exited with code " + process.exitValue());
+                }
+                try {
+                    session = stompClient.connectAsync(wsUrl, new StompSessionHandlerAdapter() {})
+                        .get(2, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Thread.sleep(10);
+                }
+            }
+            long connectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            http.send(HttpRequest.newBuilder(URI.create(host + "/api/discovery/broadcast"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"peerId\":\"startup-bench\",\"username\":\"bench\"}"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+            JsonNode milestones = null;
+            for (int i = 0; i < 100; i++) {
+                milestones = MAPPER.readTree(http.send(
+                    HttpRequest.newBuilder(URI.create(host + "/api/metrics/startup")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body());
+                if (milestones.path("firstDiscoveryPacketMs").asLong(-1) >= 0) {
+                    break;
+                }
+                Thread.sleep(20);
+            }
+            session.disconnect();
+            return new long[] {
+                connectMs,
+                milestones.path("firstSignalingConnectionMs").asLong(-1),
+                milestones.path("firstDiscoveryPacketMs").asLong(-1)
+            };
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
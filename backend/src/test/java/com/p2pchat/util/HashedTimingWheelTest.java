@@ -0,0 +1,105 @@
+package com.p2pchat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK = 100;
+    private static final long TIMEOUT = 1000;
+
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void silentKeyExpiresOnceTimeoutHasPassed() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 16, TIMEOUT, 0);
+        wheel.add("a", 0);
+
+        wheel.advance(900, expired::add);
+        assertThat(expired).isEmpty();
+
+        wheel.advance(1000, expired::add);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void touchPostponesExpiry() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 16, TIMEOUT, 0);
+        wheel.add("a", 0);
+        wheel.touch("a", 600);
+
+        wheel.advance(1500, expired::add);
+        assertThat(expired).isEmpty();
+
+        wheel.advance(1600, expired::add);
+        assertThat(expired).containsExactly("a");
+    }
+
+    @Test
+    void addingTrackedKeyAgainRefreshesIt() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 16, TIMEOUT, 0);
+        wheel.add("a", 0);
+        wheel.add("a", 500);
+
+        wheel.advance(1400, expired::add);
+        assertThat(expired).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        wheel.advance(1500, expired::add);
+        assertThat(expired).containsExactly("a");
+    }
+
+    @Test
+    void removedKeyNeverExpires() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 16, TIMEOUT, 0);
+        wheel.add("a", 0);
+        wheel.add("b", 0);
+        wheel.remove("a");
+
+        wheel.advance(5000, expired::add);
+        assertThat(expired).containsExactly("b");
+    }
+
+    @Test
+    void timeoutLongerThanOneRevolutionExpiresOnTime() {
+        // 8 buckets of 100 ms cover 800 ms: the key passes its bucket once before it is due
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 2000, 0);
+        wheel.add("a", 0);
+
+        for (long now = 0; now < 2000; now += TICK) {
+            wheel.advance(now, expired::add);
+        }
+        assertThat(expired).isEmpty();
+
+        wheel.advance(2000, expired::add);
+        assertThat(expired).containsExactly("a");
+    }
+
+    @Test
+    void onlySilentKeysExpire() {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(TICK, 16, TIMEOUT, 0);
+        List<Integer> expiredKeys = new ArrayList<>();
+        for (int key = 0; key < 100; key++) {
+            wheel.add(key, 0);
+        }
+        for (int key = 0; key < 100; key += 2) {
+            wheel.touch(key, 800);
+        }
+
+        wheel.advance(1200, expiredKeys::add);
+        assertThat(expiredKeys).hasSize(50).allMatch(key -> key % 2 == 1);
+        assertThat(wheel.size()).isEqualTo(50);
+    }
+
+    @Test
+    void rejectsWheelSizeThatIsNotPowerOfTwo() {
+        assertThatThrownBy(() -> new HashedTimingWheel<String>(TICK, 10, TIMEOUT, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
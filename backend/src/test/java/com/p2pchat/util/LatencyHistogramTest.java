@@ -0,0 +1,81 @@
+package com.p2pchat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.percentile(0.99)).isZero();
+        assertThat(histogram.snapshot()).containsEntry("count", 0L).containsEntry("maxUs", 0.0);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.count()).isEqualTo(10);
+        assertThat(histogram.percentile(0.5)).isEqualTo(5);
+        assertThat(histogram.percentile(0.9)).isEqualTo(9);
+        assertThat(histogram.percentile(1.0)).isEqualTo(10);
+    }
+
+    @Test
+    void negativeSamplesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertThat(histogram.count()).isEqualTo(1);
+        assertThat(histogram.percentile(1.0)).isZero();
+    }
+
+    @Test
+    void percentilesStayWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Log-uniform from 1 µs to ~1 s
+            samples[i] = (long) Math.pow(10, 3 + random.nextDouble() * 6);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        for (double p : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = samples[(int) Math.ceil(p * samples.length) - 1];
+            long reported = histogram.percentile(p);
+            // Upper bound of the bucket: never below the true value, at most one sub-bucket (1/16) above
+            assertThat(reported).isGreaterThanOrEqualTo(exact);
+            assertThat((double) reported).isCloseTo(exact, within(exact / 16.0));
+        }
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertThat(histogram.percentile(0.5)).isEqualTo(1_000_001);
+        assertThat(histogram.snapshot()).containsEntry("p50Us", 1000.001).containsEntry("maxUs", 1000.001);
+    }
+
+    @Test
+    void largestValuesDoNotOverflow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.percentile(1.0)).isEqualTo(Long.MAX_VALUE);
+    }
+}
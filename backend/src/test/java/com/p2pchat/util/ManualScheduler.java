@@ -0,0 +1,201 @@
+package com.p2pchat.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded scheduler driven by a manual clock, for tests of time-based services
+ * Tasks run on the calling thread from advance() / runPending(), in due-time order; the
+ * clock (nanoTime) reads the due time of the task being run
+ */
+public class ManualScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final PriorityQueue<Task> tasks =
+        new PriorityQueue<>(Comparator.comparingLong((Task task) -> task.due).thenComparingLong(task -> task.seq));
+    private long nanos = TimeUnit.DAYS.toNanos(1); // arbitrary, non-zero origin
+    private long sequence;
+    private boolean shutdown;
+
+    public long nanoTime() {
+        return nanos;
+    }
+
+    public long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Move the clock forward, running every task that falls due on the way
+     */
+    public void advance(long millis) {
+        long target = nanos + TimeUnit.MILLISECONDS.toNanos(millis);
+        Task task;
+        while ((task = tasks.peek()) != null && task.due <= target) {
+            tasks.poll();
+            nanos = Math.max(nanos, task.due);
+            task.run();
+        }
+        nanos = target;
+    }
+
+    /**
+     * Run the tasks that are already due (e.g. submitted with execute())
+     */
+    public void runPending() {
+        advance(0);
+    }
+
+    /**
+     * Scheduled tasks not yet run (periodic tasks count once)
+     */
+    public int pendingCount() {
+        return tasks.size();
+    }
+
+    private <V> Task enqueue(Callable<V> callable, long delayNanos, long periodNanos) {
+        if (shutdown) {
+            throw new RejectedExecutionException("shut down");
+        }
+        Task task = new Task(callable, nanos + Math.max(0, delayNanos), periodNanos, sequence++);
+        tasks.add(task);
+        return task;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        enqueue(Executors.callable(command), 0, 0);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(Executors.callable(command), unit.toNanos(delay), 0);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        @SuppressWarnings("unchecked")
+        ScheduledFuture<V> future = (ScheduledFuture<V>) enqueue(callable, unit.toNanos(delay), 0);
+        return future;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return enqueue(Executors.callable(command), unit.toNanos(initialDelay), unit.toNanos(period));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return scheduleAtFixedRate(command, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+
+    private final class Task implements ScheduledFuture<Object>, Runnable {
+        private final Callable<?> callable;
+        private final long period;
+        private final long seq;
+        private long due;
+        private boolean cancelled;
+        private boolean done;
+        private Object result;
+
+        Task(Callable<?> callable, long due, long period, long seq) {
+            this.callable = callable;
+            this.due = due;
+            this.period = period;
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = callable.call();
+            } catch (Exception e) {
+                throw new IllegalStateException("Scheduled task failed", e);
+            }
+            if (period > 0 && !cancelled && !shutdown) {
+                due += period;
+                tasks.add(this);
+            } else {
+                done = true;
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(due - nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+            done = true;
+            tasks.remove(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public Object get() {
+            return result;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.p2pchat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriorityLaneQueueTest {
+
+    private static final long NEVER = TimeUnit.HOURS.toNanos(1);
+
+    private final List<String> dequeues = new ArrayList<>();
+
+    /**
+     * Items are "<lane>:<name>"
+     */
+    private PriorityLaneQueue<String> queue(long maxWaitNanos, int promotionInterval) {
+        return new PriorityLaneQueue<>(3, item -> Integer.parseInt(item.substring(0, item.indexOf(':'))),
+            maxWaitNanos, promotionInterval,
+            (lane, waitNanos, promoted) -> dequeues.add(lane + (promoted ? "!" : "")));
+    }
+
+    private static List<String> pollAll(PriorityLaneQueue<String> queue) {
+        List<String> items = new ArrayList<>();
+        String item;
+        while ((item = queue.poll()) != null) {
+            items.add(item);
+        }
+        return items;
+    }
+
+    @Test
+    void servesHigherLanesFirstAndFifoWithinLane() {
+        PriorityLaneQueue<String> queue = queue(NEVER, 1);
+        queue.offer("2:a");
+        queue.offer("1:b");
+        queue.offer("0:c");
+        queue.offer("2:d");
+        queue.offer("0:e");
+
+        assertThat(queue.size()).isEqualTo(5);
+        assertThat(queue.laneSizes()).containsExactly(2, 1, 2);
+        assertThat(queue.peek()).isEqualTo("0:c");
+        assertThat(pollAll(queue)).containsExactly("0:c", "0:e", "1:b", "2:a", "2:d");
+        assertThat(dequeues).containsExactly("0", "0", "1", "2", "2");
+    }
+
+    @Test
+    void starvingLowerLaneIsPromotedAtMostEveryInterval() {
+        // maxWait 0: every lower head counts as starving, so promotion is limited only by the interval
+        PriorityLaneQueue<String> queue = queue(0, 3);
+        for (int i = 0; i < 6; i++) {
+            queue.offer("0:c" + i);
+        }
+        queue.offer("2:r0");
+        queue.offer("2:r1");
+
+        assertThat(pollAll(queue)).containsExactly("0:c0", "0:c1", "2:r0", "0:c2", "0:c3", "2:r1", "0:c4", "0:c5");
+        assertThat(dequeues).containsExactly("0", "0", "2!", "0", "0", "2!", "0", "0");
+    }
+
+    @Test
+    void promotionPicksLongestWaitingLowerLane() throws InterruptedException {
+        PriorityLaneQueue<String> queue = queue(0, 1);
+        queue.offer("2:old");
+        Thread.sleep(2);
+        queue.offer("1:newer");
+        queue.offer("0:c");
+
+        assertThat(queue.poll()).isEqualTo("2:old");
+        assertThat(dequeues).containsExactly("2!");
+    }
+
+    @Test
+    void noPromotionBeforeMaxWait() {
+        PriorityLaneQueue<String> queue = queue(NEVER, 1);
+        queue.offer("2:r");
+        queue.offer("0:c");
+
+        assertThat(pollAll(queue)).containsExactly("0:c", "2:r");
+        assertThat(dequeues).containsExactly("0", "2");
+    }
+
+    @Test
+    void outOfRangeLanesAreClamped() {
+        PriorityLaneQueue<Integer> queue = new PriorityLaneQueue<>(2, item -> item, NEVER, 1,
+            (lane, waitNanos, promoted) -> { });
+        queue.offer(7);
+        queue.offer(-3);
+
+        assertThat(queue.laneSizes()).containsExactly(1, 1);
+        assertThat(queue.poll()).isEqualTo(-3);
+        assertThat(queue.poll()).isEqualTo(7);
+    }
+
+    @Test
+    void timedPollReturnsNullWhenEmpty() throws InterruptedException {
+        PriorityLaneQueue<String> queue = queue(NEVER, 1);
+
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(dequeues).isEmpty();
+    }
+
+    @Test
+    void takeWaitsForOffer() throws Exception {
+        PriorityLaneQueue<String> queue = queue(NEVER, 1);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.offer("1:x");
+        });
+        producer.start();
+
+        assertThat(queue.take()).isEqualTo("1:x");
+        producer.join();
+    }
+
+    @Test
+    void drainToAndRemoveKeepCountConsistent() {
+        PriorityLaneQueue<String> queue = queue(NEVER, 1);
+        queue.offer("1:a");
+        queue.offer("0:b");
+        queue.offer("2:c");
+
+        assertThat(queue.remove("1:a")).isTrue();
+        assertThat(queue.remove("1:a")).isFalse();
+
+        List<String> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained)).isEqualTo(2);
+        assertThat(drained).containsExactly("0:b", "2:c");
+        assertThat(queue).isEmpty();
+    }
+
+    @Test
+    void listenerRunsWithoutTheQueueLock() throws InterruptedException {
+        List<Boolean> queueUsable = new ArrayList<>();
+        AtomicReference<PriorityLaneQueue<String>> self = new AtomicReference<>();
+        PriorityLaneQueue<String> queue = new PriorityLaneQueue<>(2, item -> 0, NEVER, 1,
+            (lane, waitNanos, promoted) -> {
+                // Another thread can use the queue while the listener runs
+                try {
+                    CompletableFuture.runAsync(() -> self.get().size()).get(1, TimeUnit.SECONDS);
+                    queueUsable.add(true);
+                } catch (Exception e) {
+                    queueUsable.add(false);
+                }
+            });
+        self.set(queue);
+        for (String item : List.of("a", "b", "c", "d")) {
+            queue.offer(item);
+        }
+
+        queue.poll();
+        queue.poll(1, TimeUnit.SECONDS);
+        queue.take();
+        queue.drainTo(new ArrayList<>(), 1);
+
+        assertThat(queueUsable).containsExactly(true, true, true, true);
+    }
+
+    @Test
+    void boundedQueueRefusesOffersWhenFull() throws Exception {
+        PriorityLaneQueue<String> queue = new PriorityLaneQueue<>(3, 2,
+            item -> Integer.parseInt(item.substring(0, item.indexOf(':'))), NEVER, 1,
+            (lane, waitNanos, promoted) -> dequeues.add(String.valueOf(lane)));
+
+        assertThat(queue.offer("2:a")).isTrue();
+        assertThat(queue.offer("0:b")).isTrue();
+        assertThat(queue.remainingCapacity()).isZero();
+        // Full regardless of the lane
+        assertThat(queue.offer("0:c")).isFalse();
+        assertThat(queue.offer("0:c", 10, TimeUnit.MILLISECONDS)).isFalse();
+
+        CompletableFuture<Void> put = CompletableFuture.runAsync(() -> {
+            try {
+                queue.put("1:d");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(20);
+        assertThat(put).isNotDone();
+
+        assertThat(queue.poll()).isEqualTo("0:b");
+        put.get(1, TimeUnit.SECONDS);
+        assertThat(pollAll(queue)).containsExactly("1:d", "2:a");
+        assertThat(queue.remainingCapacity()).isEqualTo(2);
+    }
+}
@@ -267,8 +267,36 @@ function Chat() {
     const activeService = getActiveSignalingService();
     const useMeshNetwork = SIGNALING_SERVERS && SIGNALING_SERVERS.length > 0;
 
+    // One round trip: announce ourselves, get online peers, ICE servers and the presence version
+    // (STOMP then only streams presence changes)
+    const bootstrap = await peerDiscoveryService.bootstrap(currentUser.peerId, currentUser.username);
+    if (bootstrap) {
+      webrtcService.setIceServers(bootstrap.iceServers);
+      activeService.setPresenceVersion(bootstrap.presenceVersion);
+      setOnlinePeers(new Map(bootstrap.peers.map(peerId => [peerId, extractUsernameFromPeerId(peerId)])));
+    }
+
     // Connect to signaling server(s)
-    if (useMeshNetwork) {
+    if (useMeshNetwork && bootstrap && bootstrap.federated) {
+      // Federated servers forward signals to each other: one connection, best-ranked server first
+      // (the bootstrap server unless it is draining), failing over down the list on disconnect
+      const ranked = bootstrap.servers.filter(server => !server.draining).map(server => server.signalingUrl);
+      const serverUrls = [...new Set(bootstrap.draining
+        ? [...ranked, ...SIGNALING_SERVERS, WS_BASE_URL]
+        : [WS_BASE_URL, ...ranked, ...SIGNALING_SERVERS])];
+      multiSignalingService.connectFederated(
+        currentUser.peerId,
+        serverUrls,
+        () => {
+          setConnectionStatus('online');
+          console.log(`✅ Connected to ${multiSignalingService.getConnectedServers()[0]} (federated, ${serverUrls.length} servers)`);
+        },
+        (error) => {
+          console.error('Signaling error:', error);
+          setConnectionStatus('error');
+        }
+      );
+    } else if (useMeshNetwork) {
       // Mesh network: Connect to all peers
       multiSignalingService.connectToMultiple(
         currentUser.peerId,
@@ -277,8 +305,10 @@ function Chat() {
           setConnectionStatus('online');
           console.log(`✅ Connected to ${SIGNALING_SERVERS.length} signaling servers (mesh network)`);
           
-          // Broadcast our presence to network
-          await peerDiscoveryService.broadcastPeerInfo(currentUser.peerId, currentUser.username);
+          // Broadcast our presence to network (already done by the bootstrap)
+          if (!bootstrap) {
+            await peerDiscoveryService.broadcastPeerInfo(currentUser.peerId, currentUser.username);
+          }
         },
         (error) => {
           console.error('Signaling error:', error);
@@ -292,8 +322,10 @@ function Chat() {
         async () => {
           setConnectionStatus('online');
           
-          // Broadcast our presence to network
-          await peerDiscoveryService.broadcastPeerInfo(currentUser.peerId, currentUser.username);
+          // Broadcast our presence to network (already done by the bootstrap)
+          if (!bootstrap) {
+            await peerDiscoveryService.broadcastPeerInfo(currentUser.peerId, currentUser.username);
+          }
         },
         (error) => {
           console.error('Signaling error:', error);
@@ -325,6 +357,11 @@ function Chat() {
       webrtcService.handleIceCandidate(fromPeerId, candidate);
     });
 
+    // Chat messages relayed by the server when no data channel could be established
+    service.onRelayMessage((fromPeerId, data) => {
+      webrtcService.handleRelayedMessage(fromPeerId, data);
+    });
+
     service.onPeerOnline((peerId) => {
       // Extract username from peerId
       const username = extractUsernameFromPeerId(peerId);
@@ -5,6 +5,7 @@
 
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
+import { BASE_RECONNECT_DELAY, reconnectDelay } from '../utils/reconnectBackoff';
 
 class MultiSignalingService {
   constructor() {
@@ -17,7 +18,11 @@ class MultiSignalingService {
     this.onPeerOfflineCallback = null;
     this.onCallRequestCallback = null;
     this.onCallAcceptCallback = null;
+    this.onRelayMessageCallback = null;
+    this.relaySeq = 0; // Orders relayed messages on the server
     this.allPeers = new Set(); // Tổng hợp peers từ tất cả connections
+    this.presenceVersion = null; // Only matches on the server that handed it out
+    this.failover = null; // Federated mode: { serverUrls, onConnected, onError }
   }
 
   /**
@@ -38,50 +43,128 @@ class MultiSignalingService {
 
     let connectedCount = 0;
     const totalServers = serverUrls.length;
-    const errors = [];
 
     serverUrls.forEach((serverUrl) => {
-      // Skip if already connected
-      if (this.clients.has(serverUrl)) {
+      this.connectToServer(serverUrl, () => {
         connectedCount++;
         if (connectedCount === totalServers && onConnected) {
           onConnected();
         }
-        return;
-      }
+      }, onError);
+    });
+  }
 
-      const client = new Client({
-        webSocketFactory: () => new SockJS(serverUrl),
-        reconnectDelay: 5000,
-        heartbeatIncoming: 4000,
-        heartbeatOutgoing: 4000,
-        onWebSocketClose: () => {
-          // Auto-reconnect
-        },
-        
-        onConnect: () => {
-          setTimeout(() => {
-            this.subscribeToSignals(serverUrl, client);
-            this.subscribeToPeers(serverUrl, client);
-            this.notifyOnline(serverUrl, client);
-            
-            connectedCount++;
-            if (connectedCount === totalServers) {
-              if (onConnected) onConnected();
-            }
-          }, 100);
-        },
-        
-        onStompError: (frame) => {
-          console.error(`❌ Signaling error for ${serverUrl}:`, frame);
-          errors.push({ serverUrl, error: frame });
-          if (onError) onError({ serverUrl, error: frame });
-        },
-      });
-
-      this.clients.set(serverUrl, client);
-      client.activate();
+  /**
+   * Connect to federated signaling servers: the servers forward signals to each other, so hold a
+   * single connection to the best-ranked one and only move to the next when it drops
+   * @param {string} peerId - Peer ID của máy hiện tại
+   * @param {string[]} serverUrls - Signaling server URLs, best first
+   * @param {Function} onConnected - Callback mỗi khi kết nối thành công
+   * @param {Function} onError - Callback khi có lỗi
+   */
+  connectFederated(peerId, serverUrls, onConnected, onError) {
+    this.peerId = peerId;
+    this.allPeers.clear();
+
+    if (!serverUrls || serverUrls.length === 0) {
+      console.warn('⚠️ No signaling servers provided');
+      return;
+    }
+
+    this.failover = { serverUrls, onConnected, onError };
+    this.connectFailover(serverUrls[0], 0);
+  }
+
+  /**
+   * Federated mode: connect to one server without auto-reconnect; when the connection drops move
+   * on to the next server in the list, backing off once every server has failed in a row
+   */
+  connectFailover(serverUrl, failedAttempts) {
+    const { serverUrls, onConnected, onError } = this.failover;
+    let connected = false;
+    const client = new Client({
+      webSocketFactory: () => new SockJS(serverUrl),
+      reconnectDelay: 0, // Failover below replaces reconnecting to the same server
+      heartbeatIncoming: 4000,
+      heartbeatOutgoing: 4000,
+      onWebSocketClose: () => {
+        // Skip when we left this server on purpose (redirect, disconnect)
+        if (this.clients.get(serverUrl) !== client) return;
+        this.clients.delete(serverUrl);
+        client.deactivate();
+
+        const attempts = connected ? 0 : failedAttempts + 1;
+        const next = serverUrls[(serverUrls.indexOf(serverUrl) + 1) % serverUrls.length];
+        const delay = attempts > 0 && attempts % serverUrls.length === 0
+          ? reconnectDelay(attempts / serverUrls.length - 1)
+          : 0;
+        console.warn(`🔀 Lost ${serverUrl}, failing over to ${next} in ${Math.round(delay)} ms`);
+        setTimeout(() => {
+          if (this.failover && this.clients.size === 0) {
+            this.connectFailover(next, attempts);
+          }
+        }, delay);
+      },
+
+      onConnect: () => {
+        connected = true;
+        setTimeout(() => {
+          this.subscribeToSignals(serverUrl, client);
+          this.subscribeToPeers(serverUrl, client);
+          this.notifyOnline(serverUrl, client);
+          if (onConnected) onConnected();
+        }, 100);
+      },
+
+      onStompError: (frame) => {
+        console.error(`❌ Signaling error for ${serverUrl}:`, frame);
+        if (onError) onError({ serverUrl, error: frame });
+      },
+    });
+
+    this.clients.set(serverUrl, client);
+    client.activate();
+  }
+
+  /**
+   * Connect to one signaling server (skipped if already connected)
+   */
+  connectToServer(serverUrl, onReady, onError) {
+    if (this.clients.has(serverUrl)) {
+      if (onReady) onReady();
+      return;
+    }
+
+    let failedAttempts = 0;
+    const client = new Client({
+      webSocketFactory: () => new SockJS(serverUrl),
+      reconnectDelay: BASE_RECONNECT_DELAY,
+      heartbeatIncoming: 4000,
+      heartbeatOutgoing: 4000,
+      onWebSocketClose: () => {
+        // Auto-reconnect, backing off further after each failed attempt
+        client.reconnectDelay = reconnectDelay(failedAttempts++);
+      },
+
+      onConnect: () => {
+        failedAttempts = 0;
+        client.reconnectDelay = BASE_RECONNECT_DELAY;
+        setTimeout(() => {
+          this.subscribeToSignals(serverUrl, client);
+          this.subscribeToPeers(serverUrl, client);
+          this.notifyOnline(serverUrl, client);
+          if (onReady) onReady();
+        }, 100);
+      },
+
+      onStompError: (frame) => {
+        console.error(`❌ Signaling error for ${serverUrl}:`, frame);
+        if (onError) onError({ serverUrl, error: frame });
+      },
     });
+
+    this.clients.set(serverUrl, client);
+    client.activate();
   }
 
   /**
@@ -150,12 +233,56 @@ class MultiSignalingService {
           }
           break;
 
+        case 'MESSAGE':
+          // Batch of chat messages relayed by the server, in send order
+          if (this.onRelayMessageCallback && signal.payload) {
+            if (signal.payload.dropped > 0) {
+              console.warn(`📮 ${signal.payload.dropped} relayed message(s) from ${signal.from} were dropped by ${serverUrl}`);
+            }
+            (signal.payload.messages || []).forEach((relayed) => this.onRelayMessageCallback(signal.from, relayed.data));
+          }
+          break;
+
+        case 'ERROR':
+          // Server is shedding load: registration was rejected, retry after the hinted delay
+          if (signal.payload && signal.payload.reason === 'OVERLOADED') {
+            console.warn(`🚦 ${serverUrl} overloaded, retrying registration in ${signal.payload.retryAfterMs} ms`);
+            setTimeout(() => this.notifyOnline(serverUrl, client), signal.payload.retryAfterMs);
+          } else if (signal.payload && signal.payload.reason && signal.payload.reason.startsWith('RELAY_')) {
+            console.warn(`📮 Relayed message to ${signal.payload.to} refused by ${serverUrl} (${signal.payload.reason}), retry after ${signal.payload.retryAfterMs} ms`);
+          }
+          break;
+
+        case 'REDIRECT':
+          this.redirect(serverUrl, client, signal.payload);
+          break;
+
         default:
           break;
       }
     });
   }
 
+  /**
+   * Server is draining: leave it for the first alternative we are not connected to yet
+   * (without alternatives, stay and let the backoff reconnect once it is back)
+   */
+  redirect(serverUrl, client, payload) {
+    const target = ((payload && payload.servers) || []).find((url) => !this.clients.has(url));
+    if (!target) {
+      console.warn(`🔀 ${serverUrl} is draining, no alternative server offered`);
+      return;
+    }
+    console.warn(`🔀 ${serverUrl} is draining, moving to ${target}`);
+    this.clients.delete(serverUrl);
+    client.deactivate();
+    if (this.failover) {
+      this.connectFailover(target, 0);
+    } else {
+      this.connectToServer(target);
+    }
+  }
+
   /**
    * Subscribe to peer status updates from a specific server
    */
@@ -188,6 +315,13 @@ class MultiSignalingService {
     });
   }
 
+  /**
+   * Presence version from POST /api/bootstrap, sent back on registration
+   */
+  setPresenceVersion(presenceVersion) {
+    this.presenceVersion = presenceVersion;
+  }
+
   /**
    * Notify a specific server that we're online
    */
@@ -199,6 +333,8 @@ class MultiSignalingService {
       body: JSON.stringify({
         type: 'PEER_ONLINE',
         from: this.peerId,
+        // Unchanged presence version: the server skips replaying the online peers we already have
+        payload: this.presenceVersion ? { presenceVersion: this.presenceVersion } : undefined,
         timestamp: Date.now()
       })
     });
@@ -279,6 +415,38 @@ class MultiSignalingService {
     });
   }
 
+  /**
+   * Send a chat message through the server relay (first connected server, so a conversation
+   * stays on one server and in order)
+   */
+  sendRelayMessage(toPeerId, data) {
+    let sent = false;
+    this.clients.forEach((client, serverUrl) => {
+      if (client && client.connected && !sent) {
+        client.publish({
+          destination: '/app/signal/message',
+          headers: { 'relay-seq': String(this.nextRelaySeq()) },
+          body: JSON.stringify({
+            type: 'MESSAGE',
+            from: this.peerId,
+            to: toPeerId,
+            payload: data,
+            timestamp: Date.now()
+          })
+        });
+        sent = true;
+      }
+    });
+  }
+
+  /**
+   * Monotonic across reloads: never below the clock, so a new page keeps ordering after the old one
+   */
+  nextRelaySeq() {
+    this.relaySeq = Math.max(this.relaySeq + 1, Date.now());
+    return this.relaySeq;
+  }
+
   /**
    * Set callbacks
    */
@@ -310,10 +478,15 @@ class MultiSignalingService {
     this.onCallAcceptCallback = callback;
   }
 
+  onRelayMessage(callback) {
+    this.onRelayMessageCallback = callback;
+  }
+
   /**
    * Disconnect from all servers
    */
   disconnect() {
+    this.failover = null;
     this.clients.forEach((client, serverUrl) => {
       if (client) {
         try {
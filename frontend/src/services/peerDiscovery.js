@@ -67,7 +67,10 @@ class PeerDiscoveryService {
             username: peerInfo.username,
             port: peerInfo.port,
             signalingUrl: peerInfo.signalingUrl,
-            lastSeen: peerInfo.lastSeen || now
+            lastSeen: peerInfo.lastSeen || now,
+            rttMs: peerInfo.rttMs,
+            load: peerInfo.load,
+            rank: peerInfo.rank
           });
 
           // Notify callback about new/updated peer
@@ -75,8 +78,11 @@ class PeerDiscoveryService {
             this.onPeerDiscoveredCallback(ip, peerInfo);
           }
         } else {
-          // Update last seen
+          // Update last seen and ranking (RTT / load change between polls)
           existing.lastSeen = peerInfo.lastSeen || now;
+          existing.rttMs = peerInfo.rttMs;
+          existing.load = peerInfo.load;
+          existing.rank = peerInfo.rank;
         }
       }
 
@@ -92,6 +98,52 @@ class PeerDiscoveryService {
     }
   }
 
+  /**
+   * Bootstrap login in one round trip: announces our peer info and returns
+   * { nodeId, draining, servers, peers, iceServers, presenceVersion } (null on failure)
+   * Discovered servers from the response seed the discovered peer list.
+   */
+  async bootstrap(peerId, username) {
+    try {
+      const response = await fetch(`${this.apiBaseUrl}/bootstrap`, {
+        method: 'POST',
+        headers: {
+          'Content-Type': 'application/json'
+        },
+        body: JSON.stringify({
+          peerId,
+          username
+        })
+      });
+
+      if (!response.ok) {
+        console.warn('Bootstrap failed:', response.status);
+        return null;
+      }
+
+      const data = await response.json();
+      const now = Date.now();
+      data.servers.forEach((server, index) => {
+        this.discoveredPeers.set(server.ip, {
+          ip: server.ip,
+          peerId: server.peerId,
+          username: server.username,
+          port: server.port,
+          signalingUrl: server.signalingUrl,
+          lastSeen: now,
+          rttMs: server.rttMs,
+          load: server.load,
+          rank: index + 1
+        });
+      });
+      console.log(`🚀 Bootstrapped: ${data.peers.length} peers online, ${data.servers.length} servers`);
+      return data;
+    } catch (error) {
+      console.error('Error bootstrapping:', error);
+      return null;
+    }
+  }
+
   /**
    * Broadcast peer information to network
    * Gọi khi peer online để các peers khác phát hiện
@@ -147,11 +199,16 @@ class PeerDiscoveryService {
           username: peer.username,
           port: peer.port,
           signalingUrl: peer.signalingUrl,
-          lastSeen: peer.lastSeen
+          lastSeen: peer.lastSeen,
+          rttMs: peer.rttMs,
+          load: peer.load,
+          rank: peer.rank
         });
       }
     }
     
+    // Best signaling server first (ranked by the backend on RTT and load)
+    activePeers.sort((a, b) => (a.rank ?? Infinity) - (b.rank ?? Infinity));
     return activePeers;
   }
 
@@ -1,11 +1,13 @@
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 import { WS_BASE_URL } from '../config/api';
+import { BASE_RECONNECT_DELAY, reconnectDelay } from '../utils/reconnectBackoff';
 
 class SignalingService {
   constructor() {
     this.client = null;
     this.peerId = null;
+    this.serverUrl = WS_BASE_URL;
     this.onOfferCallback = null;
     this.onAnswerCallback = null;
     this.onIceCandidateCallback = null;
@@ -13,6 +15,9 @@ class SignalingService {
     this.onPeerOfflineCallback = null;
     this.onCallRequestCallback = null;
     this.onCallAcceptCallback = null;
+    this.onRelayMessageCallback = null;
+    this.relaySeq = 0; // Orders relayed messages on the server
+    this.presenceVersion = null;
   }
 
   /**
@@ -20,17 +25,24 @@ class SignalingService {
    */
   connect(peerId, onConnected, onError) {
     this.peerId = peerId;
-
-    this.client = new Client({
-      webSocketFactory: () => new SockJS(WS_BASE_URL),
-      reconnectDelay: 5000,
+    this.onConnected = onConnected;
+    this.onError = onError;
+    const serverUrl = this.serverUrl;
+
+    let failedAttempts = 0;
+    const client = new Client({
+      webSocketFactory: () => new SockJS(serverUrl),
+      reconnectDelay: BASE_RECONNECT_DELAY,
       heartbeatIncoming: 4000,
       heartbeatOutgoing: 4000,
       onWebSocketClose: () => {
-        // Auto-reconnect on close (including page refresh)
+        // Auto-reconnect on close (including page refresh), backing off further after each failed attempt
+        client.reconnectDelay = reconnectDelay(failedAttempts++);
       },
       
       onConnect: () => {
+        failedAttempts = 0;
+        client.reconnectDelay = BASE_RECONNECT_DELAY;
         setTimeout(() => {
           this.subscribeToSignals();
           this.subscribeToPeers();
@@ -45,7 +57,8 @@ class SignalingService {
       },
     });
 
-    this.client.activate();
+    this.client = client;
+    client.activate();
   }
 
   /**
@@ -115,12 +128,59 @@ class SignalingService {
           }
           break;
 
+        case 'MESSAGE':
+          // Batch of chat messages relayed by the server, in send order
+          if (this.onRelayMessageCallback && signal.payload) {
+            if (signal.payload.dropped > 0) {
+              console.warn(`📮 ${signal.payload.dropped} relayed message(s) from ${signal.from} were dropped by the server`);
+            }
+            (signal.payload.messages || []).forEach((relayed) => this.onRelayMessageCallback(signal.from, relayed.data));
+          }
+          break;
+
+        case 'ERROR':
+          if (signal.payload && signal.payload.reason === 'OVERLOADED') {
+            // Registration shed by admission control: register again once the server asks us to
+            console.warn(`🚦 ${this.serverUrl} overloaded, retrying registration in ${signal.payload.retryAfterMs} ms`);
+            const client = this.client;
+            setTimeout(() => {
+              if (this.client === client) this.notifyOnline();
+            }, signal.payload.retryAfterMs);
+          } else if (signal.payload && signal.payload.reason && signal.payload.reason.startsWith('RELAY_')) {
+            console.warn(`📮 Relayed message to ${signal.payload.to} refused (${signal.payload.reason}), retry after ${signal.payload.retryAfterMs} ms`);
+          }
+          break;
+
+        case 'REDIRECT':
+          this.redirect(signal.payload);
+          break;
+
         default:
           break;
       }
     });
   }
 
+  /**
+   * Server is draining: reconnect to the first alternative it named
+   * (without alternatives, stay and let the auto-reconnect pick it up once it is back)
+   */
+  redirect(payload) {
+    const target = ((payload && payload.servers) || [])[0];
+    if (!target) {
+      console.warn(`🔀 ${this.serverUrl} is draining, no alternative server offered`);
+      return;
+    }
+    console.warn(`🔀 ${this.serverUrl} is draining, moving to ${target}`);
+    this.serverUrl = target;
+    const client = this.client;
+    client.deactivate().then(() => {
+      if (this.client === client) {
+        this.connect(this.peerId, this.onConnected, this.onError);
+      }
+    });
+  }
+
   /**
    * Subscribe to peer status updates
    */
@@ -151,6 +211,13 @@ class SignalingService {
     });
   }
 
+  /**
+   * Presence version from POST /api/bootstrap, sent back on registration
+   */
+  setPresenceVersion(presenceVersion) {
+    this.presenceVersion = presenceVersion;
+  }
+
   /**
    * Notify server that we're online
    */
@@ -162,6 +229,8 @@ class SignalingService {
       body: JSON.stringify({
         type: 'PEER_ONLINE',
         from: this.peerId,
+        // Unchanged presence version: the server skips replaying the online peers we already have
+        payload: this.presenceVersion ? { presenceVersion: this.presenceVersion } : undefined,
         timestamp: Date.now()
       })
     });
@@ -280,6 +349,35 @@ class SignalingService {
     });
   }
 
+  /**
+   * Send a chat message through the server relay (no data channel to the peer)
+   */
+  sendRelayMessage(toPeerId, data) {
+    if (!this.client || !this.client.connected) {
+      return;
+    }
+
+    this.client.publish({
+      destination: '/app/signal/message',
+      headers: { 'relay-seq': String(this.nextRelaySeq()) },
+      body: JSON.stringify({
+        type: 'MESSAGE',
+        from: this.peerId,
+        to: toPeerId,
+        payload: data,
+        timestamp: Date.now()
+      })
+    });
+  }
+
+  /**
+   * Monotonic across reloads: never below the clock, so a new page keeps ordering after the old one
+   */
+  nextRelaySeq() {
+    this.relaySeq = Math.max(this.relaySeq + 1, Date.now());
+    return this.relaySeq;
+  }
+
   /**
    * Set callbacks
    */
@@ -319,6 +417,10 @@ class SignalingService {
     this.onGroupMemberLeftCallback = callback;
   }
 
+  onRelayMessage(callback) {
+    this.onRelayMessageCallback = callback;
+  }
+
   /**
    * Disconnect from signaling server
    */
@@ -7,6 +7,7 @@ class WebRTCService {
     this.dataChannels = new Map();    // Map of peerId -> RTCDataChannel
     this.groupConnections = new Map(); // Map of groupId -> Set of peerIds
     this.receivedMessages = new Map(); // Map of messageId -> timestamp (for deduplication)
+    this.relayPeers = new Set(); // Peers without a data channel, messaged via the signaling server relay
     this.onMessageCallback = null;
     this.onTypingCallback = null;
     this.onFileCallback = null;
@@ -14,6 +15,7 @@ class WebRTCService {
     this.connectionStateCallback = null; // Callback for connection state changes
     this.blockedIPs = new Set(); // Cached blocked IPs
     this.blockedIPsLastUpdate = 0;
+    this.iceConfig = ICE_SERVERS; // Replaced by the servers' configuration after bootstrap
     this.BLOCKED_IPS_CACHE_TTL = 10000; // Cache for 10 seconds
     
     // Cleanup old received messages every 60 seconds
@@ -28,11 +30,20 @@ class WebRTCService {
     }, 60000);
   }
 
+  /**
+   * Use the ICE servers handed out by POST /api/bootstrap
+   */
+  setIceServers(iceServers) {
+    if (iceServers && iceServers.length > 0) {
+      this.iceConfig = { iceServers };
+    }
+  }
+
   /**
    * Create peer connection for a remote peer
    */
   createPeerConnection(peerId, signalingService, isInitiator = false) {
-    const pc = new RTCPeerConnection(ICE_SERVERS);
+    const pc = new RTCPeerConnection(this.iceConfig);
     this.peerConnections.set(peerId, pc);
 
     // Handle ICE candidates
@@ -85,7 +96,8 @@ class WebRTCService {
     this.dataChannels.set(peerId, dataChannel);
 
     dataChannel.onopen = () => {
-      // Data channel opened
+      // Data channel opened: stop relaying through the server
+      this.relayPeers.delete(peerId);
     };
 
     dataChannel.onclose = () => {
@@ -142,46 +154,68 @@ class WebRTCService {
           }
         }
         
-        switch (data.type) {
-          case 'text':
-            if (this.onMessageCallback) {
-              this.onMessageCallback(peerId, data);
-            }
-            break;
-          case 'typing':
-            if (this.onTypingCallback) {
-              this.onTypingCallback(peerId, data.isTyping);
-            }
-            break;
-          case 'file':
-            if (this.onFileCallback) {
-              this.onFileCallback(peerId, data);
-            }
-            break;
-          case 'file-start':
-          case 'file-chunk':
-          case 'file-end':
-            // File chunking handled by onMessage callback in Chat.js
-            if (this.onMessageCallback) {
-              this.onMessageCallback(peerId, data);
-            }
-            break;
-          case 'group-invitation':
-          case 'member-joined':
-            // Group invitation and member-joined handled by onMessage callback in Chat.js
-            if (this.onMessageCallback) {
-              this.onMessageCallback(peerId, data);
-            }
-            break;
-          default:
-            console.warn('Unknown message type:', data.type);
-        }
+        this.dispatchData(peerId, data);
       } catch (error) {
         console.error('Error parsing P2P message:', error);
       }
     };
   }
 
+  /**
+   * Hand a received message (data channel or server relay) to its callback
+   */
+  dispatchData(peerId, data) {
+    switch (data.type) {
+      case 'text':
+        if (this.onMessageCallback) {
+          this.onMessageCallback(peerId, data);
+        }
+        break;
+      case 'typing':
+        if (this.onTypingCallback) {
+          this.onTypingCallback(peerId, data.isTyping);
+        }
+        break;
+      case 'file':
+        if (this.onFileCallback) {
+          this.onFileCallback(peerId, data);
+        }
+        break;
+      case 'file-start':
+      case 'file-chunk':
+      case 'file-end':
+        // File chunking handled by onMessage callback in Chat.js
+        if (this.onMessageCallback) {
+          this.onMessageCallback(peerId, data);
+        }
+        break;
+      case 'group-invitation':
+      case 'member-joined':
+        // Group invitation and member-joined handled by onMessage callback in Chat.js
+        if (this.onMessageCallback) {
+          this.onMessageCallback(peerId, data);
+        }
+        break;
+      default:
+        console.warn('Unknown message type:', data.type);
+    }
+  }
+
+  /**
+   * Message relayed by the signaling server (no data channel to the sender)
+   */
+  handleRelayedMessage(peerId, data) {
+    if (!data) return;
+    if (data.groupId && data.messageId) {
+      if (this.receivedMessages.has(data.messageId)) {
+        return; // Already received over a data channel
+      }
+      this.receivedMessages.set(data.messageId, Date.now());
+    }
+    this.relayPeers.add(peerId);
+    this.dispatchData(peerId, data);
+  }
+
   /**
    * Create and send offer to remote peer
    */
@@ -347,8 +381,13 @@ class WebRTCService {
   async sendMessage(peerId, message, groupId = null, signalingService = null, myPeerId = null, type = 'text') {
     // Check if data channel exists and is open
     let dataChannel = this.dataChannels.get(peerId);
+    const canRelay = signalingService && signalingService.sendRelayMessage && !type.startsWith('file');
+    let relay = false;
     
-    if (!dataChannel || dataChannel.readyState !== 'open') {
+    if ((!dataChannel || dataChannel.readyState !== 'open') && canRelay && this.relayPeers.has(peerId)) {
+      // Data channel already failed for this peer: keep relaying instead of waiting again
+      relay = true;
+    } else if (!dataChannel || dataChannel.readyState !== 'open') {
       // Check if connection already exists
       const existingConnection = this.peerConnections.get(peerId);
       
@@ -398,7 +437,13 @@ class WebRTCService {
           }
           
           if (!dataChannel || dataChannel.readyState !== 'open') {
-            throw new Error('Failed to establish data channel');
+            if (!canRelay) {
+              throw new Error('Failed to establish data channel');
+            }
+            // Symmetric NAT / blocked UDP: fall back to the signaling server relay
+            console.warn(`📮 sendMessage: No data channel to ${peerId}, relaying via signaling server`);
+            this.relayPeers.add(peerId);
+            relay = true;
           }
         }
       }
@@ -418,6 +463,11 @@ class WebRTCService {
       this.receivedMessages.set(data.messageId, Date.now());
     }
 
+    if (relay) {
+      signalingService.sendRelayMessage(peerId, data);
+      return;
+    }
+
     try {
       dataChannel.send(JSON.stringify(data));
     } catch (error) {
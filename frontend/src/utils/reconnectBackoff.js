@@ -0,0 +1,13 @@
+/**
+ * Reconnect backoff for the STOMP clients: exponential from the base delay up to the cap, with
+ * full jitter so that clients rejected by an overloaded server (503 on handshake) do not all
+ * retry at once
+ */
+
+export const BASE_RECONNECT_DELAY = 5000;
+const MAX_RECONNECT_DELAY = 60000;
+
+export const reconnectDelay = (failedAttempts) => {
+  const ceiling = Math.min(MAX_RECONNECT_DELAY, BASE_RECONNECT_DELAY * 2 ** Math.min(failedAttempts, 4));
+  return BASE_RECONNECT_DELAY / 2 + Math.random() * (ceiling - BASE_RECONNECT_DELAY / 2);
+};